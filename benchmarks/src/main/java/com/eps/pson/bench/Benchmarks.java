@@ -0,0 +1,30 @@
+package com.eps.pson.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so that every result
+ * reports allocation rates next to throughput. Accepts the usual JMH
+ * command line options, e.g. a benchmark name filter, or
+ * {@code -rf json -rff results.json} to keep results for comparison
+ * with a later run.
+ * 
+ * @author David Vallee
+ */
+public final class Benchmarks {
+    
+    private Benchmarks() {}
+    
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(options)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
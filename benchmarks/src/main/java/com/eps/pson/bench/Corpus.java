@@ -0,0 +1,90 @@
+package com.eps.pson.bench;
+
+import java.util.Random;
+
+/**
+ * The fixed set of documents the benchmarks run against. Documents are
+ * generated from a constant seed, so every run measures the same input.
+ * 
+ * @author David Vallee
+ */
+public enum Corpus {
+    /** A typical API response: a small object of mixed values. */
+    SMALL {
+        String generate(Random random) {
+            return "{\"id\":1234567,\"name\":\"pjson\",\"active\":true,\"score\":98.5,"
+                    + "\"tags\":[\"json\",\"java\",\"fast\"],\"owner\":{\"id\":42,\"login\":\"panda\","
+                    + "\"url\":\"https://example.com/users/panda\"},\"parent\":null,\"forks\":17}";
+        }
+    },
+    /** A large array of integers and doubles, as in telemetry feeds. */
+    NUMBERS {
+        String generate(Random random) {
+            StringBuilder json = new StringBuilder("[");
+            for(int i = 0; i < 100000; i++) {
+                if(i > 0) {
+                    json.append(',');
+                }
+                if(i % 2 == 0) {
+                    json.append(random.nextInt(2000000) - 1000000);
+                } else {
+                    json.append(Math.round(random.nextDouble() * 1e6) / 1e3);
+                }
+            }
+            return json.append(']').toString();
+        }
+    },
+    /** Objects and arrays nested a few hundred levels deep. */
+    NESTED {
+        String generate(Random random) {
+            StringBuilder json = new StringBuilder();
+            for(int i = 0; i < 500; i++) {
+                json.append(i % 2 == 0 ? "{\"level\":" + i + ",\"child\":" : "[" + i + ",");
+            }
+            json.append("null");
+            for(int i = 499; i >= 0; i--) {
+                json.append(i % 2 == 0 ? '}' : ']');
+            }
+            return json.toString();
+        }
+    },
+    /** Records dominated by long strings, with escapes and non-ASCII text. */
+    STRINGS {
+        String generate(Random random) {
+            String[] words = {
+                "lorem", "ipsum", "dolor", "café", "naïve", "中文", "日本語",
+                "русский", "emoji 😀", "tab\\tbed",
+                "quote\\\"d", "line\\nbreak", "\\u00e9t\\u00e9 \\uD83D\\uDE00"
+            };
+            StringBuilder json = new StringBuilder("[");
+            for(int i = 0; i < 2000; i++) {
+                if(i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"title\":\"");
+                for(int k = 0; k < 8; k++) {
+                    json.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                json.append("\",\"body\":\"");
+                for(int k = 0; k < 60; k++) {
+                    json.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                json.append("\"}");
+            }
+            return json.append(']').toString();
+        }
+    };
+    
+    private static final long SEED = 20150101L;
+    
+    abstract String generate(Random random);
+    
+    /**
+     * Gets this document as a JSON string.
+     * 
+     * @return The JSON text of this document.
+     */
+    public String json() {
+        return generate(new Random(SEED));
+    }
+}
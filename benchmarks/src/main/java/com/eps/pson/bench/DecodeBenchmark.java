@@ -0,0 +1,108 @@
+package com.eps.pson.bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.eps.pson.JsonObject;
+import com.eps.pson.JsonProjection;
+import com.eps.pson.JsonPushParser;
+import com.eps.pson.JsonReader;
+import com.eps.pson.KeyCache;
+
+/**
+ * Measures decoding each document of the {@link Corpus}, from a String,
+ * from UTF-8 bytes, with and without a shared {@link KeyCache}, and through
+ * the streaming {@link JsonReader}, fed to a {@link JsonPushParser} in
+ * packet-sized chunks, and the structural pass of lazy decoding, which
+ * decodes no values at all. A {@link JsonProjection} measures taking a few
+ * paths out of each document, skipping the rest, and decoding the document
+ * from CBOR measures the binary format against the text.
+ * 
+ * @author David Vallee
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+    // Payload of a TCP segment on Ethernet.
+    private static final int CHUNK = 1460;
+    
+    @Param({"SMALL", "NUMBERS", "NESTED", "STRINGS"})
+    public Corpus corpus;
+    
+    private String json;
+    private byte[] bytes;
+    private byte[] cbor;
+    private final KeyCache keys = new KeyCache();
+    // A path or two into each document of the corpus.
+    private final JsonProjection projection = JsonProjection.compile("$.owner.id", "$[100]", "$[*].title");
+    
+    @Setup
+    public void setup() throws IOException {
+        json = corpus.json();
+        bytes = json.getBytes(StandardCharsets.UTF_8);
+        cbor = JsonObject.encodeCbor(JsonObject.decode(json));
+    }
+    
+    @Benchmark
+    public Object decodeString() throws IOException {
+        return JsonObject.decode(json);
+    }
+    
+    @Benchmark
+    public Object decodeBytes() throws IOException {
+        return JsonObject.decode(bytes, 0, bytes.length);
+    }
+    
+    @Benchmark
+    public Object decodeBytesKeyCache() throws IOException {
+        return JsonObject.decode(bytes, 0, bytes.length, keys);
+    }
+    
+    @Benchmark
+    public Object decodeBytesLazy() throws IOException {
+        return JsonObject.decodeLazy(bytes, 0, bytes.length);
+    }
+    
+    @Benchmark
+    public Object decodeCbor() throws IOException {
+        return JsonObject.decodeCbor(cbor, 0, cbor.length);
+    }
+    
+    @Benchmark
+    public Object extractBytes() throws IOException {
+        return projection.extract(bytes, 0, bytes.length);
+    }
+    
+    @Benchmark
+    public Object decodePush() throws IOException {
+        JsonPushParser parser = new JsonPushParser();
+        for(int i = 0; i < bytes.length; i += CHUNK) {
+            parser.feed(bytes, i, Math.min(CHUNK, bytes.length - i));
+        }
+        parser.finish();
+        return parser.next();
+    }
+    
+    @Benchmark
+    public Object decodeReader() throws IOException {
+        return new JsonReader(new StringReader(json)).nextValue();
+    }
+}
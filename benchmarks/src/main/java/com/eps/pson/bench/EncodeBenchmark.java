@@ -0,0 +1,119 @@
+package com.eps.pson.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.eps.pson.JsonObject;
+
+/**
+ * Measures encoding the decoded form of each document of the {@link Corpus},
+ * compact and pretty printed, to a String and as UTF-8 to a stream, on one
+ * thread and on the common fork-join pool, and as CBOR to a stream. The
+ * cached form of the document measures encoding it again after a change to
+ * its root, which leaves the encoding of everything below in place, and an
+ * iterator over the document's elements measures encoding them lazily.
+ * 
+ * @author David Vallee
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeBenchmark {
+    @Param({"SMALL", "NUMBERS", "NESTED", "STRINGS"})
+    public Corpus corpus;
+    
+    private Object value;
+    private Object cached;
+    
+    @Setup
+    public void setup() throws IOException {
+        value = JsonObject.decode(corpus.json());
+        cached = JsonObject.cached(value);
+    }
+    
+    @Benchmark
+    public String encode() throws IOException {
+        return JsonObject.encode(value);
+    }
+    
+    @Benchmark
+    public String encodePretty() throws IOException {
+        return JsonObject.encodePretty(value);
+    }
+    
+    @Benchmark
+    public void encodeStream(Blackhole blackhole) throws IOException {
+        JsonObject.encode(new BlackholeStream(blackhole), value);
+    }
+    
+    @Benchmark
+    public void encodeStreamParallel(Blackhole blackhole) throws IOException {
+        JsonObject.encodeParallel(new BlackholeStream(blackhole), value);
+    }
+    
+    @Benchmark
+    public void encodeCborStream(Blackhole blackhole) throws IOException {
+        JsonObject.encodeCbor(new BlackholeStream(blackhole), value);
+    }
+    
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void encodeStreamCached(Blackhole blackhole) throws IOException {
+        if(cached instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>)cached;
+            Object key = map.keySet().iterator().next();
+            map.put(key, map.get(key));
+        } else {
+            List<Object> list = (List<Object>)cached;
+            list.set(0, list.get(0));
+        }
+        JsonObject.encode(new BlackholeStream(blackhole), cached);
+    }
+    
+    @Benchmark
+    public void encodeStreamLazy(Blackhole blackhole) throws IOException {
+        Iterator<?> elements = value instanceof List ? ((List<?>)value).iterator()
+                : Collections.singleton(value).iterator();
+        JsonObject.encode(new BlackholeStream(blackhole), elements);
+    }
+    
+    // Hands every written byte range to the blackhole, so encoding
+    // to a stream is measured without the cost of a real destination.
+    private static final class BlackholeStream extends OutputStream {
+        private final Blackhole blackhole;
+        
+        BlackholeStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+        
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+        
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+            blackhole.consume(len);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.eps.pson.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.eps.pson.JsonArray;
+import com.eps.pson.JsonObject;
+
+/**
+ * Measures the heap retained by decoded documents, against the same values
+ * copied into plain {@link JsonObject} and {@link JsonArray} instances, which
+ * hold each entry of an object as a LinkedHashMap entry. Many copies of each
+ * document of the {@link Corpus} are held at once, and the heap in use after
+ * a full collection is divided among them. Run with a fixed heap for steady
+ * results:
+ * <pre>
+ * java -Xms1g -Xmx1g -cp benchmarks/target/benchmarks.jar com.eps.pson.bench.Footprint
+ * </pre>
+ * 
+ * @author David Vallee
+ */
+public final class Footprint {
+    // Bytes of documents held at once for each measurement.
+    private static final int HELD = 64 << 20;
+    
+    private Footprint() {}
+    
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%-8s %14s %14s%n", "corpus", "decoded B/doc", "plain B/doc");
+        for(Corpus corpus : Corpus.values()) {
+            String json = corpus.json();
+            int copies = Math.max(1, HELD / json.length() / 8);
+            long decoded = retained(json, copies, false);
+            long plain = retained(json, copies, true);
+            System.out.printf("%-8s %14d %14d%n", corpus, decoded / copies, plain / copies);
+        }
+    }
+    
+    // Heap taken by the given number of copies of a document, decoded or
+    // copied into plain objects and arrays.
+    private static long retained(String json, int copies, boolean plain) throws IOException {
+        Object[] held = new Object[copies];
+        long before = used();
+        for(int i = 0; i < copies; i++) {
+            Object value = JsonObject.decode(json);
+            held[i] = plain ? plain(value) : value;
+        }
+        long after = used();
+        if(held[copies - 1] == null) {
+            throw new AssertionError();
+        }
+        return after - before;
+    }
+    
+    private static Object plain(Object value) {
+        if(value instanceof Map) {
+            JsonObject object = new JsonObject();
+            for(Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                object.put(entry.getKey(), plain(entry.getValue()));
+            }
+            return object;
+        } else if(value instanceof List) {
+            List<?> list = (List<?>)value;
+            JsonArray array = new JsonArray(list.size());
+            for(Object element : list) {
+                array.add(plain(element));
+            }
+            return array;
+        }
+        return value;
+    }
+    
+    private static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for(int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
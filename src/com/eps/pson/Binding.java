@@ -0,0 +1,782 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Internal
+// Binds JSON objects to plain Java classes, without annotations. The fields
+// of a class are looked up through reflection once, and kept in a ClassValue
+// along with method handles for getting and setting each of them and for the
+// constructor without parameters; every call after that goes through the
+// handles. Decoding fills each field straight from the lexer's tokens, so no
+// JsonObject is built in between, and encoding writes each field through the
+// same writers as JsonObject.encode(), so pretty printing carries over.
+//
+// Every field which is neither static nor transient is bound under its own
+// name, those of superclasses included; final fields are written but never
+// read. Keys without a field are skipped, and fields without a key are left
+// as the constructor set them, as are primitive fields given null; null in
+// an array of primitives is an error. Maps may be keyed by strings, integers
+// or enums, whose keys are the names of the constants.
+final class Binding {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final ClassValue<Binding> BINDINGS = new ClassValue<Binding>() {
+        protected Binding computeValue(Class<?> type) {
+            return new Binding(type);
+        }
+    };
+    private static final ClassValue<Slot> SLOTS = new ClassValue<Slot>() {
+        protected Slot computeValue(Class<?> type) {
+            return Slot.of(type);
+        }
+    };
+    
+    // Kinds of values, see Slot.
+    private static final int K_ANY = 0;
+    private static final int K_STRING = 1;
+    private static final int K_BOOLEAN = 2;
+    private static final int K_INT = 3;
+    private static final int K_LONG = 4;
+    private static final int K_SHORT = 5;
+    private static final int K_BYTE = 6;
+    private static final int K_DOUBLE = 7;
+    private static final int K_FLOAT = 8;
+    private static final int K_CHAR = 9;
+    private static final int K_BIG_INTEGER = 10;
+    private static final int K_BIG_DECIMAL = 11;
+    private static final int K_NUMBER = 12;
+    private static final int K_ENUM = 13;
+    private static final int K_COLLECTION = 14;
+    private static final int K_MAP = 15;
+    private static final int K_ARRAY = 16;
+    private static final int K_BEAN = 17;
+    
+    private final Class<?> type;
+    // Creates an instance, as ()Object, or null if the class has no
+    // constructor without parameters.
+    private final MethodHandle constructor;
+    private final Property[] properties;
+    private final Map<String, Property> byName;
+    // Shares the instances of keys, so that looking up a field allocates nothing.
+    private final KeyCache names = new KeyCache();
+    
+    private Binding(Class<?> type) {
+        this.type = type;
+        this.constructor = constructor(type);
+        Map<String, Property> fields = new LinkedHashMap<String, Property>();
+        List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+        for(Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.add(0, c);
+        }
+        for(Class<?> c : hierarchy) {
+            for(Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if(!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    fields.put(field.getName(), new Property(field));
+                }
+            }
+        }
+        this.properties = fields.values().toArray(new Property[fields.size()]);
+        this.byName = new HashMap<String, Property>(fields);
+    }
+    
+    static Binding of(Class<?> type) {
+        return BINDINGS.get(type);
+    }
+    
+    // Decodes the next value as the given type.
+    static Object decode(JsonLexer lexer, JsonParser parser, Class<?> type) throws IOException {
+        if(type.isPrimitive()) {
+            throw new IllegalArgumentException("type");
+        }
+        if(lexer.peek() == TokenType.NONE) {
+            return null;
+        }
+        return read(lexer, parser, SLOTS.get(type));
+    }
+    
+    // Encodes the given value, binding the fields of the given type.
+    static void encode(Writer out, Object value, Class<?> type) throws IOException {
+        if(value != null && isBean(type)) {
+            of(type).writeFields(out, value);
+        } else {
+            write(out, value);
+        }
+    }
+    
+    // Whether instances of the type are written as objects of their fields,
+    // rather than by JsonObject.encode(). Types of the Java platform are not.
+    private static boolean isBean(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && !type.isEnum() && !type.isInterface()
+                && !JsonSerializable.class.isAssignableFrom(type)
+                && !Map.class.isAssignableFrom(type) && !Collection.class.isAssignableFrom(type)
+                && !type.getName().startsWith("java.");
+    }
+    
+    private static MethodHandle constructor(Class<?> type) {
+        if(type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        } catch(NoSuchMethodException e) {
+            return null;
+        } catch(IllegalAccessException e) {
+            return null;
+        }
+    }
+    
+    private Object create() throws IOException {
+        if(constructor == null) {
+            throw new IllegalArgumentException(type.getName() + " has no constructor without parameters");
+        }
+        try {
+            return (Object)constructor.invokeExact();
+        } catch(Throwable t) {
+            throw failure(t);
+        }
+    }
+    
+    // Rethrows what a method handle threw, unchecked exceptions as they are.
+    private static IOException failure(Throwable t) {
+        if(t instanceof IOException) {
+            return (IOException)t;
+        } else if(t instanceof RuntimeException) {
+            throw (RuntimeException)t;
+        } else if(t instanceof Error) {
+            throw (Error)t;
+        }
+        return new IOException(t);
+    }
+    
+    private Object readFields(JsonLexer lexer, JsonParser parser) throws IOException {
+        if(lexer.peek() != TokenType.BRACE_OPEN) {
+            throw lexer.unexpected("object");
+        }
+        lexer.next();
+        Object bean = create();
+        if(lexer.peek() == TokenType.BRACE_CLOSE) {
+            lexer.next();
+            return bean;
+        }
+        while(true) {
+            String name = lexer.readKey(names);
+            if(lexer.peek() != TokenType.COLON) {
+                throw lexer.unexpected(TokenType.COLON.name());
+            }
+            lexer.next();
+            Property property = byName.get(name);
+            if(property == null || property.setter == null) {
+                lexer.skipValue();
+            } else {
+                property.read(bean, lexer, parser);
+            }
+            TokenType token = lexer.peek();
+            if(token == TokenType.COMMA) {
+                lexer.next();
+            } else if(token == TokenType.BRACE_CLOSE) {
+                lexer.next();
+                return bean;
+            } else {
+                throw lexer.unexpected("',' or '}'");
+            }
+        }
+    }
+    
+    private void writeFields(Writer out, Object bean) throws IOException {
+        StructuredWriter layout = out instanceof StructuredWriter ? (StructuredWriter)out : null;
+        if(layout != null) {
+            layout.beginObject();
+        } else {
+            out.write('{');
+        }
+        boolean first = true;
+        for(Property property : properties) {
+            if(layout != null) {
+                layout.separator(first);
+            } else if(!first) {
+                out.write(',');
+            }
+            first = false;
+            JsonObject.writeString(out, property.name);
+            out.write(':');
+            property.write(out, bean);
+        }
+        if(layout != null) {
+            layout.endObject(first);
+        } else {
+            out.write('}');
+        }
+    }
+    
+    // Reads the next value as the given slot describes it.
+    @SuppressWarnings("unchecked")
+    private static Object read(JsonLexer lexer, JsonParser parser, Slot slot) throws IOException {
+        if(lexer.peek() == TokenType.NULL) {
+            if(slot.raw.isPrimitive()) {
+                throw new IOException("Expected " + slot.raw.getName() + ", got null at " + lexer.position());
+            }
+            lexer.next();
+            return null;
+        }
+        switch(slot.kind) {
+            case K_STRING: return lexer.readString();
+            case K_BOOLEAN: return readBoolean(lexer);
+            case K_INT: return (int)readInteger(lexer, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+            case K_LONG: return lexer.readLong();
+            case K_SHORT: return (short)readInteger(lexer, Short.MIN_VALUE, Short.MAX_VALUE, "short");
+            case K_BYTE: return (byte)readInteger(lexer, Byte.MIN_VALUE, Byte.MAX_VALUE, "byte");
+            case K_DOUBLE: return lexer.readDouble();
+            case K_FLOAT: return (float)lexer.readDouble();
+            case K_CHAR: return readChar(lexer);
+            case K_BIG_INTEGER: {
+                Number number = lexer.readNumber();
+                if(number instanceof BigInteger) {
+                    return number;
+                } else if(number instanceof Long) {
+                    return BigInteger.valueOf(number.longValue());
+                }
+                throw new IOException("Expected integer, got " + number + " at " + lexer.position());
+            }
+            case K_BIG_DECIMAL: {
+                Number number = lexer.readNumber();
+                return number instanceof BigDecimal ? number : new BigDecimal(number.toString());
+            }
+            case K_NUMBER: return lexer.readNumber();
+            case K_ENUM: {
+                String name = lexer.readString();
+                Object constant = slot.constants.get(name);
+                if(constant == null) {
+                    throw new IOException("No constant " + name + " in " + slot.raw.getName() + " at " + lexer.position());
+                }
+                return constant;
+            }
+            case K_COLLECTION: {
+                Collection<Object> elements = (Collection<Object>)slot.create();
+                readElements(lexer, parser, slot.element, elements);
+                return elements;
+            }
+            case K_ARRAY: {
+                List<Object> elements = new ArrayList<Object>();
+                readElements(lexer, parser, slot.element, elements);
+                Object array = Array.newInstance(slot.element.raw, elements.size());
+                for(int k = 0; k < elements.size(); k++) {
+                    Array.set(array, k, elements.get(k));
+                }
+                return array;
+            }
+            case K_MAP: return readMap(lexer, parser, slot, (Map<Object, Object>)slot.create());
+            case K_BEAN: return slot.binding().readFields(lexer, parser);
+            default: {
+                long start = lexer.position();
+                Object value = parser.decodeValue();
+                if(!slot.raw.isInstance(value)) {
+                    throw new IOException("Expected " + slot.raw.getSimpleName() + " at " + start);
+                }
+                return value;
+            }
+        }
+    }
+    
+    private static boolean readBoolean(JsonLexer lexer) throws IOException {
+        TokenType token = lexer.peek();
+        if(token != TokenType.TRUE && token != TokenType.FALSE) {
+            throw lexer.unexpected("boolean");
+        }
+        lexer.next();
+        return token == TokenType.TRUE;
+    }
+    
+    private static long readInteger(JsonLexer lexer, long min, long max, String type) throws IOException {
+        long value = lexer.readLong();
+        if(value < min || value > max) {
+            throw new IOException("Expected " + type + ", got " + value + " at " + lexer.position());
+        }
+        return value;
+    }
+    
+    private static char readChar(JsonLexer lexer) throws IOException {
+        String s = lexer.readString();
+        if(s.length() != 1) {
+            throw new IOException("Expected char, got \"" + s + "\" at " + lexer.position());
+        }
+        return s.charAt(0);
+    }
+    
+    private static void readElements(JsonLexer lexer, JsonParser parser, Slot element, Collection<Object> elements)
+            throws IOException {
+        if(lexer.peek() != TokenType.SQUARE_OPEN) {
+            throw lexer.unexpected("array");
+        }
+        lexer.next();
+        if(lexer.peek() == TokenType.SQUARE_CLOSE) {
+            lexer.next();
+            return;
+        }
+        while(true) {
+            elements.add(read(lexer, parser, element));
+            TokenType token = lexer.peek();
+            if(token == TokenType.COMMA) {
+                lexer.next();
+            } else if(token == TokenType.SQUARE_CLOSE) {
+                lexer.next();
+                return;
+            } else {
+                throw lexer.unexpected("',' or ']'");
+            }
+        }
+    }
+    
+    private static Map<Object, Object> readMap(JsonLexer lexer, JsonParser parser, Slot slot, Map<Object, Object> map)
+            throws IOException {
+        Slot key = slot.key;
+        if(!isKey(key)) {
+            throw new IllegalArgumentException("Map keys cannot be decoded as " + key.raw.getName());
+        }
+        if(lexer.peek() != TokenType.BRACE_OPEN) {
+            throw lexer.unexpected("object");
+        }
+        lexer.next();
+        if(lexer.peek() == TokenType.BRACE_CLOSE) {
+            lexer.next();
+            return map;
+        }
+        while(true) {
+            String name = lexer.readKey();
+            if(lexer.peek() != TokenType.COLON) {
+                throw lexer.unexpected(TokenType.COLON.name());
+            }
+            lexer.next();
+            map.put(key.kind == K_STRING || key.kind == K_ANY ? name : readKey(lexer, key, name),
+                    read(lexer, parser, slot.element));
+            TokenType token = lexer.peek();
+            if(token == TokenType.COMMA) {
+                lexer.next();
+            } else if(token == TokenType.BRACE_CLOSE) {
+                lexer.next();
+                return map;
+            } else {
+                throw lexer.unexpected("',' or '}'");
+            }
+        }
+    }
+    
+    // Whether maps keyed by the given slot can be decoded: keys are read as
+    // strings, integers or the names of enum constants.
+    private static boolean isKey(Slot key) {
+        switch(key.kind) {
+            case K_STRING:
+            case K_INT:
+            case K_LONG:
+            case K_SHORT:
+            case K_BYTE:
+            case K_ENUM: return true;
+            case K_ANY: return key.raw == Object.class;
+            default: return false;
+        }
+    }
+    
+    // Converts a key read as a string to the map's key type.
+    private static Object readKey(JsonLexer lexer, Slot key, String name) throws IOException {
+        switch(key.kind) {
+            case K_INT: return (int)parseKey(lexer, name, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+            case K_LONG: return parseKey(lexer, name, Long.MIN_VALUE, Long.MAX_VALUE, "long");
+            case K_SHORT: return (short)parseKey(lexer, name, Short.MIN_VALUE, Short.MAX_VALUE, "short");
+            case K_BYTE: return (byte)parseKey(lexer, name, Byte.MIN_VALUE, Byte.MAX_VALUE, "byte");
+            default: {
+                Object constant = key.constants.get(name);
+                if(constant == null) {
+                    throw new IOException("No constant " + name + " in " + key.raw.getName() + " at " + lexer.position());
+                }
+                return constant;
+            }
+        }
+    }
+    
+    private static long parseKey(JsonLexer lexer, String name, long min, long max, String type) throws IOException {
+        try {
+            long value = Long.parseLong(name);
+            if(value >= min && value <= max) {
+                return value;
+            }
+        } catch(NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IOException("Expected " + type + " key, got \"" + name + "\" at " + lexer.position());
+    }
+    
+    // Writes any value, as JsonObject.encode() would, except that maps,
+    // collections and arrays are walked here so that their elements are bound
+    // too, and other objects not of the Java platform are bound by their class.
+    private static void write(Writer out, Object value) throws IOException {
+        if(value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            JsonObject.encode(out, value);
+        } else if(value instanceof Map && isPlain(value, JsonObject.class)) {
+            writeMap(out, (Map<?, ?>)value);
+        } else if(value instanceof Collection && isPlain(value, JsonArray.class)) {
+            writeElements(out, ((Collection<?>)value).iterator());
+        } else if(value instanceof Object[]) {
+            writeElements(out, new ArrayIterator(value));
+        } else if(value.getClass().isArray()) {
+            writeElements(out, new ArrayIterator(value));
+        } else if(value instanceof Enum) {
+            JsonObject.writeString(out, ((Enum<?>)value).name());
+        } else if(value instanceof Character) {
+            JsonObject.writeString(out, value.toString());
+        } else if(isBean(value.getClass())) {
+            of(value.getClass()).writeFields(out, value);
+        } else {
+            JsonObject.encode(out, value);
+        }
+    }
+    
+    // Whether the value is written as a plain map or list rather than
+    // through a writeJson() of its own. Decoded objects write their entries
+    // as any other map would.
+    private static boolean isPlain(Object value, Class<?> type) {
+        return !(value instanceof JsonSerializable) || value.getClass() == type
+                || value instanceof CompactJsonObject;
+    }
+    
+    private static void writeMap(Writer out, Map<?, ?> map) throws IOException {
+        StructuredWriter layout = out instanceof StructuredWriter ? (StructuredWriter)out : null;
+        if(layout != null) {
+            layout.beginObject();
+        } else {
+            out.write('{');
+        }
+        boolean first = true;
+        for(Map.Entry<?, ?> entry : map.entrySet()) {
+            if(layout != null) {
+                layout.separator(first);
+            } else if(!first) {
+                out.write(',');
+            }
+            first = false;
+            Object key = entry.getKey();
+            JsonObject.writeString(out, key instanceof Enum ? ((Enum<?>)key).name() : String.valueOf(key));
+            out.write(':');
+            write(out, entry.getValue());
+        }
+        if(layout != null) {
+            layout.endObject(first);
+        } else {
+            out.write('}');
+        }
+    }
+    
+    private static void writeElements(Writer out, Iterator<?> elements) throws IOException {
+        StructuredWriter layout = out instanceof StructuredWriter ? (StructuredWriter)out : null;
+        if(layout != null) {
+            layout.beginArray();
+        } else {
+            out.write('[');
+        }
+        boolean first = true;
+        while(elements.hasNext()) {
+            if(layout != null) {
+                layout.separator(first);
+            } else if(!first) {
+                out.write(',');
+            }
+            first = false;
+            write(out, elements.next());
+        }
+        if(layout != null) {
+            layout.endArray(first);
+        } else {
+            out.write(']');
+        }
+    }
+    
+    // Iterates over the elements of any array, boxing primitives.
+    private static final class ArrayIterator implements Iterator<Object> {
+        private final Object array;
+        private final int length;
+        private int index;
+        
+        ArrayIterator(Object array) {
+            this.array = array;
+            this.length = Array.getLength(array);
+        }
+        
+        public boolean hasNext() {
+            return index < length;
+        }
+        
+        public Object next() {
+            return Array.get(array, index++);
+        }
+    }
+    
+    // A bound field. Primitive fields are read and written through handles
+    // of their own type, so that they are not boxed.
+    private static final class Property {
+        final String name;
+        final Slot slot;
+        final boolean primitive;
+        // As (Object)T, and (Object, T)void, where T is the field's type if it
+        // is primitive, or Object otherwise. The setter of a final field is null.
+        final MethodHandle getter;
+        final MethodHandle setter;
+        
+        Property(Field field) {
+            Class<?> type = field.getType();
+            this.name = field.getName();
+            this.slot = Slot.of(field.getGenericType());
+            this.primitive = type.isPrimitive();
+            Class<?> value = primitive ? type : Object.class;
+            field.setAccessible(true);
+            try {
+                this.getter = LOOKUP.unreflectGetter(field).asType(MethodType.methodType(value, Object.class));
+                this.setter = Modifier.isFinal(field.getModifiers()) ? null
+                        : LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, value));
+            } catch(IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        void read(Object bean, JsonLexer lexer, JsonParser parser) throws IOException {
+            try {
+                if(!primitive) {
+                    Object value = Binding.read(lexer, parser, slot);
+                    setter.invokeExact(bean, value);
+                    return;
+                }
+                if(lexer.peek() == TokenType.NULL) {
+                    lexer.next();
+                    return;
+                }
+                switch(slot.kind) {
+                    case K_BOOLEAN: setter.invokeExact(bean, readBoolean(lexer)); break;
+                    case K_INT: setter.invokeExact(bean, (int)readInteger(lexer, Integer.MIN_VALUE, Integer.MAX_VALUE, "int")); break;
+                    case K_LONG: setter.invokeExact(bean, lexer.readLong()); break;
+                    case K_SHORT: setter.invokeExact(bean, (short)readInteger(lexer, Short.MIN_VALUE, Short.MAX_VALUE, "short")); break;
+                    case K_BYTE: setter.invokeExact(bean, (byte)readInteger(lexer, Byte.MIN_VALUE, Byte.MAX_VALUE, "byte")); break;
+                    case K_DOUBLE: setter.invokeExact(bean, lexer.readDouble()); break;
+                    case K_FLOAT: setter.invokeExact(bean, (float)lexer.readDouble()); break;
+                    default: setter.invokeExact(bean, readChar(lexer)); break;
+                }
+            } catch(Throwable t) {
+                throw failure(t);
+            }
+        }
+        
+        void write(Writer out, Object bean) throws IOException {
+            try {
+                if(!primitive) {
+                    Binding.write(out, (Object)getter.invokeExact(bean));
+                    return;
+                }
+                switch(slot.kind) {
+                    case K_BOOLEAN: out.write((boolean)getter.invokeExact(bean) ? "true" : "false"); break;
+                    case K_INT: JsonObject.writeLong(out, (int)getter.invokeExact(bean)); break;
+                    case K_LONG: JsonObject.writeLong(out, (long)getter.invokeExact(bean)); break;
+                    case K_SHORT: JsonObject.writeLong(out, (short)getter.invokeExact(bean)); break;
+                    case K_BYTE: JsonObject.writeLong(out, (byte)getter.invokeExact(bean)); break;
+                    case K_DOUBLE: JsonObject.writeDouble(out, (double)getter.invokeExact(bean)); break;
+                    case K_FLOAT: {
+                        float value = (float)getter.invokeExact(bean);
+                        if(Float.isInfinite(value) || Float.isNaN(value)) {
+                            out.write("null");
+                        } else {
+                            out.write(Float.toString(value));
+                        }
+                        break;
+                    }
+                    default: JsonObject.writeString(out, String.valueOf((char)getter.invokeExact(bean))); break;
+                }
+            } catch(Throwable t) {
+                throw failure(t);
+            }
+        }
+    }
+    
+    // How values of a declared type are read: their kind, the slot of their
+    // elements for collections and arrays, or of their values for maps, and
+    // whatever else the kind needs.
+    private static final class Slot {
+        final int kind;
+        final Class<?> raw;
+        final Slot element;
+        // Type of the keys of a map.
+        final Slot key;
+        // Creates an empty collection or map, as ()Object.
+        final MethodHandle factory;
+        // Constants of an enum, by name.
+        final Map<String, Object> constants;
+        // Bound lazily, as a class may hold fields of its own type.
+        private Binding binding;
+        
+        private Slot(int kind, Class<?> raw, Slot element, Slot key, MethodHandle factory,
+                Map<String, Object> constants) {
+            this.kind = kind;
+            this.raw = raw;
+            this.element = element;
+            this.key = key;
+            this.factory = factory;
+            this.constants = constants;
+        }
+        
+        private Slot(int kind, Class<?> raw) {
+            this(kind, raw, null, null, null, null);
+        }
+        
+        static Slot of(Type type) {
+            Class<?> raw = raw(type);
+            if(raw == String.class || raw == CharSequence.class) {
+                return new Slot(K_STRING, raw);
+            } else if(raw == boolean.class || raw == Boolean.class) {
+                return new Slot(K_BOOLEAN, raw);
+            } else if(raw == int.class || raw == Integer.class) {
+                return new Slot(K_INT, raw);
+            } else if(raw == long.class || raw == Long.class) {
+                return new Slot(K_LONG, raw);
+            } else if(raw == short.class || raw == Short.class) {
+                return new Slot(K_SHORT, raw);
+            } else if(raw == byte.class || raw == Byte.class) {
+                return new Slot(K_BYTE, raw);
+            } else if(raw == double.class || raw == Double.class) {
+                return new Slot(K_DOUBLE, raw);
+            } else if(raw == float.class || raw == Float.class) {
+                return new Slot(K_FLOAT, raw);
+            } else if(raw == char.class || raw == Character.class) {
+                return new Slot(K_CHAR, raw);
+            } else if(raw == BigInteger.class) {
+                return new Slot(K_BIG_INTEGER, raw);
+            } else if(raw == BigDecimal.class) {
+                return new Slot(K_BIG_DECIMAL, raw);
+            } else if(raw == Number.class) {
+                return new Slot(K_NUMBER, raw);
+            } else if(raw.isEnum()) {
+                Map<String, Object> constants = new HashMap<String, Object>();
+                for(Object constant : raw.getEnumConstants()) {
+                    constants.put(((Enum<?>)constant).name(), constant);
+                }
+                return new Slot(K_ENUM, raw, null, null, null, constants);
+            } else if(raw.isArray()) {
+                Type component = type instanceof GenericArrayType
+                        ? ((GenericArrayType)type).getGenericComponentType() : raw.getComponentType();
+                return new Slot(K_ARRAY, raw, of(component), null, null, null);
+            } else if(Collection.class.isAssignableFrom(raw)) {
+                MethodHandle factory = factory(raw, collection(raw));
+                if(factory != null) {
+                    return new Slot(K_COLLECTION, raw, of(argument(type, 0)), null, factory, null);
+                }
+            } else if(Map.class.isAssignableFrom(raw)) {
+                MethodHandle factory = factory(raw, map(raw));
+                if(factory != null) {
+                    return new Slot(K_MAP, raw, of(argument(type, 1)), of(argument(type, 0)), factory, null);
+                }
+            } else if(isBean(raw)) {
+                return new Slot(K_BEAN, raw);
+            }
+            return new Slot(K_ANY, raw);
+        }
+        
+        Binding binding() {
+            Binding binding = this.binding;
+            if(binding == null) {
+                binding = this.binding = Binding.of(raw);
+            }
+            return binding;
+        }
+        
+        Object create() throws IOException {
+            try {
+                return (Object)factory.invokeExact();
+            } catch(Throwable t) {
+                throw failure(t);
+            }
+        }
+        
+        private static Class<?> raw(Type type) {
+            if(type instanceof Class) {
+                return (Class<?>)type;
+            } else if(type instanceof ParameterizedType) {
+                return raw(((ParameterizedType)type).getRawType());
+            } else if(type instanceof GenericArrayType) {
+                return Array.newInstance(raw(((GenericArrayType)type).getGenericComponentType()), 0).getClass();
+            } else if(type instanceof WildcardType) {
+                return raw(((WildcardType)type).getUpperBounds()[0]);
+            }
+            // Type variables are bound as whatever they hold.
+            return Object.class;
+        }
+        
+        // Returns the type argument at the given index, or Object if the
+        // type is not parameterized.
+        private static Type argument(Type type, int index) {
+            if(type instanceof ParameterizedType) {
+                Type[] arguments = ((ParameterizedType)type).getActualTypeArguments();
+                if(index < arguments.length) {
+                    return arguments[index];
+                }
+            }
+            return Object.class;
+        }
+        
+        private static Class<?> collection(Class<?> raw) {
+            if(SortedSet.class.isAssignableFrom(raw)) {
+                return TreeSet.class;
+            } else if(Set.class.isAssignableFrom(raw)) {
+                return LinkedHashSet.class;
+            } else if(Queue.class.isAssignableFrom(raw)) {
+                return ArrayDeque.class;
+            }
+            return ArrayList.class;
+        }
+        
+        private static Class<?> map(Class<?> raw) {
+            if(SortedMap.class.isAssignableFrom(raw) || NavigableMap.class.isAssignableFrom(raw)) {
+                return TreeMap.class;
+            } else if(ConcurrentMap.class.isAssignableFrom(raw)) {
+                return ConcurrentHashMap.class;
+            }
+            return LinkedHashMap.class;
+        }
+        
+        // Returns a handle creating the declared type if it can be created,
+        // or else the given implementation of it, or null if neither works.
+        private static MethodHandle factory(Class<?> raw, Class<?> implementation) {
+            MethodHandle factory = constructor(raw);
+            if(factory == null && raw.isAssignableFrom(implementation)) {
+                factory = constructor(implementation);
+            }
+            return factory;
+        }
+    }
+}
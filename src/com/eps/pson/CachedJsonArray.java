@@ -0,0 +1,261 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A JSON array which keeps its encoding from one encode to the next, as
+ * {@link CachedJsonObject} does. Each change to the array, through its own
+ * methods, its iterators or its sub-lists, clears its encoding and those of
+ * the cached objects and arrays holding it.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see CachedJsonObject
+ * @see JsonObject#cached(Object)
+ */
+public final class CachedJsonArray extends JsonArray {
+    private static final long serialVersionUID = 1L;
+    
+    transient EncodedCache cache = new EncodedCache(this);
+    
+    /**
+     * Initializes an empty array.
+     */
+    public CachedJsonArray() {
+    }
+    
+    /**
+     * Initializes an array holding the elements of the given collection.
+     * 
+     * @param elements The initial elements.
+     * @throws NullPointerException If the collection is null.
+     */
+    public CachedJsonArray(Collection<?> elements) {
+        super(Math.max(8, elements.size()));
+        addAll(elements);
+    }
+    
+    // Moves the link from the replaced element to the new one, and clears
+    // the encoding of this array and of those holding it.
+    private void changed(Object old, Object element) {
+        if(old != element) {
+            cache.unlink(old);
+            cache.link(element);
+        }
+        cache.invalidate();
+    }
+    
+    // Unlinks every element before a change to many of them at once.
+    private void unlinkAll() {
+        for(int i = 0; i < size(); i++) {
+            cache.unlink(get(i));
+        }
+    }
+    
+    // Links every element after a change to many of them at once.
+    private void linkAll() {
+        for(int i = 0; i < size(); i++) {
+            cache.link(get(i));
+        }
+        cache.invalidate();
+    }
+    
+    public void writeJson(Writer out) throws IOException {
+        cache.write(out);
+    }
+    
+    public boolean add(Object element) {
+        super.add(element);
+        changed(null, element);
+        return true;
+    }
+    
+    public void add(int index, Object element) {
+        super.add(index, element);
+        changed(null, element);
+    }
+    
+    public boolean addAll(Collection<? extends Object> c) {
+        return addAll(size(), c);
+    }
+    
+    public boolean addAll(int index, Collection<? extends Object> c) {
+        Object[] elements = c.toArray();
+        if(!super.addAll(index, Arrays.asList(elements))) {
+            return false;
+        }
+        for(Object element : elements) {
+            cache.link(element);
+        }
+        cache.invalidate();
+        return true;
+    }
+    
+    public Object set(int index, Object element) {
+        Object old = super.set(index, element);
+        changed(old, element);
+        return old;
+    }
+    
+    public Object remove(int index) {
+        Object old = super.remove(index);
+        changed(old, null);
+        return old;
+    }
+    
+    // Declared for the List methods added in Java 21, which ArrayList
+    // implements against its own storage rather than through remove(int).
+    public Object removeFirst() {
+        if(isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return remove(0);
+    }
+    
+    public Object removeLast() {
+        if(isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return remove(size() - 1);
+    }
+    
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if(index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+    
+    protected void removeRange(int fromIndex, int toIndex) {
+        for(int i = fromIndex; i < toIndex; i++) {
+            cache.unlink(get(i));
+        }
+        super.removeRange(fromIndex, toIndex);
+        cache.invalidate();
+    }
+    
+    public void clear() {
+        unlinkAll();
+        super.clear();
+        cache.invalidate();
+    }
+    
+    public boolean removeAll(Collection<?> c) {
+        unlinkAll();
+        try {
+            return super.removeAll(c);
+        } finally {
+            linkAll();
+        }
+    }
+    
+    public boolean retainAll(Collection<?> c) {
+        unlinkAll();
+        try {
+            return super.retainAll(c);
+        } finally {
+            linkAll();
+        }
+    }
+    
+    public boolean removeIf(Predicate<? super Object> filter) {
+        unlinkAll();
+        try {
+            return super.removeIf(filter);
+        } finally {
+            linkAll();
+        }
+    }
+    
+    public void replaceAll(UnaryOperator<Object> operator) {
+        unlinkAll();
+        try {
+            super.replaceAll(operator);
+        } finally {
+            linkAll();
+        }
+    }
+    
+    public void sort(Comparator<? super Object> c) {
+        super.sort(c);
+        cache.invalidate();
+    }
+    
+    // The iterators of ArrayList change the list through remove(int), set()
+    // and add(int, Object), which clear the cache, but its sub-lists write
+    // to the elements directly, so sub-lists here go through those methods.
+    public List<Object> subList(final int fromIndex, final int toIndex) {
+        if(fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex);
+        }
+        return new AbstractList<Object>() {
+            private int size = toIndex - fromIndex;
+            
+            private void check(int index, int limit) {
+                if(index < 0 || index >= limit) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+            }
+            
+            public int size() {
+                return size;
+            }
+            
+            public Object get(int index) {
+                check(index, size);
+                return CachedJsonArray.this.get(fromIndex + index);
+            }
+            
+            public Object set(int index, Object element) {
+                check(index, size);
+                return CachedJsonArray.this.set(fromIndex + index, element);
+            }
+            
+            public void add(int index, Object element) {
+                check(index, size + 1);
+                CachedJsonArray.this.add(fromIndex + index, element);
+                size++;
+                modCount++;
+            }
+            
+            public Object remove(int index) {
+                check(index, size);
+                Object old = CachedJsonArray.this.remove(fromIndex + index);
+                size--;
+                modCount++;
+                return old;
+            }
+            
+            protected void removeRange(int from, int to) {
+                CachedJsonArray.this.removeRange(fromIndex + from, fromIndex + to);
+                size -= to - from;
+                modCount++;
+            }
+        };
+    }
+    
+    public Object clone() {
+        CachedJsonArray copy = (CachedJsonArray)super.clone();
+        copy.cache = new EncodedCache(copy);
+        copy.linkAll();
+        return copy;
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        cache = new EncodedCache(this);
+        linkAll();
+    }
+}
@@ -0,0 +1,323 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Writer;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A JSON object which keeps its encoding from one encode to the next, for
+ * trees which are encoded many times and changed little in between. Each
+ * change to the object, through its own methods or through its views,
+ * clears its encoding and those of the cached objects and arrays holding
+ * it, so the next encode walks only the changed path and copies the
+ * encoding of everything else as it is.
+ * <br>
+ * <br>
+ * Only the compact encoding is kept, as UTF-8 for a {@link Utf8JsonWriter}
+ * and as a String for any other writer; pretty printing walks the object
+ * as usual. Objects and arrays held by this object should be cached too,
+ * as changes to any other mutable value are not noticed. A value held
+ * by a cached object refers back to it until it is removed.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see CachedJsonArray
+ * @see JsonObject#cached(Object)
+ */
+public final class CachedJsonObject extends JsonObject {
+    private static final long serialVersionUID = 1L;
+    
+    transient EncodedCache cache = new EncodedCache(this);
+    
+    /**
+     * Initializes an empty object.
+     */
+    public CachedJsonObject() {
+    }
+    
+    /**
+     * Initializes an object holding the entries of the given map.
+     * 
+     * @param map The initial entries.
+     * @throws NullPointerException If the map is null.
+     */
+    public CachedJsonObject(Map<?, ?> map) {
+        putAll(map);
+    }
+    
+    // Moves the link from the replaced value to the new one, and clears
+    // the encoding of this object and of those holding it.
+    private void changed(Object old, Object value) {
+        if(old != value) {
+            cache.unlink(old);
+            cache.link(value);
+        }
+        cache.invalidate();
+    }
+    
+    public void writeJson(Writer out) throws IOException {
+        cache.write(out);
+    }
+    
+    public Object put(Object key, Object value) {
+        Object old = super.put(key, value);
+        changed(old, value);
+        return old;
+    }
+    
+    public void putAll(Map<? extends Object, ? extends Object> m) {
+        for(Map.Entry<? extends Object, ? extends Object> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    public Object remove(Object key) {
+        boolean present = containsKey(key);
+        Object old = super.remove(key);
+        if(present) {
+            changed(old, null);
+        }
+        return old;
+    }
+    
+    public boolean remove(Object key, Object value) {
+        Object old = super.get(key);
+        if(!super.remove(key, value)) {
+            return false;
+        }
+        changed(old, null);
+        return true;
+    }
+    
+    public void clear() {
+        for(Object value : super.values()) {
+            cache.unlink(value);
+        }
+        super.clear();
+        cache.invalidate();
+    }
+    
+    public Object putIfAbsent(Object key, Object value) {
+        Object old = super.putIfAbsent(key, value);
+        if(old == null) {
+            changed(null, value);
+        }
+        return old;
+    }
+    
+    public boolean replace(Object key, Object oldValue, Object newValue) {
+        Object old = super.get(key);
+        if(!super.replace(key, oldValue, newValue)) {
+            return false;
+        }
+        changed(old, newValue);
+        return true;
+    }
+    
+    public Object replace(Object key, Object value) {
+        boolean present = containsKey(key);
+        Object old = super.replace(key, value);
+        if(present) {
+            changed(old, value);
+        }
+        return old;
+    }
+    
+    public Object computeIfAbsent(Object key, Function<? super Object, ? extends Object> mappingFunction) {
+        Object old = super.get(key);
+        Object value = super.computeIfAbsent(key, mappingFunction);
+        changed(old, value);
+        return value;
+    }
+    
+    public Object computeIfPresent(Object key,
+            BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        Object old = super.get(key);
+        Object value = super.computeIfPresent(key, remappingFunction);
+        changed(old, value);
+        return value;
+    }
+    
+    public Object compute(Object key, BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        Object old = super.get(key);
+        Object value = super.compute(key, remappingFunction);
+        changed(old, value);
+        return value;
+    }
+    
+    public Object merge(Object key, Object value,
+            BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        Object old = super.get(key);
+        Object result = super.merge(key, value, remappingFunction);
+        changed(old, result);
+        return result;
+    }
+    
+    public void replaceAll(BiFunction<? super Object, ? super Object, ? extends Object> function) {
+        for(Object value : super.values()) {
+            cache.unlink(value);
+        }
+        try {
+            super.replaceAll(function);
+        } finally {
+            for(Object value : super.values()) {
+                cache.link(value);
+            }
+            cache.invalidate();
+        }
+    }
+    
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        final Set<Map.Entry<Object, Object>> entries = super.entrySet();
+        return new AbstractSet<Map.Entry<Object, Object>>() {
+            public int size() {
+                return entries.size();
+            }
+            
+            public boolean contains(Object o) {
+                return entries.contains(o);
+            }
+            
+            public void clear() {
+                CachedJsonObject.this.clear();
+            }
+            
+            public Iterator<Map.Entry<Object, Object>> iterator() {
+                return new Guard<Map.Entry<Object, Object>>(entries.iterator()) {
+                    public Map.Entry<Object, Object> next() {
+                        final Map.Entry<Object, Object> entry = advance();
+                        return new Map.Entry<Object, Object>() {
+                            public Object getKey() {
+                                return entry.getKey();
+                            }
+                            
+                            public Object getValue() {
+                                return entry.getValue();
+                            }
+                            
+                            public Object setValue(Object value) {
+                                Object old = entry.setValue(value);
+                                changed(old, value);
+                                return old;
+                            }
+                            
+                            public boolean equals(Object o) {
+                                return entry.equals(o);
+                            }
+                            
+                            public int hashCode() {
+                                return entry.hashCode();
+                            }
+                            
+                            public String toString() {
+                                return entry.toString();
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+    
+    public Set<Object> keySet() {
+        final Set<Map.Entry<Object, Object>> entries = super.entrySet();
+        return new AbstractSet<Object>() {
+            public int size() {
+                return entries.size();
+            }
+            
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+            
+            public void clear() {
+                CachedJsonObject.this.clear();
+            }
+            
+            public Iterator<Object> iterator() {
+                return new Guard<Object>(entries.iterator()) {
+                    public Object next() {
+                        return advance().getKey();
+                    }
+                };
+            }
+        };
+    }
+    
+    public Collection<Object> values() {
+        final Set<Map.Entry<Object, Object>> entries = super.entrySet();
+        return new AbstractCollection<Object>() {
+            public int size() {
+                return entries.size();
+            }
+            
+            public boolean contains(Object o) {
+                return containsValue(o);
+            }
+            
+            public void clear() {
+                CachedJsonObject.this.clear();
+            }
+            
+            public Iterator<Object> iterator() {
+                return new Guard<Object>(entries.iterator()) {
+                    public Object next() {
+                        return advance().getValue();
+                    }
+                };
+            }
+        };
+    }
+    
+    public Object clone() {
+        CachedJsonObject copy = (CachedJsonObject)super.clone();
+        copy.relink();
+        return copy;
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        relink();
+    }
+    
+    // Starts a new cache linked to every value, for a copy of this object.
+    private void relink() {
+        cache = new EncodedCache(this);
+        for(Object value : super.values()) {
+            cache.link(value);
+        }
+    }
+    
+    // Iterates over the entries of the map, clearing the cache on removal.
+    private abstract class Guard<E> implements Iterator<E> {
+        private final Iterator<Map.Entry<Object, Object>> entries;
+        private Map.Entry<Object, Object> last;
+        
+        Guard(Iterator<Map.Entry<Object, Object>> entries) {
+            this.entries = entries;
+        }
+        
+        public boolean hasNext() {
+            return entries.hasNext();
+        }
+        
+        final Map.Entry<Object, Object> advance() {
+            return last = entries.next();
+        }
+        
+        public void remove() {
+            Object old = last != null ? last.getValue() : null;
+            entries.remove();
+            changed(old, null);
+            last = null;
+        }
+    }
+}
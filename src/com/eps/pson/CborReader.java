@@ -0,0 +1,376 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Internal
+// Decodes CBOR (RFC 8949) from a heap or direct buffer, read in place with
+// absolute gets, into the same values JsonParser returns: JsonObject,
+// JsonArray, String, Long, Double, Boolean and null, with BigInteger for
+// integers beyond a long, BigDecimal for decimal fractions and bigfloats,
+// and JsonLongArray or JsonDoubleArray for arrays of only integers or only
+// floats. Byte strings are decoded to byte[], as CborWriter writes them, and
+// other tags are dropped, leaving the values they wrap.
+//
+// Definite and indefinite lengths are both accepted. Lengths are checked
+// against the input left before anything is allocated for them, so a
+// malformed head cannot make the reader allocate more than the input holds.
+final class CborReader {
+    private static final double TWO_TO_MINUS_24 = 1.0 / (1 << 24);
+    
+    private final ByteBuffer buf;
+    // Bounds of the input; positions in errors are counted from its start.
+    private final int base;
+    private final int limit;
+    private int pos;
+    // Shared instances for map keys, or null for none.
+    private final KeyCache keys;
+    // Copy of text held in a direct buffer, reused from one string to the next.
+    private byte[] scratch;
+    
+    private CborReader(ByteBuffer buf, KeyCache keys) {
+        this.buf = buf;
+        this.base = this.pos = buf.position();
+        this.limit = buf.limit();
+        this.keys = keys;
+    }
+    
+    static Object decode(ByteBuffer cbor, KeyCache keys) throws IOException {
+        CborReader reader = new CborReader(cbor, keys);
+        if(reader.pos == reader.limit) {
+            return null;
+        }
+        return reader.decodeValue();
+    }
+    
+    private Object decodeValue() throws IOException {
+        int initial = readByte();
+        int major = initial & 0xE0;
+        int info = initial & 0x1F;
+        switch(major) {
+            case CborWriter.UNSIGNED: {
+                long value = readArgument(info);
+                return value >= 0 ? (Object)Long.valueOf(value) : unsigned(value);
+            }
+            case CborWriter.NEGATIVE: {
+                long value = readArgument(info);
+                return value >= 0 ? (Object)Long.valueOf(~value) : unsigned(value).not();
+            }
+            case CborWriter.BYTES: return readBytes(info);
+            case CborWriter.TEXT: return readText(info, false);
+            case CborWriter.ARRAY: return decodeArray(info);
+            case CborWriter.MAP: return decodeObject(info);
+            case CborWriter.TAG: return decodeTagged(readArgument(info));
+            default: return decodeSimple(initial);
+        }
+    }
+    
+    private Object decodeSimple(int initial) throws IOException {
+        switch(initial) {
+            case CborWriter.FALSE: return Boolean.FALSE;
+            case CborWriter.TRUE: return Boolean.TRUE;
+            case CborWriter.NULL:
+            case CborWriter.UNDEFINED: return null;
+            case CborWriter.HALF: return Double.valueOf(half(readUnsigned(2)));
+            case CborWriter.FLOAT: return Double.valueOf(Float.intBitsToFloat((int)readUnsigned(4)));
+            case CborWriter.DOUBLE: return Double.valueOf(Double.longBitsToDouble(readUnsigned(8)));
+            default: throw unexpected(initial, pos - 1);
+        }
+    }
+    
+    private Object decodeTagged(long tag) throws IOException {
+        if(tag == CborWriter.TAG_POSITIVE_BIGNUM || tag == CborWriter.TAG_NEGATIVE_BIGNUM) {
+            int start = pos;
+            Object magnitude = decodeValue();
+            if(!(magnitude instanceof byte[])) {
+                throw new IOException("Expected byte string at " + (start - base));
+            }
+            BigInteger value = new BigInteger(1, (byte[])magnitude);
+            if(tag == CborWriter.TAG_NEGATIVE_BIGNUM) {
+                value = value.not();
+            }
+            return value.bitLength() < 64 ? (Object)Long.valueOf(value.longValue()) : value;
+        } else if(tag == CborWriter.TAG_DECIMAL_FRACTION || tag == CborWriter.TAG_BIGFLOAT) {
+            int start = pos;
+            Object pair = decodeValue();
+            if(!(pair instanceof JsonArray) || ((JsonArray)pair).size() != 2
+                    || !(((JsonArray)pair).get(0) instanceof Long) || !isInteger(((JsonArray)pair).get(1))) {
+                throw new IOException("Expected exponent and mantissa at " + (start - base));
+            }
+            long exponent = ((Long)((JsonArray)pair).get(0)).longValue();
+            Object mantissa = ((JsonArray)pair).get(1);
+            BigDecimal value = new BigDecimal(mantissa instanceof BigInteger
+                    ? (BigInteger)mantissa : BigInteger.valueOf(((Long)mantissa).longValue()));
+            if(exponent < Integer.MIN_VALUE + 1 || exponent > Integer.MAX_VALUE) {
+                throw new IOException("Exponent out of range at " + (start - base));
+            }
+            if(tag == CborWriter.TAG_DECIMAL_FRACTION) {
+                return value.scaleByPowerOfTen((int)exponent);
+            }
+            // Multiplying by 2^-k is multiplying by 5^k and moving the point k places.
+            int k = (int)Math.abs(exponent);
+            if(k > 0xFFFF) {
+                throw new IOException("Exponent out of range at " + (start - base));
+            }
+            return exponent >= 0
+                    ? new BigDecimal(value.toBigInteger().shiftLeft(k))
+                    : value.multiply(new BigDecimal(BigInteger.valueOf(5).pow(k))).movePointLeft(k);
+        }
+        return decodeValue();
+    }
+    
+    private static boolean isInteger(Object value) {
+        return value instanceof Long || value instanceof BigInteger;
+    }
+    
+    private JsonArray decodeArray(int info) throws IOException {
+        if(info == 31) {
+            JsonArray list = new JsonArray();
+            while(!atBreak()) {
+                list.add(decodeValue());
+            }
+            pos++;
+            return list;
+        }
+        int length = readLength(info);
+        if(length == 0) {
+            return new JsonArray();
+        }
+        int initial = peekByte();
+        if(initial < CborWriter.BYTES) {
+            return decodeLongs(length);
+        } else if(initial == CborWriter.FLOAT || initial == CborWriter.DOUBLE || initial == CborWriter.HALF) {
+            return decodeDoubles(length);
+        }
+        JsonArray list = new JsonArray(length);
+        for(int i = 0; i < length; i++) {
+            list.add(decodeValue());
+        }
+        return list;
+    }
+    
+    // Decodes an array starting with an integer into a long[] while its
+    // elements are integers which fit a long, boxing them into a JsonArray
+    // to continue with if one is not, as JsonParser does.
+    private JsonArray decodeLongs(int length) throws IOException {
+        long[] longs = new long[length];
+        for(int i = 0; i < length; i++) {
+            int start = pos;
+            int initial = peekByte();
+            if(initial < CborWriter.BYTES) {
+                pos++;
+                long value = readArgument(initial & 0x1F);
+                if(value >= 0) {
+                    longs[i] = initial < CborWriter.NEGATIVE ? value : ~value;
+                    continue;
+                }
+                // Outside the range of a long; decode it again as a BigInteger.
+                pos = start;
+            }
+            JsonArray list = new JsonArray(length);
+            for(int k = 0; k < i; k++) {
+                list.add(Long.valueOf(longs[k]));
+            }
+            for(; i < length; i++) {
+                list.add(decodeValue());
+            }
+            return list;
+        }
+        return new JsonLongArray(longs, length);
+    }
+    
+    private JsonArray decodeDoubles(int length) throws IOException {
+        double[] doubles = new double[length];
+        for(int i = 0; i < length; i++) {
+            int initial = peekByte();
+            if(initial == CborWriter.FLOAT || initial == CborWriter.DOUBLE || initial == CborWriter.HALF) {
+                doubles[i] = ((Double)decodeValue()).doubleValue();
+                continue;
+            }
+            JsonArray list = new JsonArray(length);
+            for(int k = 0; k < i; k++) {
+                list.add(Double.valueOf(doubles[k]));
+            }
+            for(; i < length; i++) {
+                list.add(decodeValue());
+            }
+            return list;
+        }
+        return new JsonDoubleArray(doubles, length);
+    }
+    
+    private JsonObject decodeObject(int info) throws IOException {
+        JsonObject map = new CompactJsonObject();
+        if(info == 31) {
+            while(!atBreak()) {
+                map.put(decodeKey(), decodeValue());
+            }
+            pos++;
+            return map;
+        }
+        int length = readLength(info);
+        for(int i = 0; i < length; i++) {
+            map.put(decodeKey(), decodeValue());
+        }
+        return map;
+    }
+    
+    // Decodes a map key, sharing instances of text keys through the cache.
+    private Object decodeKey() throws IOException {
+        int initial = peekByte();
+        if((initial & 0xE0) == CborWriter.TEXT) {
+            pos++;
+            return readText(initial & 0x1F, true);
+        }
+        return decodeValue();
+    }
+    
+    private String readText(int info, boolean key) throws IOException {
+        if(info == 31) {
+            return new String(readChunks(CborWriter.TEXT), StandardCharsets.UTF_8);
+        }
+        int length = readLength(info);
+        int start = pos;
+        pos += length;
+        if(key && keys != null && length <= KeyCache.MAX_KEY_LENGTH && isAscii(start, pos)) {
+            return keys.get(buf, start, pos);
+        }
+        if(buf.hasArray()) {
+            return new String(buf.array(), buf.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        byte[] scratch = this.scratch;
+        if(scratch == null || scratch.length < length) {
+            scratch = this.scratch = new byte[Math.max(length, 64)];
+        }
+        for(int i = 0; i < length; i++) {
+            scratch[i] = buf.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    private boolean isAscii(int start, int end) {
+        for(int i = start; i < end; i++) {
+            if(buf.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private byte[] readBytes(int info) throws IOException {
+        if(info == 31) {
+            return readChunks(CborWriter.BYTES);
+        }
+        int length = readLength(info);
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++) {
+            bytes[i] = buf.get(pos + i);
+        }
+        pos += length;
+        return bytes;
+    }
+    
+    // Joins the definite-length chunks of an indefinite-length string.
+    private byte[] readChunks(int major) throws IOException {
+        byte[] bytes = new byte[0];
+        int count = 0;
+        while(!atBreak()) {
+            int initial = readByte();
+            if((initial & 0xE0) != major || (initial & 0x1F) == 31) {
+                throw unexpected(initial, pos - 1);
+            }
+            int length = readLength(initial & 0x1F);
+            if(bytes.length - count < length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, count + length));
+            }
+            for(int i = 0; i < length; i++) {
+                bytes[count++] = buf.get(pos + i);
+            }
+            pos += length;
+        }
+        pos++;
+        return count == bytes.length ? bytes : Arrays.copyOf(bytes, count);
+    }
+    
+    private boolean atBreak() throws IOException {
+        return peekByte() == CborWriter.BREAK;
+    }
+    
+    // Reads the argument of the item whose initial byte held the given
+    // additional information. Arguments of eight bytes are unsigned, and
+    // come back negative if they exceed a long.
+    private long readArgument(int info) throws IOException {
+        if(info < 24) {
+            return info;
+        }
+        switch(info) {
+            case 24: return readUnsigned(1);
+            case 25: return readUnsigned(2);
+            case 26: return readUnsigned(4);
+            case 27: return readUnsigned(8);
+            default: throw unexpected(buf.get(pos - 1) & 0xFF, pos - 1);
+        }
+    }
+    
+    // Reads the length of a string, array or map, which must not exceed
+    // the input left, as each element takes at least a byte.
+    private int readLength(int info) throws IOException {
+        int start = pos - 1;
+        long length = readArgument(info);
+        if(length < 0 || length > limit - pos) {
+            throw new IOException("Length " + Long.toUnsignedString(length) + " exceeds the input at " + (start - base));
+        }
+        return (int)length;
+    }
+    
+    private long readUnsigned(int length) throws IOException {
+        if(limit - pos < length) {
+            throw new IOException("Expected value, reached end of input");
+        }
+        long value = 0;
+        for(int i = 0; i < length; i++) {
+            value = (value << 8) | (buf.get(pos++) & 0xFF);
+        }
+        return value;
+    }
+    
+    private int readByte() throws IOException {
+        if(pos == limit) {
+            throw new IOException("Expected value, reached end of input");
+        }
+        return buf.get(pos++) & 0xFF;
+    }
+    
+    private int peekByte() throws IOException {
+        if(pos == limit) {
+            throw new IOException("Expected value, reached end of input");
+        }
+        return buf.get(pos) & 0xFF;
+    }
+    
+    private static BigInteger unsigned(long value) {
+        return new BigInteger(Long.toUnsignedString(value));
+    }
+    
+    private static double half(long bits) {
+        int exponent = (int)(bits >> 10) & 0x1F;
+        int mantissa = (int)bits & 0x3FF;
+        double value;
+        if(exponent == 0) {
+            value = mantissa * TWO_TO_MINUS_24;
+        } else if(exponent != 31) {
+            value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+        } else {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        }
+        return (bits & 0x8000) != 0 ? -value : value;
+    }
+    
+    private IOException unexpected(int initial, int at) {
+        return new IOException("Unexpected initial byte 0x" + Integer.toHexString(initial) + " at " + (at - base));
+    }
+}
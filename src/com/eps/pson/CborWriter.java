@@ -0,0 +1,398 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Internal
+// Encodes values as CBOR (RFC 8949) into a byte buffer, flushing it to a
+// stream as it fills up, or growing it to hold the whole output if there is
+// none. Values are taken from the same model JSON is encoded from: maps
+// become CBOR maps with text keys, lists become arrays, iterators and
+// streams become arrays of indefinite length, and numbers keep their type,
+// so that CborReader returns what JsonParser would have for the same value
+// encoded as JSON. Integers take the shortest head which holds them, and
+// doubles which a float holds exactly are written as floats.
+//
+// Other JsonSerializable types write themselves as JSON text, which is
+// parsed back and encoded like any other value, so they need not know the
+// format. Unlike JSON, doubles which are not finite are kept, and byte
+// arrays are written as byte strings.
+final class CborWriter {
+    private static final int BUFFER_SIZE = 8192;
+    
+    // Major types, shifted into the high bits of the initial byte.
+    static final int UNSIGNED = 0;
+    static final int NEGATIVE = 1 << 5;
+    static final int BYTES = 2 << 5;
+    static final int TEXT = 3 << 5;
+    static final int ARRAY = 4 << 5;
+    static final int MAP = 5 << 5;
+    static final int TAG = 6 << 5;
+    static final int SIMPLE = 7 << 5;
+    
+    static final int FALSE = SIMPLE | 20;
+    static final int TRUE = SIMPLE | 21;
+    static final int NULL = SIMPLE | 22;
+    static final int UNDEFINED = SIMPLE | 23;
+    static final int HALF = SIMPLE | 25;
+    static final int FLOAT = SIMPLE | 26;
+    static final int DOUBLE = SIMPLE | 27;
+    static final int BREAK = SIMPLE | 31;
+    
+    // Tags for numbers which do not fit the integer and float types.
+    static final int TAG_POSITIVE_BIGNUM = 2;
+    static final int TAG_NEGATIVE_BIGNUM = 3;
+    static final int TAG_DECIMAL_FRACTION = 4;
+    static final int TAG_BIGFLOAT = 5;
+    
+    private final OutputStream out;
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int count;
+    // Whether the buffer was written to the stream since it was last flushed.
+    private boolean drained;
+    
+    CborWriter(OutputStream out) {
+        this.out = out;
+    }
+    
+    static byte[] encode(Object value) throws IOException {
+        CborWriter writer = new CborWriter(null);
+        writer.writeValue(value);
+        return writer.toByteArray();
+    }
+    
+    static void encode(OutputStream out, Object value) throws IOException {
+        CborWriter writer = new CborWriter(out);
+        writer.writeValue(value);
+        writer.flush();
+    }
+    
+    void writeValue(Object value) throws IOException {
+        if(value == null) {
+            writeByte(NULL);
+        } else if(value instanceof String) {
+            writeText((String)value);
+        } else if(value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            writeLong(((Number)value).longValue());
+        } else if(value instanceof Double) {
+            writeDouble(((Double)value).doubleValue());
+        } else if(value instanceof Float) {
+            writeFloat(((Float)value).floatValue());
+        } else if(value instanceof Boolean) {
+            writeByte(((Boolean)value).booleanValue() ? TRUE : FALSE);
+        } else if(value instanceof BigInteger) {
+            writeBigInteger((BigInteger)value);
+        } else if(value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal)value;
+            writeHead(TAG, TAG_DECIMAL_FRACTION);
+            writeHead(ARRAY, 2);
+            writeLong(-(long)decimal.scale());
+            writeBigInteger(decimal.unscaledValue());
+        } else if(value instanceof Number) {
+            writeNumber((Number)value);
+        } else if(value instanceof JsonLongArray) {
+            JsonLongArray array = (JsonLongArray)value;
+            int size = array.size();
+            writeHead(ARRAY, size);
+            for(int i = 0; i < size; i++) {
+                writeLong(array.getLong(i));
+            }
+        } else if(value instanceof JsonDoubleArray) {
+            JsonDoubleArray array = (JsonDoubleArray)value;
+            int size = array.size();
+            writeHead(ARRAY, size);
+            for(int i = 0; i < size; i++) {
+                writeDouble(array.getDouble(i));
+            }
+        } else if(value instanceof PulledJsonObject) {
+            // A map of unknown length, ended by a break.
+            Iterator<? extends Map.Entry<?, ?>> iter = ((PulledJsonObject)value).take();
+            writeByte(MAP | 31);
+            while(iter.hasNext()) {
+                Map.Entry<?, ?> entry = iter.next();
+                writeText(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue());
+                flushDrained();
+            }
+            writeByte(BREAK);
+        } else if(value instanceof JsonSerializable && !isModel(value)) {
+            // Parse what the type writes as JSON, and encode that instead.
+            JsonWriter text = new JsonWriter();
+            ((JsonSerializable)value).writeJson(text);
+            writeValue(JsonParser.decode(text.toString(), null));
+        } else if(value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>)value;
+            writeHead(MAP, map.size());
+            for(Map.Entry<?, ?> entry : map.entrySet()) {
+                writeText(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue());
+            }
+        } else if(value instanceof List) {
+            List<?> list = (List<?>)value;
+            writeHead(ARRAY, list.size());
+            Iterator<?> iter = list.iterator();
+            while(iter.hasNext()) {
+                writeValue(iter.next());
+            }
+        } else if(value instanceof Supplier) {
+            writeValue(((Supplier<?>)value).get());
+        } else if(JsonArray.isLazy(value)) {
+            // An array of unknown length, ended by a break.
+            Iterator<?> iter = JsonArray.elements(value);
+            writeByte(ARRAY | 31);
+            while(iter.hasNext()) {
+                writeValue(iter.next());
+                flushDrained();
+            }
+            writeByte(BREAK);
+        } else if(value instanceof byte[]) {
+            byte[] bytes = (byte[])value;
+            writeHead(BYTES, bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        } else {
+            writeText(value.toString());
+        }
+    }
+    
+    // Whether the value is one of the maps and lists decoding creates, which
+    // are encoded by their contents rather than through writeJson().
+    private static boolean isModel(Object value) {
+        Class<?> type = value.getClass();
+        return type == JsonObject.class || type == JsonArray.class
+                || value instanceof DeferredJsonObject || value instanceof DeferredJsonArray
+                || value instanceof CachedJsonObject || value instanceof CachedJsonArray;
+    }
+    
+    void writeLong(long value) throws IOException {
+        if(value >= 0) {
+            writeHead(UNSIGNED, value);
+        } else {
+            writeHead(NEGATIVE, ~value);
+        }
+    }
+    
+    void writeDouble(double value) throws IOException {
+        float f = (float)value;
+        if(f == value || Double.isNaN(value)) {
+            writeFloat(f);
+            return;
+        }
+        ensure(9);
+        final byte[] buf = this.buf;
+        buf[count++] = (byte)DOUBLE;
+        long bits = Double.doubleToLongBits(value);
+        for(int shift = 56; shift >= 0; shift -= 8) {
+            buf[count++] = (byte)(bits >>> shift);
+        }
+    }
+    
+    private void writeFloat(float value) throws IOException {
+        ensure(5);
+        final byte[] buf = this.buf;
+        int bits = Float.floatToIntBits(value);
+        buf[count++] = (byte)FLOAT;
+        buf[count++] = (byte)(bits >>> 24);
+        buf[count++] = (byte)(bits >>> 16);
+        buf[count++] = (byte)(bits >>> 8);
+        buf[count++] = (byte)bits;
+    }
+    
+    // Writes integers of up to 64 bits as such, and larger ones as bignums.
+    private void writeBigInteger(BigInteger value) throws IOException {
+        if(value.bitLength() < 64) {
+            writeLong(value.longValue());
+            return;
+        }
+        int major = UNSIGNED;
+        int tag = TAG_POSITIVE_BIGNUM;
+        if(value.signum() < 0) {
+            value = value.not();
+            major = NEGATIVE;
+            tag = TAG_NEGATIVE_BIGNUM;
+        }
+        if(value.bitLength() <= 64) {
+            writeHead(major, value.longValue());
+            return;
+        }
+        byte[] magnitude = value.toByteArray();
+        int offset = magnitude[0] == 0 ? 1 : 0;
+        writeHead(TAG, tag);
+        writeHead(BYTES, magnitude.length - offset);
+        writeBytes(magnitude, offset, magnitude.length - offset);
+    }
+    
+    // Encodes any other number as JSON would, then decoding its text.
+    private void writeNumber(Number value) throws IOException {
+        Object number;
+        try {
+            number = JsonParser.decode(value.toString(), null);
+        } catch(IOException e) {
+            number = null;
+        }
+        if(number instanceof Number) {
+            writeValue(number);
+        } else {
+            writeText(value.toString());
+        }
+    }
+    
+    // Writes the initial byte of an item, and its argument in the fewest
+    // bytes which hold it. The argument is unsigned.
+    void writeHead(int major, long argument) throws IOException {
+        ensure(9);
+        final byte[] buf = this.buf;
+        if(argument >= 0 && argument < 24) {
+            buf[count++] = (byte)(major | (int)argument);
+        } else if(argument >= 0 && argument <= 0xFF) {
+            buf[count++] = (byte)(major | 24);
+            buf[count++] = (byte)argument;
+        } else if(argument >= 0 && argument <= 0xFFFF) {
+            buf[count++] = (byte)(major | 25);
+            buf[count++] = (byte)(argument >>> 8);
+            buf[count++] = (byte)argument;
+        } else if(argument >= 0 && argument <= 0xFFFFFFFFL) {
+            buf[count++] = (byte)(major | 26);
+            for(int shift = 24; shift >= 0; shift -= 8) {
+                buf[count++] = (byte)(argument >>> shift);
+            }
+        } else {
+            buf[count++] = (byte)(major | 27);
+            for(int shift = 56; shift >= 0; shift -= 8) {
+                buf[count++] = (byte)(argument >>> shift);
+            }
+        }
+    }
+    
+    // Writes a text string, encoding it as UTF-8 straight into the buffer.
+    // Unpaired surrogates are written as '?', as Utf8JsonWriter does.
+    void writeText(String value) throws IOException {
+        int len = value.length();
+        int length = len;
+        for(int i = 0; i < len; i++) {
+            char ch = value.charAt(i);
+            if(ch >= 0x80) {
+                length = utf8Length(value, i, length);
+                break;
+            }
+        }
+        writeHead(TEXT, length);
+        byte[] buf = this.buf;
+        for(int i = 0; i < len; i++) {
+            if(buf.length - count < 4) {
+                ensure(4);
+                buf = this.buf;
+            }
+            char ch = value.charAt(i);
+            if(ch < 0x80) {
+                buf[count++] = (byte)ch;
+            } else if(ch < 0x800) {
+                buf[count++] = (byte)(0xC0 | (ch >> 6));
+                buf[count++] = (byte)(0x80 | (ch & 0x3F));
+            } else if(Character.isSurrogate(ch)) {
+                if(Character.isHighSurrogate(ch) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(ch, value.charAt(++i));
+                    buf[count++] = (byte)(0xF0 | (cp >> 18));
+                    buf[count++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                    buf[count++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                    buf[count++] = (byte)(0x80 | (cp & 0x3F));
+                } else {
+                    buf[count++] = '?';
+                }
+            } else {
+                buf[count++] = (byte)(0xE0 | (ch >> 12));
+                buf[count++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+                buf[count++] = (byte)(0x80 | (ch & 0x3F));
+            }
+        }
+    }
+    
+    // Counts the UTF-8 bytes of a string, given the count up to the first
+    // char outside ASCII, at the given index, as if each char took one.
+    private static int utf8Length(String value, int start, int length) {
+        int len = value.length();
+        for(int i = start; i < len; i++) {
+            char ch = value.charAt(i);
+            if(ch >= 0x800) {
+                if(!Character.isSurrogate(ch)) {
+                    length += 2;
+                } else if(Character.isHighSurrogate(ch) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // Four bytes for the two chars of the pair.
+                    length += 2;
+                    i++;
+                }
+            } else if(ch >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+    
+    void writeByte(int b) throws IOException {
+        if(count == buf.length) {
+            ensure(1);
+        }
+        buf[count++] = (byte)b;
+    }
+    
+    void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if(length > buf.length - count && out != null) {
+            drain();
+            if(length > buf.length) {
+                out.write(bytes, offset, length);
+                return;
+            }
+        }
+        ensure(length);
+        System.arraycopy(bytes, offset, buf, count, length);
+        count += length;
+    }
+    
+    private void ensure(int length) throws IOException {
+        if(buf.length - count >= length) {
+            return;
+        }
+        if(out != null) {
+            drain();
+        }
+        if(buf.length - count < length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + length));
+        }
+    }
+    
+    private void drain() throws IOException {
+        if(count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+            drained = true;
+        }
+    }
+    
+    // Flushes the stream if a buffer's worth was written to it since the
+    // last flush, as Utf8JsonWriter does for lazy sources.
+    private void flushDrained() throws IOException {
+        if(drained) {
+            drained = false;
+            out.flush();
+        }
+    }
+    
+    void flush() throws IOException {
+        if(out != null) {
+            drain();
+            drained = false;
+            out.flush();
+        }
+    }
+    
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+}
@@ -0,0 +1,326 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// Internal
+// Tokenizer over a character buffer. The buffer either holds the whole input,
+// or is a fixed window refilled from a Reader. When refilling, everything from
+// the start of the current token is kept, so a token is always contiguous in
+// the buffer; the window only grows if a single token is larger than it.
+final class CharLexer extends JsonLexer {
+    private final Reader in;
+    private char[] buf;
+    private int pos;
+    private int limit;
+    private long discarded;
+    // Scratch space for strings with escapes, kept from one string to the next.
+    private char[] chars = new char[SCRATCH_SIZE];
+    
+    CharLexer(char[] buf, int offset, int length) {
+        this.in = null;
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+    
+    CharLexer(Reader in) {
+        this.in = in;
+        this.buf = new char[BUFFER_SIZE];
+    }
+    
+    // Starts over on the given in-memory input, keeping the scratch space.
+    void wrap(char[] buf, int offset, int length) {
+        clear();
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+        this.discarded = 0;
+        if(chars.length > Pool.MAX_RETAINED) {
+            chars = new char[SCRATCH_SIZE];
+        }
+    }
+    
+    // Clears the scratch space of the strings decoded since the last call.
+    void scrub() {
+        chars = scrub(chars);
+    }
+    
+    long position() {
+        return discarded + pos;
+    }
+    
+    void seek(long position) {
+        pos = (int)(position - discarded);
+    }
+    
+    boolean skipLineBreak() {
+        if(pos < limit && buf[pos] == '\n') {
+            pos++;
+            clear();
+            return true;
+        }
+        return false;
+    }
+    
+    String current() {
+        return pos < limit ? String.valueOf(buf[pos]) : null;
+    }
+    
+    // Reads more input, moving the unread part of the buffer to its start.
+    // Returns false once the input is exhausted.
+    private boolean fill() throws IOException {
+        if(in == null) {
+            return false;
+        }
+        if(pos > 0) {
+            int keep = limit - pos;
+            System.arraycopy(buf, pos, buf, 0, keep);
+            discarded += pos;
+            pos = 0;
+            limit = keep;
+        }
+        if(limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length << 1);
+        }
+        int n;
+        do {
+            n = in.read(buf, limit, buf.length - limit);
+        } while(n == 0);
+        if(n < 0) {
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+    
+    void advance(int length) {
+        pos += length;
+    }
+    
+    TokenType scan() throws IOException {
+        int i = pos;
+        while(true) {
+            final char[] buf = this.buf;
+            for(; i < limit; i++) {
+                char c = buf[i];
+                if(c != ' ' && (c != '\n' || lines) && c != '\r' && c != '\t') {
+                    break;
+                }
+            }
+            pos = i;
+            if(i < limit) {
+                break;
+            }
+            if(!fill()) {
+                return TokenType.NONE;
+            }
+            i = pos;
+        }
+        switch(buf[i]) {
+            case '{': return TokenType.BRACE_OPEN;
+            case '}': return TokenType.BRACE_CLOSE;
+            case '[': return TokenType.SQUARE_OPEN;
+            case ']': return TokenType.SQUARE_CLOSE;
+            case ',': return TokenType.COMMA;
+            case ':': return TokenType.COLON;
+            case '"': return TokenType.STRING;
+            case '0': case '1': case '2': case '3': case '4':
+            case '5': case '6': case '7': case '8': case '9':
+            case '-': return TokenType.NUMBER;
+            case 't': return matches("true") ? TokenType.TRUE : TokenType.NONE;
+            case 'f': return matches("false") ? TokenType.FALSE : TokenType.NONE;
+            case 'n': return matches("null") ? TokenType.NULL : TokenType.NONE;
+        }
+        return TokenType.NONE;
+    }
+    
+    private boolean matches(String literal) throws IOException {
+        int len = literal.length();
+        while(limit - pos < len) {
+            if(!fill()) {
+                return false;
+            }
+        }
+        for(int k = 1; k < len; k++) {
+            if(buf[pos + k] != literal.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    String decodeString() throws IOException {
+        final char[] buf = this.buf;
+        for(int i = pos + 1; i < limit; i++) {
+            char c = buf[i];
+            if(c == '"') {
+                String s = new String(buf, pos + 1, i - pos - 1);
+                pos = i + 1;
+                return s;
+            } else if(c == '\\') {
+                break;
+            }
+        }
+        return decodeEscaped();
+    }
+    
+    String decodeKey(KeyCache keys) throws IOException {
+        final char[] buf = this.buf;
+        for(int i = pos + 1; i < limit; i++) {
+            char c = buf[i];
+            if(c == '"') {
+                String s = keys.get(buf, pos + 1, i);
+                pos = i + 1;
+                return s;
+            } else if(c == '\\') {
+                break;
+            }
+        }
+        return decodeEscaped();
+    }
+    
+    // Slow path for strings with escapes, or which run past the end of
+    // the buffer.
+    private String decodeEscaped() throws IOException {
+        char[] s = chars;
+        int n = 0;
+        int i = pos + 1;
+        boolean complete = false;
+        while(true) {
+            final char[] buf = this.buf;
+            for(; i < limit; i++) {
+                if(n == s.length) {
+                    s = chars = Arrays.copyOf(s, n << 1);
+                }
+                char c = buf[i];
+                if(c == '"') {
+                    complete = true;
+                    break;
+                } else if(c == '\\') {
+                    if(i + 1 == limit) {
+                        break;
+                    }
+                    if(buf[i + 1] == 'u') {
+                        int u = unicode(buf, i);
+                        if(u < 0) {
+                            break;
+                        }
+                        s[n++] = (char)u;
+                        i += 5;
+                        continue;
+                    }
+                    c = buf[++i];
+                    switch(c) {
+                        case 'b': s[n++] = '\b'; break;
+                        case 'f': s[n++] = '\f'; break;
+                        case 'n': s[n++] = '\n'; break;
+                        case 'r': s[n++] = '\r'; break;
+                        case 't': s[n++] = '\t'; break;
+                        default: s[n++] = c; break;
+                    }
+                } else {
+                    s[n++] = c;
+                }
+            }
+            if(complete) {
+                break;
+            }
+            int offset = i - pos;
+            if(!fill()) {
+                pos = limit;
+                throw new IOException("String parsing incomplete");
+            }
+            i = pos + offset;
+        }
+        pos = i + 1;
+        return new String(s, 0, n);
+    }
+    
+    // Decodes the \\u escape whose backslash is at index i, or returns -1
+    // if the buffer ends before its last hex digit. Surrogate pairs need no
+    // joining, as each half is a char of its own.
+    private int unicode(char[] buf, int i) throws IOException {
+        int c = 0;
+        for(int k = i + 2; k < i + 6; k++) {
+            if(k == limit) {
+                return -1;
+            }
+            int digit = hexDigit(buf[k]);
+            if(digit < 0) {
+                throw invalidEscape(discarded + i);
+            }
+            c = (c << 4) | digit;
+        }
+        return c;
+    }
+    
+    boolean stringEquals(String value) throws IOException {
+        final char[] buf = this.buf;
+        int i = pos + 1;
+        int end = i + value.length();
+        if(end >= limit) {
+            return super.stringEquals(value);
+        }
+        for(int k = 0; i < end; i++, k++) {
+            char c = buf[i];
+            if(c == '\\') {
+                return super.stringEquals(value);
+            }
+            if(c != value.charAt(k) || c == '"') {
+                return false;
+            }
+        }
+        return buf[end] == '"';
+    }
+    
+    void skipString() throws IOException {
+        int i = pos + 1;
+        while(true) {
+            final char[] buf = this.buf;
+            for(; i < limit; i++) {
+                char c = buf[i];
+                if(c == '"') {
+                    pos = i + 1;
+                    return;
+                } else if(c == '\\') {
+                    if(i + 1 == limit) {
+                        break;
+                    }
+                    if(buf[i + 1] == 'u') {
+                        // Escapes are checked as when decoding, so that
+                        // skipped strings fail on the same input.
+                        if(unicode(buf, i) < 0) {
+                            break;
+                        }
+                        i += 5;
+                    } else {
+                        i++;
+                    }
+                }
+            }
+            int offset = i - pos;
+            if(!fill()) {
+                pos = limit;
+                throw new IOException("String parsing incomplete");
+            }
+            i = pos + offset;
+        }
+    }
+    
+    void scanNumber(NumberParser number) throws IOException {
+        int i = pos;
+        while(true) {
+            final char[] buf = this.buf;
+            while(i < limit && number.accept(buf[i])) {
+                i++;
+            }
+            pos = i;
+            if(i < limit || !fill()) {
+                return;
+            }
+            i = pos;
+        }
+    }
+}
@@ -0,0 +1,817 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Internal
+// Object returned by decoding. The entries are held in parallel arrays of
+// keys and values, in order of insertion, rather than as one LinkedHashMap
+// entry each: small objects are searched by a linear scan, and objects of
+// more than LINEAR entries through an open-addressing table of indices into
+// the arrays. A removed entry leaves a hole, marked by REMOVED in place of
+// its key, which the table still indexes; the holes are closed up only when
+// the arrays are next full, so that removing any number of entries costs
+// time in proportion to their number. Lookups, updates, removals, remapping,
+// iteration and encoding are served from the arrays; any other operation, such as clone(), copies
+// the entries into the map first, see DeferredJsonObject. Iterators and
+// entries taken before then carry on over the map.
+final class CompactJsonObject extends DeferredJsonObject {
+    private static final long serialVersionUID = 1L;
+    private static final Object[] EMPTY = new Object[0];
+    // Largest number of entries searched without the table.
+    private static final int LINEAR = 8;
+    // Key of a removed entry, which equals no other key.
+    private static final Object REMOVED = new Object();
+    
+    private Object[] keys;
+    private Object[] values;
+    // Number of entries, and of places in the arrays taken by entries or
+    // holes.
+    private int size;
+    private int used;
+    // Index plus one of the entry in each slot, 0 for an empty slot, sized
+    // to at least twice the capacity of the arrays; null while they hold no
+    // more than LINEAR places.
+    private int[] table;
+    // Count of structural changes, which fail iterators taken before them.
+    private int edits;
+    
+    CompactJsonObject() {
+        keys = EMPTY;
+        values = EMPTY;
+    }
+    
+    // Copies the keys and values alternating in the given range, as when
+    // putting them one after another.
+    CompactJsonObject(Object[] entries, int from, int to) {
+        int length = (to - from) >> 1;
+        keys = new Object[length];
+        values = new Object[length];
+        if(length > LINEAR) {
+            table = new int[tableSize(length)];
+        }
+        for(int i = from; i < to; i += 2) {
+            Object key = entries[i];
+            int k = find(key);
+            if(k < 0) {
+                append(key, entries[i + 1]);
+            } else {
+                values[k] = entries[i + 1];
+            }
+        }
+    }
+    
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+    
+    private static boolean equal(Object a, Object b) {
+        return a == b || a != null && a.equals(b);
+    }
+    
+    // Smallest power of two which is at least twice the given capacity.
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(Math.max(2 * capacity - 1, 1)) << 1;
+    }
+    
+    // Returns the index of the entry for the given key, or -1.
+    private int find(Object key) {
+        final Object[] keys = this.keys;
+        final int[] table = this.table;
+        if(table == null) {
+            for(int k = 0; k < used; k++) {
+                Object candidate = keys[k];
+                if(candidate == key || key != null && key.equals(candidate)) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+        int mask = table.length - 1;
+        for(int i = hash(key) & mask;; i = (i + 1) & mask) {
+            int slot = table[i];
+            if(slot == 0) {
+                return -1;
+            }
+            Object candidate = keys[slot - 1];
+            if(candidate == key || key != null && key.equals(candidate)) {
+                return slot - 1;
+            }
+        }
+    }
+    
+    // Adds an entry for a key which is not in the arrays.
+    private void append(Object key, Object value) {
+        if(used == keys.length) {
+            compact();
+        }
+        int k = used;
+        keys[k] = key;
+        values[k] = value;
+        used = k + 1;
+        size++;
+        if(table != null && table.length >= keys.length << 1) {
+            index(k);
+        } else if(used > LINEAR) {
+            reindex();
+        }
+    }
+    
+    // Makes room in full arrays, closing up the holes, into arrays twice
+    // as long unless holes took more than a quarter of them.
+    private void compact() {
+        int capacity = keys.length;
+        if(size >= capacity - (capacity >> 2)) {
+            capacity = Math.max(4, capacity << 1);
+        }
+        Object[] keys = capacity == this.keys.length ? this.keys : new Object[capacity];
+        Object[] values = capacity == this.values.length ? this.values : new Object[capacity];
+        int n = 0;
+        for(int k = 0; k < used; k++) {
+            if(this.keys[k] != REMOVED) {
+                keys[n] = this.keys[k];
+                values[n] = this.values[k];
+                n++;
+            }
+        }
+        Arrays.fill(keys, n, used, null);
+        Arrays.fill(values, n, used, null);
+        this.keys = keys;
+        this.values = values;
+        used = n;
+        if(table != null) {
+            if(used <= LINEAR) {
+                table = null;
+            } else {
+                reindex();
+            }
+        }
+    }
+    
+    // Enters the entry at index k into the table.
+    private void index(int k) {
+        final int[] table = this.table;
+        int mask = table.length - 1;
+        int i = hash(keys[k]) & mask;
+        while(table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = k + 1;
+    }
+    
+    // Builds the table again for the capacity of the arrays.
+    private void reindex() {
+        if(table == null || table.length < keys.length << 1) {
+            table = new int[tableSize(keys.length)];
+        } else {
+            Arrays.fill(table, 0);
+        }
+        for(int k = 0; k < used; k++) {
+            if(keys[k] != REMOVED) {
+                index(k);
+            }
+        }
+    }
+    
+    // Leaves a hole in place of the entry at index k.
+    private Object removeAt(int k) {
+        Object old = values[k];
+        keys[k] = REMOVED;
+        values[k] = null;
+        size--;
+        edits++;
+        return old;
+    }
+    
+    void load() {
+        for(int k = 0; k < used; k++) {
+            if(keys[k] != REMOVED) {
+                store(keys[k], values[k]);
+            }
+        }
+        keys = null;
+        values = null;
+        table = null;
+        size = 0;
+        used = 0;
+    }
+    
+    public int size() {
+        return isDeferred() ? size : super.size();
+    }
+    
+    public boolean isEmpty() {
+        return isDeferred() ? size == 0 : super.isEmpty();
+    }
+    
+    public Object get(Object key) {
+        if(!isDeferred()) {
+            return super.get(key);
+        }
+        int k = find(key);
+        return k < 0 ? null : values[k];
+    }
+    
+    public Object getOrDefault(Object key, Object defaultValue) {
+        if(!isDeferred()) {
+            return super.getOrDefault(key, defaultValue);
+        }
+        int k = find(key);
+        return k < 0 ? defaultValue : values[k];
+    }
+    
+    public boolean containsKey(Object key) {
+        if(!isDeferred()) {
+            return super.containsKey(key);
+        }
+        return find(key) >= 0;
+    }
+    
+    public boolean containsValue(Object value) {
+        if(!isDeferred()) {
+            return super.containsValue(value);
+        }
+        for(int k = 0; k < used; k++) {
+            if(equal(value, values[k]) && keys[k] != REMOVED) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public Object put(Object key, Object value) {
+        if(!isDeferred()) {
+            return super.put(key, value);
+        }
+        int k = find(key);
+        if(k >= 0) {
+            Object old = values[k];
+            values[k] = value;
+            return old;
+        }
+        append(key, value);
+        edits++;
+        return null;
+    }
+    
+    public Object putIfAbsent(Object key, Object value) {
+        if(!isDeferred()) {
+            return super.putIfAbsent(key, value);
+        }
+        int k = find(key);
+        if(k >= 0 && values[k] != null) {
+            return values[k];
+        }
+        return put(key, value);
+    }
+    
+    public Object replace(Object key, Object value) {
+        if(!isDeferred()) {
+            return super.replace(key, value);
+        }
+        int k = find(key);
+        if(k < 0) {
+            return null;
+        }
+        Object old = values[k];
+        values[k] = value;
+        return old;
+    }
+    
+    public boolean replace(Object key, Object oldValue, Object newValue) {
+        if(!isDeferred()) {
+            return super.replace(key, oldValue, newValue);
+        }
+        int k = find(key);
+        if(k < 0 || !equal(values[k], oldValue)) {
+            return false;
+        }
+        values[k] = newValue;
+        return true;
+    }
+    
+    public void replaceAll(BiFunction<? super Object, ? super Object, ? extends Object> function) {
+        if(!isDeferred()) {
+            super.replaceAll(function);
+            return;
+        }
+        if(function == null) {
+            throw new NullPointerException("function");
+        }
+        int expected = edits;
+        for(int k = 0; k < used; k++) {
+            if(keys[k] == REMOVED) {
+                continue;
+            }
+            Object value = function.apply(keys[k], values[k]);
+            if(edits != expected || !isDeferred()) {
+                throw new ConcurrentModificationException();
+            }
+            values[k] = value;
+        }
+    }
+    
+    public Object computeIfAbsent(Object key, Function<? super Object, ? extends Object> mappingFunction) {
+        if(!isDeferred()) {
+            return super.computeIfAbsent(key, mappingFunction);
+        }
+        if(mappingFunction == null) {
+            throw new NullPointerException("mappingFunction");
+        }
+        int k = find(key);
+        if(k >= 0 && values[k] != null) {
+            return values[k];
+        }
+        int expected = edits;
+        Object value = mappingFunction.apply(key);
+        return value == null ? null : remapped(key, expected, value);
+    }
+    
+    public Object computeIfPresent(Object key,
+            BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        if(!isDeferred()) {
+            return super.computeIfPresent(key, remappingFunction);
+        }
+        if(remappingFunction == null) {
+            throw new NullPointerException("remappingFunction");
+        }
+        int k = find(key);
+        if(k < 0 || values[k] == null) {
+            return null;
+        }
+        int expected = edits;
+        return remapped(key, expected, remappingFunction.apply(key, values[k]));
+    }
+    
+    public Object compute(Object key, BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        if(!isDeferred()) {
+            return super.compute(key, remappingFunction);
+        }
+        if(remappingFunction == null) {
+            throw new NullPointerException("remappingFunction");
+        }
+        int k = find(key);
+        int expected = edits;
+        return remapped(key, expected, remappingFunction.apply(key, k < 0 ? null : values[k]));
+    }
+    
+    public Object merge(Object key, Object value,
+            BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        if(!isDeferred()) {
+            return super.merge(key, value, remappingFunction);
+        }
+        if(value == null) {
+            throw new NullPointerException("value");
+        }
+        if(remappingFunction == null) {
+            throw new NullPointerException("remappingFunction");
+        }
+        int k = find(key);
+        Object old = k < 0 ? null : values[k];
+        int expected = edits;
+        return remapped(key, expected, old == null ? value : remappingFunction.apply(old, value));
+    }
+    
+    // Gives the key the value a remapping function returned, removing it
+    // for null. Fails if the function added or removed entries, and goes to
+    // the map if the function moved the entries into it.
+    private Object remapped(Object key, int expected, Object value) {
+        if(!isDeferred()) {
+            if(value == null) {
+                super.remove(key);
+            } else {
+                super.put(key, value);
+            }
+            return value;
+        }
+        if(edits != expected) {
+            throw new ConcurrentModificationException();
+        }
+        int k = find(key);
+        if(value == null) {
+            if(k >= 0) {
+                removeAt(k);
+            }
+        } else if(k >= 0) {
+            values[k] = value;
+        } else {
+            append(key, value);
+            edits++;
+        }
+        return value;
+    }
+    
+    public void putAll(Map<? extends Object, ? extends Object> m) {
+        if(!isDeferred()) {
+            super.putAll(m);
+            return;
+        }
+        for(Map.Entry<? extends Object, ? extends Object> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    public Object remove(Object key) {
+        if(!isDeferred()) {
+            return super.remove(key);
+        }
+        int k = find(key);
+        return k < 0 ? null : removeAt(k);
+    }
+    
+    public boolean remove(Object key, Object value) {
+        if(!isDeferred()) {
+            return super.remove(key, value);
+        }
+        int k = find(key);
+        if(k < 0 || !equal(values[k], value)) {
+            return false;
+        }
+        removeAt(k);
+        return true;
+    }
+    
+    public void clear() {
+        if(!isDeferred()) {
+            super.clear();
+            return;
+        }
+        Arrays.fill(keys, 0, used, null);
+        Arrays.fill(values, 0, used, null);
+        size = 0;
+        used = 0;
+        table = null;
+        edits++;
+    }
+    
+    public void forEach(BiConsumer<? super Object, ? super Object> action) {
+        if(!isDeferred()) {
+            super.forEach(action);
+            return;
+        }
+        if(action == null) {
+            throw new NullPointerException("action");
+        }
+        int expected = edits;
+        for(int k = 0; k < used && edits == expected; k++) {
+            if(keys[k] != REMOVED) {
+                action.accept(keys[k], values[k]);
+            }
+        }
+        if(edits != expected || !isDeferred()) {
+            throw new ConcurrentModificationException();
+        }
+    }
+    
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        if(!isDeferred()) {
+            return super.entrySet();
+        }
+        return new AbstractSet<Map.Entry<Object, Object>>() {
+            public int size() {
+                return CompactJsonObject.this.size();
+            }
+            
+            public void clear() {
+                CompactJsonObject.this.clear();
+            }
+            
+            public Iterator<Map.Entry<Object, Object>> iterator() {
+                if(!isDeferred()) {
+                    return CompactJsonObject.super.entrySet().iterator();
+                }
+                return new Cursor<Map.Entry<Object, Object>>() {
+                    Map.Entry<Object, Object> at(int k) {
+                        return new Entry(k);
+                    }
+                    
+                    Map.Entry<Object, Object> of(Map.Entry<Object, Object> entry) {
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+    
+    public Set<Object> keySet() {
+        if(!isDeferred()) {
+            return super.keySet();
+        }
+        return new AbstractSet<Object>() {
+            public int size() {
+                return CompactJsonObject.this.size();
+            }
+            
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+            
+            public void clear() {
+                CompactJsonObject.this.clear();
+            }
+            
+            public Iterator<Object> iterator() {
+                if(!isDeferred()) {
+                    return CompactJsonObject.super.keySet().iterator();
+                }
+                return new Cursor<Object>() {
+                    Object at(int k) {
+                        return keys[k];
+                    }
+                    
+                    Object of(Map.Entry<Object, Object> entry) {
+                        return entry.getKey();
+                    }
+                };
+            }
+        };
+    }
+    
+    public Collection<Object> values() {
+        if(!isDeferred()) {
+            return super.values();
+        }
+        return new AbstractCollection<Object>() {
+            public int size() {
+                return CompactJsonObject.this.size();
+            }
+            
+            public boolean contains(Object o) {
+                return containsValue(o);
+            }
+            
+            public void clear() {
+                CompactJsonObject.this.clear();
+            }
+            
+            public Iterator<Object> iterator() {
+                if(!isDeferred()) {
+                    return CompactJsonObject.super.values().iterator();
+                }
+                return new Cursor<Object>() {
+                    Object at(int k) {
+                        return values[k];
+                    }
+                    
+                    Object of(Map.Entry<Object, Object> entry) {
+                        return entry.getValue();
+                    }
+                };
+            }
+        };
+    }
+    
+    public boolean equals(Object o) {
+        if(!isDeferred()) {
+            return super.equals(o);
+        }
+        if(o == this) {
+            return true;
+        }
+        if(!(o instanceof Map)) {
+            return false;
+        }
+        Map<?, ?> m = (Map<?, ?>)o;
+        if(m.size() != size) {
+            return false;
+        }
+        for(int k = 0; k < used; k++) {
+            if(keys[k] == REMOVED) {
+                continue;
+            }
+            Object value = values[k];
+            if(value == null ? m.get(keys[k]) != null || !m.containsKey(keys[k]) : !value.equals(m.get(keys[k]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public int hashCode() {
+        if(!isDeferred()) {
+            return super.hashCode();
+        }
+        int h = 0;
+        for(int k = 0; k < used; k++) {
+            Object key = keys[k];
+            if(key == REMOVED) {
+                continue;
+            }
+            Object value = values[k];
+            h += (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+        return h;
+    }
+    
+    public void writeJson(Writer out) throws IOException {
+        if(!isDeferred()) {
+            super.writeJson(out);
+            return;
+        }
+        if(out == null) {
+            throw new NullPointerException("out");
+        }
+        final Object[] keys = this.keys;
+        final Object[] values = this.values;
+        final int used = this.used;
+        StructuredWriter layout = out instanceof StructuredWriter ? (StructuredWriter)out : null;
+        if(layout != null) {
+            layout.beginObject();
+        } else {
+            out.write('{');
+        }
+        boolean first = true;
+        for(int k = 0; k < used; k++) {
+            if(keys[k] == REMOVED) {
+                continue;
+            }
+            if(layout != null) {
+                layout.separator(first);
+            } else if(!first) {
+                out.write(',');
+            }
+            first = false;
+            JsonObject.writeString(out, String.valueOf(keys[k]));
+            out.write(':');
+            JsonObject.encode(out, values[k]);
+        }
+        if(layout != null) {
+            layout.endObject(first);
+        } else {
+            out.write('}');
+        }
+    }
+    
+    // Iterates over the indices of the entries, failing once the object is
+    // changed other than through the iterator. Once the entries are moved
+    // into the map, it carries on with the map's own iterator, from after
+    // the last entry it returned.
+    private abstract class Cursor<E> implements Iterator<E> {
+        private int next;
+        private int last = -1;
+        private int expected = edits;
+        // Keys of the last entry returned and of the one returned before it,
+        // or REMOVED for none.
+        private Object previous = REMOVED;
+        private Object prior = REMOVED;
+        private Iterator<Map.Entry<Object, Object>> map;
+        
+        // Returns the element for the entry at an index of the arrays.
+        abstract E at(int k);
+        
+        // Returns the element for an entry of the map.
+        abstract E of(Map.Entry<Object, Object> entry);
+        
+        // Returns the map's iterator if the entries have been moved into
+        // the map, or null while they are in the arrays.
+        private Iterator<Map.Entry<Object, Object>> map() {
+            if(map == null && !isDeferred()) {
+                if(expected != edits) {
+                    throw new ConcurrentModificationException();
+                }
+                map = CompactJsonObject.super.entrySet().iterator();
+                if(previous != REMOVED) {
+                    do {
+                        if(!map.hasNext()) {
+                            throw new ConcurrentModificationException();
+                        }
+                    } while(!equal(map.next().getKey(), previous));
+                }
+            }
+            return map;
+        }
+        
+        public boolean hasNext() {
+            Iterator<Map.Entry<Object, Object>> map = map();
+            if(map != null) {
+                return map.hasNext();
+            }
+            return skip() < used;
+        }
+        
+        // Moves past the holes ahead, returning the index of the next entry.
+        private int skip() {
+            int k = next;
+            while(k < used && keys[k] == REMOVED) {
+                k++;
+            }
+            return next = k;
+        }
+        
+        public E next() {
+            Iterator<Map.Entry<Object, Object>> map = map();
+            if(map != null) {
+                last = -1;
+                return of(map.next());
+            }
+            if(expected != edits) {
+                throw new ConcurrentModificationException();
+            }
+            if(skip() >= used) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            prior = previous;
+            previous = keys[last];
+            return at(last);
+        }
+        
+        public void remove() {
+            Iterator<Map.Entry<Object, Object>> map = map();
+            if(map != null) {
+                map.remove();
+                return;
+            }
+            if(last < 0) {
+                throw new IllegalStateException();
+            }
+            if(expected != edits) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            previous = prior;
+            last = -1;
+            expected = edits;
+        }
+    }
+    
+    // Entry for a key, first found at an index of the arrays, through which
+    // its value may be set. It finds the key again if the entries have moved
+    // since, in the arrays or into the map.
+    private final class Entry implements Map.Entry<Object, Object> {
+        private final Object key;
+        private int k;
+        
+        Entry(int k) {
+            this.key = keys[k];
+            this.k = k;
+        }
+        
+        // Returns the index of the key in the arrays, or -1 if it was removed.
+        private int index() {
+            if(k >= used || !equal(keys[k], key)) {
+                k = find(key);
+            }
+            return k;
+        }
+        
+        public Object getKey() {
+            return key;
+        }
+        
+        public Object getValue() {
+            if(!isDeferred()) {
+                return CompactJsonObject.super.get(key);
+            }
+            int k = index();
+            return k < 0 ? null : values[k];
+        }
+        
+        public Object setValue(Object value) {
+            if(!isDeferred()) {
+                if(!CompactJsonObject.super.containsKey(key)) {
+                    throw new IllegalStateException("Entry was removed");
+                }
+                return CompactJsonObject.super.put(key, value);
+            }
+            int k = index();
+            if(k < 0) {
+                throw new IllegalStateException("Entry was removed");
+            }
+            Object old = values[k];
+            values[k] = value;
+            return old;
+        }
+        
+        public boolean equals(Object o) {
+            if(!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+            return equal(getKey(), e.getKey()) && equal(getValue(), e.getValue());
+        }
+        
+        public int hashCode() {
+            Object key = getKey();
+            Object value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+        
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
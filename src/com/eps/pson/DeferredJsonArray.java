@@ -0,0 +1,243 @@
+package com.eps.pson;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+// Internal
+// A JSON array whose elements are held elsewhere until they are needed.
+// Subclasses answer the operations they can serve from their own storage,
+// and every other operation first calls materialize(), which copies the
+// elements into the list itself through load() and store(), then defers
+// to the ArrayList implementation.
+abstract class DeferredJsonArray extends JsonArray {
+    private boolean deferred = true;
+    
+    DeferredJsonArray() {
+        super(0);
+    }
+    
+    // Stores every element in order through store(); called at most once.
+    abstract void load();
+    
+    final boolean isDeferred() {
+        return deferred;
+    }
+    
+    final void materialize() {
+        if(deferred) {
+            deferred = false;
+            load();
+        }
+    }
+    
+    final void store(Object value) {
+        super.add(value);
+    }
+    
+    public int size() {
+        materialize();
+        return super.size();
+    }
+    
+    public boolean isEmpty() {
+        materialize();
+        return super.isEmpty();
+    }
+    
+    public Object get(int index) {
+        materialize();
+        return super.get(index);
+    }
+    
+    // Declared for the List methods added in Java 21, which ArrayList
+    // implements against its own storage.
+    public Object getFirst() {
+        materialize();
+        if(super.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return super.get(0);
+    }
+    
+    public Object getLast() {
+        materialize();
+        if(super.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return super.get(super.size() - 1);
+    }
+    
+    public Object removeFirst() {
+        materialize();
+        if(super.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return super.remove(0);
+    }
+    
+    public Object removeLast() {
+        materialize();
+        if(super.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return super.remove(super.size() - 1);
+    }
+    
+    public Object set(int index, Object element) {
+        materialize();
+        return super.set(index, element);
+    }
+    
+    public boolean add(Object e) {
+        materialize();
+        return super.add(e);
+    }
+    
+    public void add(int index, Object element) {
+        materialize();
+        super.add(index, element);
+    }
+    
+    public Object remove(int index) {
+        materialize();
+        return super.remove(index);
+    }
+    
+    public boolean remove(Object o) {
+        materialize();
+        return super.remove(o);
+    }
+    
+    public void clear() {
+        deferred = false;
+        super.clear();
+    }
+    
+    public boolean addAll(Collection<? extends Object> c) {
+        materialize();
+        return super.addAll(c);
+    }
+    
+    public boolean addAll(int index, Collection<? extends Object> c) {
+        materialize();
+        return super.addAll(index, c);
+    }
+    
+    public boolean removeAll(Collection<?> c) {
+        materialize();
+        return super.removeAll(c);
+    }
+    
+    public boolean retainAll(Collection<?> c) {
+        materialize();
+        return super.retainAll(c);
+    }
+    
+    public boolean removeIf(Predicate<? super Object> filter) {
+        materialize();
+        return super.removeIf(filter);
+    }
+    
+    public void replaceAll(UnaryOperator<Object> operator) {
+        materialize();
+        super.replaceAll(operator);
+    }
+    
+    public void sort(Comparator<? super Object> c) {
+        materialize();
+        super.sort(c);
+    }
+    
+    public void trimToSize() {
+        materialize();
+        super.trimToSize();
+    }
+    
+    public void ensureCapacity(int minCapacity) {
+        materialize();
+        super.ensureCapacity(minCapacity);
+    }
+    
+    public boolean contains(Object o) {
+        materialize();
+        return super.contains(o);
+    }
+    
+    public int indexOf(Object o) {
+        materialize();
+        return super.indexOf(o);
+    }
+    
+    public int lastIndexOf(Object o) {
+        materialize();
+        return super.lastIndexOf(o);
+    }
+    
+    public Object[] toArray() {
+        materialize();
+        return super.toArray();
+    }
+    
+    public <T> T[] toArray(T[] a) {
+        materialize();
+        return super.toArray(a);
+    }
+    
+    public Iterator<Object> iterator() {
+        materialize();
+        return super.iterator();
+    }
+    
+    public ListIterator<Object> listIterator() {
+        materialize();
+        return super.listIterator();
+    }
+    
+    public ListIterator<Object> listIterator(int index) {
+        materialize();
+        return super.listIterator(index);
+    }
+    
+    public List<Object> subList(int fromIndex, int toIndex) {
+        materialize();
+        return super.subList(fromIndex, toIndex);
+    }
+    
+    public void forEach(Consumer<? super Object> action) {
+        materialize();
+        super.forEach(action);
+    }
+    
+    public Spliterator<Object> spliterator() {
+        materialize();
+        return super.spliterator();
+    }
+    
+    public Object clone() {
+        materialize();
+        return super.clone();
+    }
+    
+    public boolean equals(Object o) {
+        materialize();
+        return super.equals(o);
+    }
+    
+    public int hashCode() {
+        materialize();
+        return super.hashCode();
+    }
+    
+    // Serializes as a plain JsonArray, since the deferred storage is not serializable.
+    Object writeReplace() {
+        return new JsonArray(toArray());
+    }
+}
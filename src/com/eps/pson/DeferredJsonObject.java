@@ -0,0 +1,175 @@
+package com.eps.pson;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Internal
+// A JSON object whose entries are held elsewhere until they are needed.
+// Subclasses answer the operations they can serve from their own storage,
+// and every other operation first calls materialize(), which copies the
+// entries into the map itself through load() and store(), then defers to
+// the LinkedHashMap implementation.
+abstract class DeferredJsonObject extends JsonObject {
+    private boolean deferred = true;
+    
+    // Stores every entry through store(); called at most once.
+    abstract void load();
+    
+    final boolean isDeferred() {
+        return deferred;
+    }
+    
+    final void materialize() {
+        if(deferred) {
+            deferred = false;
+            load();
+        }
+    }
+    
+    final void store(Object key, Object value) {
+        super.put(key, value);
+    }
+    
+    public int size() {
+        materialize();
+        return super.size();
+    }
+    
+    public boolean isEmpty() {
+        materialize();
+        return super.isEmpty();
+    }
+    
+    public Object get(Object key) {
+        materialize();
+        return super.get(key);
+    }
+    
+    public boolean containsKey(Object key) {
+        materialize();
+        return super.containsKey(key);
+    }
+    
+    public Object getOrDefault(Object key, Object defaultValue) {
+        materialize();
+        return super.getOrDefault(key, defaultValue);
+    }
+    
+    public boolean containsValue(Object value) {
+        materialize();
+        return super.containsValue(value);
+    }
+    
+    public Object put(Object key, Object value) {
+        materialize();
+        return super.put(key, value);
+    }
+    
+    public void putAll(Map<? extends Object, ? extends Object> m) {
+        materialize();
+        super.putAll(m);
+    }
+    
+    public Object remove(Object key) {
+        materialize();
+        return super.remove(key);
+    }
+    
+    public void clear() {
+        deferred = false;
+        super.clear();
+    }
+    
+    public Set<Object> keySet() {
+        materialize();
+        return super.keySet();
+    }
+    
+    public Collection<Object> values() {
+        materialize();
+        return super.values();
+    }
+    
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        materialize();
+        return super.entrySet();
+    }
+    
+    public void forEach(BiConsumer<? super Object, ? super Object> action) {
+        materialize();
+        super.forEach(action);
+    }
+    
+    public void replaceAll(BiFunction<? super Object, ? super Object, ? extends Object> function) {
+        materialize();
+        super.replaceAll(function);
+    }
+    
+    public Object putIfAbsent(Object key, Object value) {
+        materialize();
+        return super.putIfAbsent(key, value);
+    }
+    
+    public boolean remove(Object key, Object value) {
+        materialize();
+        return super.remove(key, value);
+    }
+    
+    public boolean replace(Object key, Object oldValue, Object newValue) {
+        materialize();
+        return super.replace(key, oldValue, newValue);
+    }
+    
+    public Object replace(Object key, Object value) {
+        materialize();
+        return super.replace(key, value);
+    }
+    
+    public Object computeIfAbsent(Object key, Function<? super Object, ? extends Object> mappingFunction) {
+        materialize();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+    
+    public Object computeIfPresent(Object key,
+            BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        materialize();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+    
+    public Object compute(Object key, BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        materialize();
+        return super.compute(key, remappingFunction);
+    }
+    
+    public Object merge(Object key, Object value,
+            BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        materialize();
+        return super.merge(key, value, remappingFunction);
+    }
+    
+    public Object clone() {
+        materialize();
+        return super.clone();
+    }
+    
+    public boolean equals(Object o) {
+        materialize();
+        return super.equals(o);
+    }
+    
+    public int hashCode() {
+        materialize();
+        return super.hashCode();
+    }
+    
+    // Serializes as a plain JsonObject, since the deferred storage is not serializable.
+    Object writeReplace() {
+        JsonObject copy = new JsonObject();
+        copy.putAll(this);
+        return copy;
+    }
+}
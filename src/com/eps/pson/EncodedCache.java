@@ -0,0 +1,129 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Internal
+// Compact encoding of a CachedJsonObject or CachedJsonArray, kept from one
+// encode to the next. Each cache knows the caches of the containers holding
+// its owner, and a change to the owner clears its own encoding and theirs,
+// up to the root, so that the next encode walks only the changed path and
+// copies every other container's bytes as they are. A cache which is set
+// implies that those of every container below it are set too, which lets
+// clearing stop at the first one which is not.
+final class EncodedCache {
+    private static final EncodedCache[] NO_PARENTS = new EncodedCache[0];
+    
+    private final Object owner;
+    // UTF-8 encoding of the owner, and the same as a String once asked for.
+    private volatile byte[] bytes;
+    private volatile String text;
+    // Caches of the containers holding the owner, once for every time it is
+    // held; a value held twice by the same container is linked twice.
+    private EncodedCache[] parents = NO_PARENTS;
+    private int count;
+    
+    EncodedCache(Object owner) {
+        this.owner = owner;
+    }
+    
+    // Returns the cache of the given value, or null if it is not cached.
+    static EncodedCache of(Object value) {
+        if(value instanceof CachedJsonObject) {
+            return ((CachedJsonObject)value).cache;
+        } else if(value instanceof CachedJsonArray) {
+            return ((CachedJsonArray)value).cache;
+        }
+        return null;
+    }
+    
+    // Records that the owner holds the given value.
+    void link(Object value) {
+        EncodedCache child = of(value);
+        if(child != null) {
+            if(child.count == child.parents.length) {
+                child.parents = Arrays.copyOf(child.parents, Math.max(2, child.count << 1));
+            }
+            child.parents[child.count++] = this;
+        }
+    }
+    
+    // Records that the owner no longer holds the given value, once.
+    void unlink(Object value) {
+        EncodedCache child = of(value);
+        if(child == null) {
+            return;
+        }
+        final EncodedCache[] parents = child.parents;
+        for(int i = child.count - 1; i >= 0; i--) {
+            if(parents[i] == this) {
+                System.arraycopy(parents, i + 1, parents, i, child.count - i - 1);
+                parents[--child.count] = null;
+                return;
+            }
+        }
+    }
+    
+    // Clears the encoding of the owner and of every container holding it.
+    void invalidate() {
+        if(bytes == null) {
+            return;
+        }
+        bytes = null;
+        text = null;
+        for(int i = 0; i < count; i++) {
+            parents[i].invalidate();
+        }
+    }
+    
+    // Writes the owner, from the cached encoding if the writer does not lay
+    // out its output, and walking it otherwise.
+    void write(Writer out) throws IOException {
+        if(out == null) {
+            throw new NullPointerException("out");
+        }
+        if(out instanceof Utf8JsonWriter && !((Utf8JsonWriter)out).isPrettyPrintingEnabled()) {
+            Utf8JsonWriter writer = (Utf8JsonWriter)out;
+            byte[] bytes = this.bytes;
+            if(bytes == null && writer.inMemory()) {
+                int start = writer.size();
+                walk(writer);
+                this.bytes = writer.copy(start);
+                return;
+            }
+            if(bytes == null) {
+                bytes = encode();
+            }
+            writer.writeBytes(bytes, 0, bytes.length);
+        } else if(out instanceof JsonWriter && !((JsonWriter)out).isPrettyPrintingEnabled()
+                || !(out instanceof StructuredWriter)) {
+            String text = this.text;
+            if(text == null) {
+                byte[] bytes = this.bytes;
+                text = this.text = new String(bytes != null ? bytes : encode(), StandardCharsets.UTF_8);
+            }
+            out.write(text);
+        } else {
+            walk(out);
+        }
+    }
+    
+    // Encodes the owner into memory and keeps the bytes.
+    private byte[] encode() throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        walk(writer);
+        return bytes = writer.toByteArray();
+    }
+    
+    private void walk(Writer out) throws IOException {
+        if(owner instanceof Map) {
+            JsonObject.write(out, (Map<?, ?>)owner);
+        } else {
+            JsonArray.write(out, (List<?>)owner);
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.eps.pson;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.BaseStream;
 
 /**
  * Represents a JSON array of any type.
@@ -43,6 +45,36 @@ public class JsonArray extends ArrayList<Object> implements JsonSerializable {
         super(8);
     }
     
+    /**
+     * Gets the number at the given index as a long. Arrays of integers
+     * decoded into a {@link JsonLongArray} answer without unboxing.
+     * 
+     * @param index The index of the element.
+     * @return The value of the number, as with {@link Number#longValue()}.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     * @throws ClassCastException If the element is not a number.
+     * @throws NullPointerException If the element is null.
+     * @since 0.2
+     */
+    public long getLong(int index) {
+        return ((Number)get(index)).longValue();
+    }
+    
+    /**
+     * Gets the number at the given index as a double. Arrays of decimals
+     * decoded into a {@link JsonDoubleArray} answer without unboxing.
+     * 
+     * @param index The index of the element.
+     * @return The value of the number, as with {@link Number#doubleValue()}.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     * @throws ClassCastException If the element is not a number.
+     * @throws NullPointerException If the element is null.
+     * @since 0.2
+     */
+    public double getDouble(int index) {
+        return ((Number)get(index)).doubleValue();
+    }
+    
     public void writeJson(Writer out) throws IOException {
         write(out, this);
     }
@@ -53,24 +85,73 @@ public class JsonArray extends ArrayList<Object> implements JsonSerializable {
         }
         if(value == null) {
             out.write("null");
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.wrote(out, TokenType.NULL);
+            }
             return;
         }
-        Iterator<?> iter = value.iterator();
+        write(out, value.iterator(), false);
+    }
+    
+    // Whether the value is written as an array of elements pulled from it
+    // one at a time: an iterator, a stream, or any other Iterable than a
+    // List, which is written as such, or a Path, which is written as text.
+    static boolean isLazy(Object value) {
+        return value instanceof Iterator || value instanceof BaseStream
+                || value instanceof Iterable && !(value instanceof List) && !(value instanceof Path);
+    }
+    
+    // Returns the iterator over the elements of a value for which isLazy()
+    // is true. Streams are iterated without being closed.
+    static Iterator<?> elements(Object value) {
+        if(value instanceof Iterator) {
+            return (Iterator<?>)value;
+        } else if(value instanceof BaseStream) {
+            return ((BaseStream<?, ?>)value).iterator();
+        }
+        return ((Iterable<?>)value).iterator();
+    }
+    
+    // Writes a value for which isLazy() is true, pulling each element only
+    // once the one before it is written, and flushing the stream under a
+    // Utf8JsonWriter as the buffer fills, so that output of any length is
+    // written in constant memory.
+    static void writeLazy(Writer out, Object value) throws IOException {
+        write(out, elements(value), out instanceof Utf8JsonWriter);
+    }
+    
+    private static void write(Writer out, Iterator<?> iter, boolean flush) throws IOException {
+        StructuredWriter layout = out instanceof StructuredWriter ? (StructuredWriter)out : null;
+        if(layout != null) {
+            layout.beginArray();
+        } else {
+            out.write('[');
+        }
         boolean first = true;
-        out.write('[');
         while(iter.hasNext()) {
-            if(first) {
-                first = false;
-            } else {
+            if(layout != null) {
+                layout.separator(first);
+            } else if(!first) {
                 out.write(',');
             }
+            first = false;
             Object v = iter.next();
             if(v == null) {
                 out.write("null");
-                continue;
+                if(JsonMetrics.ENABLED) {
+                    JsonMetrics.wrote(out, TokenType.NULL);
+                }
+            } else {
+                JsonObject.encode(out, v);
+            }
+            if(flush) {
+                ((Utf8JsonWriter)out).flushDrained();
             }
-            JsonObject.encode(out, v);
         }
-        out.write(']');
+        if(layout != null) {
+            layout.endArray(first);
+        } else {
+            out.write(']');
+        }
     }
 }
@@ -0,0 +1,246 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A reusable decoder, for decoding many documents one after another without
+ * allocating anything but the decoded values. The lexers, the scratch space
+ * for strings with escapes, and the copy of String input are kept from one
+ * document to the next, growing to fit the largest one; buffers grown past
+ * 64K are let go once that document is done, and the rest are cleared, so
+ * that nothing of a document is held after the call which decoded it.
+ * <pre>
+ * JsonDecoder decoder = new JsonDecoder();
+ * for(byte[] body : requests) {
+ *     JsonObject request = (JsonObject)decoder.decode(body, 0, body.length);
+ * }
+ * </pre>
+ * A decoder must not be used by more than one thread at a time. The static
+ * methods of {@link JsonObject} take their decoders from a small pool, in
+ * which a decoder is held for the length of one call rather than bound to
+ * a thread, so they do not allocate them either, on virtual threads too.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see JsonEncoder
+ */
+public final class JsonDecoder {
+    private static final Pool<JsonDecoder> POOL = new Pool<JsonDecoder>();
+    private static final char[] NO_CHARS = new char[0];
+    private static final ByteBuffer NO_BYTES = ByteBuffer.allocate(0);
+    
+    private final CharLexer chars = new CharLexer(NO_CHARS, 0, 0);
+    private final Utf8Lexer bytes = new Utf8Lexer(NO_BYTES);
+    private final JsonParser charParser = new JsonParser(chars);
+    private final JsonParser byteParser = new JsonParser(bytes);
+    // Copy of the last String decoded.
+    private char[] text = NO_CHARS;
+    // Counts of the document being decoded, if measuring is enabled.
+    private final JsonMetrics.Counts counts = JsonMetrics.ENABLED ? new JsonMetrics.Counts() : null;
+    
+    /**
+     * Initializes a decoder with empty buffers.
+     */
+    public JsonDecoder() {
+        chars.counts = counts;
+        bytes.counts = counts;
+    }
+    
+    // Takes a decoder from the pool, or makes one if it is empty.
+    static JsonDecoder take() {
+        JsonDecoder decoder = POOL.take();
+        return decoder != null ? decoder : new JsonDecoder();
+    }
+    
+    // Returns a decoder to the pool once a call is done with it.
+    static void give(JsonDecoder decoder) {
+        decoder.setKeyCache(null);
+        POOL.give(decoder);
+    }
+    
+    /**
+     * Sets the cache through which every occurrence of an object key
+     * shares one String instance.
+     * 
+     * @param keys The cache object keys are looked up in, or null for none.
+     * @return This decoder.
+     * @see KeyCache
+     */
+    public JsonDecoder setKeyCache(KeyCache keys) {
+        chars.keys = keys;
+        bytes.keys = keys;
+        return this;
+    }
+    
+    /**
+     * Decodes the given JSON string, as with {@link JsonObject#decode(String)}.
+     * The string is copied into a buffer kept for the next one.
+     * 
+     * @param json The JSON string to be decoded.
+     * @return The respective value in code of the JSON string.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the JSON string is null.
+     */
+    public Object decode(String json) throws IOException {
+        return decodeText(json, null);
+    }
+    
+    /**
+     * Decodes the given JSON string into an instance of the given class, as
+     * with {@link JsonObject#decode(String, Class)}.
+     * 
+     * @param json The JSON string to be decoded.
+     * @param type The class of the value, whose fields the object is bound to.
+     * @return The value, or null if the document is <code>null</code> or empty.
+     * @throws IOException If the document is malformed, or does not fit the class.
+     * @throws NullPointerException If the JSON string or the class is null.
+     * @throws IllegalArgumentException If the class is primitive, or a class
+     * to be created has no constructor without parameters, or a map to be
+     * filled is keyed by another type than strings, integers or enums.
+     */
+    public <T> T decode(String json, Class<T> type) throws IOException {
+        if(type == null) {
+            throw new NullPointerException("type");
+        }
+        return type.cast(decodeText(json, type));
+    }
+    
+    private Object decodeText(String json, Class<?> type) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        int length = json.length();
+        char[] text = this.text;
+        if(text.length < length) {
+            text = this.text = new char[length];
+        }
+        json.getChars(0, length, text, 0);
+        chars.wrap(text, 0, length);
+        long start = JsonMetrics.ENABLED ? JsonMetrics.begin(counts) : 0;
+        try {
+            Object value = decode(chars, charParser, type);
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.decoded(counts, length, start);
+            }
+            return value;
+        } finally {
+            // The copy and the strings decoded from it are cleared, so that
+            // a pooled decoder holds on to nothing of the document.
+            if(text.length > Pool.MAX_RETAINED) {
+                this.text = NO_CHARS;
+            } else {
+                Arrays.fill(text, 0, length, '\0');
+            }
+            chars.wrap(NO_CHARS, 0, 0);
+            chars.scrub();
+        }
+    }
+    
+    /**
+     * Decodes the given range of UTF-8 encoded bytes, as with
+     * {@link JsonObject#decode(byte[], int, int)}.
+     * 
+     * @param json The array holding the UTF-8 encoded JSON document.
+     * @param offset The index of the first byte of the document.
+     * @param length The number of bytes in the document.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the array is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     */
+    public Object decode(byte[] json, int offset, int length) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        return decode(ByteBuffer.wrap(json, offset, length));
+    }
+    
+    /**
+     * Decodes the UTF-8 encoded bytes between the given buffer's position
+     * and limit, as with {@link JsonObject#decode(ByteBuffer)}. The buffer's
+     * position is left unchanged, and the buffer is not held on to.
+     * 
+     * @param json The buffer holding the UTF-8 encoded JSON document.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the buffer is null.
+     */
+    public Object decode(ByteBuffer json) throws IOException {
+        return decodeBytes(json, null);
+    }
+    
+    /**
+     * Decodes the given range of UTF-8 encoded bytes into an instance of the
+     * given class, as with {@link JsonObject#decode(byte[], int, int, Class)}.
+     * 
+     * @param json The array holding the UTF-8 encoded JSON document.
+     * @param offset The index of the first byte of the document.
+     * @param length The number of bytes in the document.
+     * @param type The class of the value, whose fields the object is bound to.
+     * @return The value, or null if the document is <code>null</code> or empty.
+     * @throws IOException If the document is malformed, or does not fit the class.
+     * @throws NullPointerException If the array or the class is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     * @throws IllegalArgumentException If the class is primitive, or a class
+     * to be created has no constructor without parameters, or a map to be
+     * filled is keyed by another type than strings, integers or enums.
+     */
+    public <T> T decode(byte[] json, int offset, int length, Class<T> type) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        return decode(ByteBuffer.wrap(json, offset, length), type);
+    }
+    
+    /**
+     * Decodes the UTF-8 encoded bytes between the given buffer's position
+     * and limit into an instance of the given class, as with
+     * {@link JsonObject#decode(ByteBuffer, Class)}.
+     * 
+     * @param json The buffer holding the UTF-8 encoded JSON document.
+     * @param type The class of the value, whose fields the object is bound to.
+     * @return The value, or null if the document is <code>null</code> or empty.
+     * @throws IOException If the document is malformed, or does not fit the class.
+     * @throws NullPointerException If the buffer or the class is null.
+     * @throws IllegalArgumentException If the class is primitive, or a class
+     * to be created has no constructor without parameters, or a map to be
+     * filled is keyed by another type than strings, integers or enums.
+     */
+    public <T> T decode(ByteBuffer json, Class<T> type) throws IOException {
+        if(type == null) {
+            throw new NullPointerException("type");
+        }
+        return type.cast(decodeBytes(json, type));
+    }
+    
+    private Object decodeBytes(ByteBuffer json, Class<?> type) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        bytes.wrap(json);
+        long start = JsonMetrics.ENABLED ? JsonMetrics.begin(counts) : 0;
+        try {
+            Object value = decode(bytes, byteParser, type);
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.decoded(counts, json.remaining(), start);
+            }
+            return value;
+        } finally {
+            bytes.wrap(NO_BYTES);
+            bytes.scrub();
+        }
+    }
+    
+    // Decodes the next value, bound to the given class unless it is null.
+    private static Object decode(JsonLexer lexer, JsonParser parser, Class<?> type) throws IOException {
+        if(type != null) {
+            return Binding.decode(lexer, parser, type);
+        }
+        if(lexer.peek() == TokenType.NONE) {
+            return null;
+        }
+        return parser.decodeValue();
+    }
+}
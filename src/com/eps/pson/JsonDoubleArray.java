@@ -0,0 +1,80 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A JSON array of decimals, held in a {@code double[]} rather than as boxed
+ * {@link Double}s. Decoding returns one for every non-empty array whose
+ * elements all have a fraction or exponent and fit in a double.
+ * <br>
+ * <br>
+ * Reading the array, whether by index, by iterating or streaming over it,
+ * by searching it or by comparing it, is served from the primitive array
+ * and boxes only the element being read; {@link #getDouble(int)},
+ * {@link #getLong(int)} and encoding box nothing. Changing the array boxes
+ * every element into the list first, after which it behaves like any other
+ * {@link JsonArray}.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see JsonLongArray
+ */
+public final class JsonDoubleArray extends PrimitiveJsonArray {
+    private static final long serialVersionUID = 1L;
+    
+    private double[] values;
+    
+    /**
+     * Initializes an array holding a copy of the given values.
+     * 
+     * @param values The elements of this array.
+     * @throws NullPointerException If the values are null.
+     */
+    public JsonDoubleArray(double[] values) {
+        this.values = values.clone();
+    }
+    
+    // Takes ownership of the first length values of the given array.
+    JsonDoubleArray(double[] values, int length) {
+        this.values = length == values.length ? values : Arrays.copyOf(values, length);
+    }
+    
+    int length() {
+        return values.length;
+    }
+    
+    Object element(int k) {
+        return Double.valueOf(values[k]);
+    }
+    
+    void writeElement(Writer out, int k) throws IOException {
+        JsonObject.writeDouble(out, values[k]);
+    }
+    
+    boolean matches(int k, Object o) {
+        return o instanceof Double
+                && Double.doubleToLongBits(((Double)o).doubleValue()) == Double.doubleToLongBits(values[k]);
+    }
+    
+    int hashAt(int k) {
+        return Double.hashCode(values[k]);
+    }
+    
+    void release() {
+        values = null;
+    }
+    
+    public double getDouble(int index) {
+        if(!isDeferred()) {
+            return super.getDouble(index);
+        }
+        check(index);
+        return values[index];
+    }
+    
+    public long getLong(int index) {
+        return isDeferred() ? (long)getDouble(index) : super.getLong(index);
+    }
+}
@@ -0,0 +1,250 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A reusable encoder, for encoding many values one after another without
+ * allocating anything but the output. The writers and their buffers are kept
+ * from one value to the next, growing to fit the largest one; buffers grown
+ * past 64K are let go once that value is done.
+ * <pre>
+ * JsonEncoder encoder = new JsonEncoder();
+ * for(JsonObject response : responses) {
+ *     encoder.encode(out, response);
+ * }
+ * </pre>
+ * An encoder must not be used by more than one thread at a time. The static
+ * methods of {@link JsonObject} take their encoders from a small pool, in
+ * which an encoder is held for the length of one call rather than bound to
+ * a thread, so they do not allocate them either, on virtual threads too.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see JsonDecoder
+ */
+public final class JsonEncoder {
+    private static final Pool<JsonEncoder> POOL = new Pool<JsonEncoder>();
+    
+    private final JsonWriter text = new JsonWriter();
+    private final Utf8JsonWriter bytes = new Utf8JsonWriter();
+    // Counts of the value being encoded, if measuring is enabled.
+    private final JsonMetrics.Counts counts = JsonMetrics.ENABLED ? new JsonMetrics.Counts() : null;
+    
+    /**
+     * Initializes a encoder with empty buffers.
+     */
+    public JsonEncoder() {
+        text.counts = counts;
+        bytes.counts = counts;
+    }
+    
+    // Takes an encoder from the pool, or makes one if it is empty.
+    static JsonEncoder take() {
+        JsonEncoder encoder = POOL.take();
+        return encoder != null ? encoder : new JsonEncoder();
+    }
+    
+    // Returns an encoder to the pool once a call is done with it.
+    static void give(JsonEncoder encoder) {
+        encoder.setPrettyPrinting(false);
+        POOL.give(encoder);
+    }
+    
+    /**
+     * Sets whether or not "pretty printing" is enabled, as with
+     * {@link JsonWriter#setPrettyPrinting(boolean)}.
+     * 
+     * @param prettyEnabled Enables "pretty printing" if true.
+     * @return This encoder.
+     */
+    public JsonEncoder setPrettyPrinting(boolean prettyEnabled) {
+        text.setPrettyPrinting(prettyEnabled);
+        bytes.setPrettyPrinting(prettyEnabled);
+        return this;
+    }
+    
+    /**
+     * Gets whether or not "pretty printing" is enabled.
+     * 
+     * @return True if "pretty printing" is enabled.
+     */
+    public boolean isPrettyPrintingEnabled() {
+        return text.isPrettyPrintingEnabled();
+    }
+    
+    /**
+     * Sets the number of spaces each level is indented by
+     * while "pretty printing".
+     * 
+     * @param width The number of spaces per level.
+     * @return This encoder.
+     * @throws IllegalArgumentException If the width is negative.
+     */
+    public JsonEncoder setIndentWidth(int width) {
+        text.setIndentWidth(width);
+        bytes.setIndentWidth(width);
+        return this;
+    }
+    
+    /**
+     * Gets the number of spaces each level is indented by.
+     * 
+     * @return The number of spaces per level.
+     */
+    public int getIndentWidth() {
+        return text.getIndentWidth();
+    }
+    
+    /**
+     * Encodes the given value to a JSON string, as with
+     * {@link JsonObject#encode(Object)}.
+     * 
+     * @param value The value to be encoded.
+     * @return The JSON string.
+     * @throws IOException If an error occurs while encoding.
+     */
+    public String encode(Object value) throws IOException {
+        long start = JsonMetrics.ENABLED ? JsonMetrics.begin(counts) : 0;
+        try {
+            JsonObject.encode(text, value);
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.encoded(counts, text.getBuffer().length(), start);
+            }
+            return text.toString();
+        } finally {
+            text.reset();
+        }
+    }
+    
+    /**
+     * Encodes the given value to a JSON string, as with
+     * {@link JsonObject#encode(Object, Class)}.
+     * 
+     * @param value The value to be encoded.
+     * @param type The class whose fields are written.
+     * @return The JSON string.
+     * @throws IOException If an error occurs while encoding.
+     * @throws NullPointerException If the class is null.
+     */
+    public <T> String encode(T value, Class<? super T> type) throws IOException {
+        if(type == null) {
+            throw new NullPointerException("type");
+        }
+        long start = JsonMetrics.ENABLED ? JsonMetrics.begin(counts) : 0;
+        try {
+            Binding.encode(text, value, type);
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.encoded(counts, text.getBuffer().length(), start);
+            }
+            return text.toString();
+        } finally {
+            text.reset();
+        }
+    }
+    
+    /**
+     * Encodes the given value as UTF-8 encoded JSON.
+     * 
+     * @param value The value to be encoded.
+     * @return The UTF-8 encoded JSON.
+     * @throws IOException If an error occurs while encoding.
+     */
+    public byte[] encodeBytes(Object value) throws IOException {
+        long start = JsonMetrics.ENABLED ? JsonMetrics.begin(counts) : 0;
+        try {
+            JsonObject.encode(bytes, value);
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.encoded(counts, bytes.size(), start);
+            }
+            return bytes.toByteArray();
+        } finally {
+            bytes.reset(null, null);
+        }
+    }
+    
+    /**
+     * Encodes the given value as UTF-8 encoded JSON, straight to the given
+     * stream, as with {@link JsonObject#encode(OutputStream, Object)}. The
+     * stream is flushed, but not closed.
+     * 
+     * @param out The stream the encoded JSON will be written to.
+     * @param value The value to be encoded.
+     * @throws IOException If an error occurs while encoding.
+     * @throws NullPointerException If the stream is null.
+     */
+    public void encode(OutputStream out, Object value) throws IOException {
+        if(out == null) {
+            throw new NullPointerException("out");
+        }
+        bytes.reset(out, null);
+        long start = JsonMetrics.ENABLED ? JsonMetrics.begin(counts) : 0;
+        try {
+            JsonObject.encode(bytes, value);
+            bytes.flush();
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.encoded(counts, bytes.position(), start);
+            }
+        } finally {
+            bytes.reset(null, null);
+        }
+    }
+    
+    /**
+     * Encodes the given value as UTF-8 encoded JSON, straight to the given
+     * stream, as with {@link JsonObject#encode(OutputStream, Object, Class)}.
+     * The stream is flushed, but not closed.
+     * 
+     * @param out The stream the encoded JSON will be written to.
+     * @param value The value to be encoded.
+     * @param type The class whose fields are written.
+     * @throws IOException If an error occurs while encoding.
+     * @throws NullPointerException If the stream or the class is null.
+     */
+    public <T> void encode(OutputStream out, T value, Class<? super T> type) throws IOException {
+        if(out == null) {
+            throw new NullPointerException("out");
+        }
+        if(type == null) {
+            throw new NullPointerException("type");
+        }
+        bytes.reset(out, null);
+        long start = JsonMetrics.ENABLED ? JsonMetrics.begin(counts) : 0;
+        try {
+            Binding.encode(bytes, value, type);
+            bytes.flush();
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.encoded(counts, bytes.position(), start);
+            }
+        } finally {
+            bytes.reset(null, null);
+        }
+    }
+    
+    /**
+     * Encodes the given value as UTF-8 encoded JSON, straight to the given
+     * channel.
+     * 
+     * @param channel The channel the encoded JSON will be written to.
+     * @param value The value to be encoded.
+     * @throws IOException If an error occurs while encoding.
+     * @throws NullPointerException If the channel is null.
+     */
+    public void encode(WritableByteChannel channel, Object value) throws IOException {
+        if(channel == null) {
+            throw new NullPointerException("channel");
+        }
+        bytes.reset(null, channel);
+        long start = JsonMetrics.ENABLED ? JsonMetrics.begin(counts) : 0;
+        try {
+            JsonObject.encode(bytes, value);
+            bytes.flush();
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.encoded(counts, bytes.position(), start);
+            }
+        } finally {
+            bytes.reset(null, null);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Internal
+// Single-pass tokenizer. Each token is scanned exactly once: peek() classifies
+// the upcoming token into a single lookahead slot, and the following
+// next()/readString()/readNumber() call drains that slot without re-scanning.
+// Subclasses supply the input, as characters (CharLexer) or as UTF-8 bytes
+// (Utf8Lexer), and keep their cursor as a plain offset into a buffer so no
+// state is allocated while tokenizing.
+abstract class JsonLexer {
+    static final int BUFFER_SIZE = 8192;
+    // Initial scratch space for strings, and the most which is cleared
+    // after each document rather than let go.
+    static final int SCRATCH_SIZE = 64;
+    static final int MAX_SCRUBBED = 1 << 10;
+    
+    final NumberParser number = new NumberParser();
+    private TokenType peeked;
+    // Shared instances for object keys, or null to decode keys as any other string.
+    KeyCache keys;
+    // Counts of the tokens scanned, or null if they are not measured.
+    JsonMetrics.Counts counts;
+    // Whether a line break ends the input rather than being whitespace, as
+    // it ends each record of JSON Lines; scan() then stops at it with NONE.
+    boolean lines;
+    
+    // Skips whitespace and classifies the token under the cursor, leaving
+    // the cursor on its first character.
+    abstract TokenType scan() throws IOException;
+    
+    // Moves the cursor past the given number of characters of a structural
+    // token or literal which scan() has already checked.
+    abstract void advance(int length);
+    
+    // Decodes the string under the cursor and moves past its closing quote.
+    abstract String decodeString() throws IOException;
+    
+    // Decodes the key under the cursor through the given cache, moving past
+    // its closing quote. Subclasses look up plain keys without decoding them.
+    String decodeKey(KeyCache keys) throws IOException {
+        return decodeString();
+    }
+    
+    // Moves the cursor past the string under it without decoding it.
+    abstract void skipString() throws IOException;
+    
+    // Feeds the number under the cursor into the number parser.
+    abstract void scanNumber(NumberParser number) throws IOException;
+    
+    // Index of the next unread character, counted from the start of the input.
+    abstract long position();
+    
+    // Moves the cursor back to a value of position(). Only input still held
+    // in the buffer can be returned to, which for in-memory input is all of it.
+    abstract void seek(long position);
+    
+    // Moves past the line break under the cursor, as scan() leaves it in
+    // line mode, returning false if the cursor is not on one.
+    abstract boolean skipLineBreak();
+    
+    // Describes the character under the cursor for error messages,
+    // or returns null at the end of input.
+    abstract String current();
+    
+    // Classifies the next token without consuming it.
+    final TokenType peek() throws IOException {
+        TokenType token = peeked;
+        if(token == null) {
+            token = peeked = scan();
+            if(JsonMetrics.ENABLED && counts != null) {
+                counts.scanned(token);
+            }
+        }
+        return token;
+    }
+    
+    // Consumes the peeked structural token or literal and returns its type.
+    // Strings and numbers must be consumed through readString() and readNumber().
+    final TokenType next() throws IOException {
+        TokenType token = peek();
+        switch(token) {
+            case TRUE:
+            case NULL: advance(4); break;
+            case FALSE: advance(5); break;
+            case NONE: break;
+            case STRING:
+            case NUMBER: throw new IllegalStateException("Value tokens must be read, not skipped");
+            default: advance(1); break;
+        }
+        peeked = null;
+        return token;
+    }
+    
+    // Consumes the peeked token, skipping strings and numbers without
+    // building them.
+    final TokenType skip() throws IOException {
+        TokenType token = peek();
+        if(token == TokenType.STRING) {
+            peeked = null;
+            skipString();
+        } else if(token == TokenType.NUMBER) {
+            readNumberToken();
+        } else {
+            next();
+        }
+        return token;
+    }
+    
+    // Forgets the peeked token, as when the lexer is given new input.
+    final void clear() {
+        peeked = null;
+    }
+    
+    // Moves the cursor to the given position and forgets the peeked token.
+    final void reset(long position) {
+        peeked = null;
+        seek(position);
+    }
+    
+    // Compares the peeked string with the given value, leaving the cursor
+    // where it is. Subclasses compare plain strings without decoding them.
+    boolean stringEquals(String value) throws IOException {
+        long start = position();
+        String s = decodeString();
+        seek(start);
+        return s.equals(value);
+    }
+    
+    final String readString() throws IOException {
+        if(peek() != TokenType.STRING) {
+            throw unexpected("string");
+        }
+        peeked = null;
+        return decodeString();
+    }
+    
+    // Reads an object's key, sharing instances through the key cache if set.
+    final String readKey() throws IOException {
+        return readKey(this.keys);
+    }
+    
+    // Reads an object's key, sharing instances through the given cache if not null.
+    final String readKey(KeyCache keys) throws IOException {
+        if(keys == null) {
+            return readString();
+        }
+        if(peek() != TokenType.STRING) {
+            throw unexpected("string");
+        }
+        peeked = null;
+        return decodeKey(keys);
+    }
+    
+    // Consumes the peeked number, leaving its value in the number parser.
+    final NumberParser readNumberToken() throws IOException {
+        if(peek() != TokenType.NUMBER) {
+            throw unexpected("number");
+        }
+        peeked = null;
+        final NumberParser number = this.number;
+        number.reset();
+        scanNumber(number);
+        number.check();
+        return number;
+    }
+    
+    final Number readNumber() throws IOException {
+        return readNumberToken().finish();
+    }
+    
+    final long readLong() throws IOException {
+        NumberParser number = readNumberToken();
+        if(!number.isLong()) {
+            throw new IOException("Expected long, got " + number.finish() + " at " + position());
+        }
+        return number.longValue();
+    }
+    
+    final double readDouble() throws IOException {
+        return readNumberToken().doubleValue();
+    }
+    
+    // Skips the next value, including any nested containers, without
+    // building strings or numbers.
+    final void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            switch(peek()) {
+                case STRING:
+                    peeked = null;
+                    skipString();
+                    break;
+                case NUMBER:
+                    readNumberToken();
+                    break;
+                case BRACE_OPEN:
+                case SQUARE_OPEN:
+                    depth++;
+                    next();
+                    break;
+                case BRACE_CLOSE:
+                case SQUARE_CLOSE:
+                    if(depth == 0) {
+                        throw unexpected("value");
+                    }
+                    depth--;
+                    next();
+                    break;
+                case COMMA:
+                case COLON:
+                    if(depth == 0) {
+                        throw unexpected("value");
+                    }
+                    next();
+                    break;
+                case TRUE:
+                case FALSE:
+                case NULL:
+                    next();
+                    break;
+                default: throw unexpected("value");
+            }
+        } while(depth > 0);
+    }
+    
+    // Clears scratch space of the strings decoded into it, letting it go
+    // instead if it has grown past the size it is cheap to clear at.
+    static char[] scrub(char[] chars) {
+        if(chars.length > MAX_SCRUBBED) {
+            return new char[SCRATCH_SIZE];
+        }
+        Arrays.fill(chars, '\0');
+        return chars;
+    }
+    
+    // Returns the value of a hex digit of a \\u escape, or -1 if it is not one.
+    static int hexDigit(int c) {
+        if(c >= '0' && c <= '9') {
+            return c - '0';
+        } else if(c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if(c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+    
+    // Builds the error for a \\u escape, at the given position of its
+    // backslash, which is not followed by four hex digits.
+    static IOException invalidEscape(long position) {
+        return new IOException("Invalid unicode escape at " + position);
+    }
+    
+    // Builds the error for a peeked token that does not fit the grammar.
+    final IOException unexpected(String expected) {
+        if(peeked == TokenType.NONE) {
+            String current = current();
+            if(current == null) {
+                return new IOException("Expected " + expected + ", reached end of input");
+            }
+            return new IOException("Expected " + expected + ", got '" + current + "' at " + position());
+        }
+        return new IOException("Expected " + expected + ", got " + peeked.name() + " at " + position());
+    }
+}
@@ -0,0 +1,386 @@
+package com.eps.pson;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A reader for newline-delimited JSON (NDJSON, or JSON Lines), where each
+ * line of the input holds one JSON value. Records are decoded one at a time
+ * by a single parser reading through a fixed buffer, as with
+ * {@link JsonReader}, so memory use depends on the largest record rather
+ * than on the size of the input.
+ * <pre>
+ * try(JsonLinesReader reader = new JsonLinesReader(in)) {
+ *     while(reader.hasNext()) {
+ *         JsonObject record = (JsonObject)reader.next();
+ *     }
+ * }
+ * </pre>
+ * Each record must end at a line break or at the end of the input, so a
+ * record which spans lines, or which shares its line with another, is
+ * malformed; errors give the line of the record. Blank lines are skipped,
+ * as is any other whitespace around records. Files may be streamed with
+ * {@link #lines(Path)}, whose streams split the file at line breaks when
+ * run in parallel, and read the same records either way.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see JsonLinesWriter
+ */
+public final class JsonLinesReader implements Closeable {
+    // Ranges of a file smaller than this are not split any further.
+    static final int MIN_SPLIT = 1 << 20;
+    
+    private final Closeable in;
+    private final Records records;
+    
+    private JsonLinesReader(Closeable in, JsonLexer lexer) {
+        this.in = in;
+        this.records = new Records(lexer);
+    }
+    
+    /**
+     * Initializes a reader over the given character stream.
+     * 
+     * @param in The stream the records are read from.
+     * @throws NullPointerException If the stream is null.
+     */
+    public JsonLinesReader(Reader in) {
+        if(in == null) {
+            throw new NullPointerException("in");
+        }
+        this.in = in;
+        this.records = new Records(new CharLexer(in));
+    }
+    
+    /**
+     * Initializes a reader over the given UTF-8 encoded byte stream.
+     * 
+     * @param in The stream the records are read from.
+     * @throws NullPointerException If the stream is null.
+     */
+    public JsonLinesReader(InputStream in) {
+        this(new InputStreamReader(nonNull(in), StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Opens a reader over the UTF-8 encoded file at the given path. The file
+     * is memory-mapped rather than read through a buffer, as with
+     * {@link JsonReader#open(Path)}.
+     * 
+     * @param path The path of the file.
+     * @return A reader positioned at the first record.
+     * @throws IOException If the file cannot be opened or mapped.
+     * @throws NullPointerException If the path is null.
+     */
+    public static JsonLinesReader open(Path path) throws IOException {
+        if(path == null) {
+            throw new NullPointerException("path");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new JsonLinesReader(channel, new MappedLexer(channel));
+        } catch(IOException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+    
+    /**
+     * Streams the records of the UTF-8 encoded file at the given path. The
+     * file is memory-mapped, and when the stream runs in parallel, it is
+     * split into ranges at line breaks which are decoded on separate threads.
+     * The stream should be closed once done with, which closes the file.
+     * <pre>
+     * try(Stream&lt;Object&gt; records = JsonLinesReader.lines(path)) {
+     *     long errors = records.parallel().filter(r -&gt; isError(r)).count();
+     * }
+     * </pre>
+     * Errors while reading or decoding are thrown as {@link UncheckedIOException}.
+     * 
+     * @param path The path of the file.
+     * @return A stream of the decoded records, in order.
+     * @throws IOException If the file cannot be opened.
+     * @throws NullPointerException If the path is null.
+     */
+    public static Stream<Object> lines(Path path) throws IOException {
+        if(path == null) {
+            throw new NullPointerException("path");
+        }
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return StreamSupport.stream(new Lines(channel, 0, channel.size()), false).onClose(closer(channel));
+        } catch(IOException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+    
+    private static InputStream nonNull(InputStream in) {
+        if(in == null) {
+            throw new NullPointerException("in");
+        }
+        return in;
+    }
+    
+    /**
+     * Checks whether any records are left. A record which is malformed
+     * still counts, and fails once read with {@link #next()}.
+     * 
+     * @return True if another record follows.
+     * @throws IOException If an error occurs while reading.
+     */
+    public boolean hasNext() throws IOException {
+        return records.hasNext();
+    }
+    
+    /**
+     * Decodes the next record.
+     * 
+     * @return The decoded record, as {@link JsonObject#decode(String)} would return it.
+     * @throws IOException If the record is malformed or does not end its
+     * line, or an error occurs while reading.
+     * @throws NoSuchElementException If no records are left.
+     */
+    public Object next() throws IOException {
+        return records.next();
+    }
+    
+    /**
+     * Streams the remaining records. Errors while reading or decoding are
+     * thrown as {@link UncheckedIOException}. Closing the stream closes
+     * this reader.
+     * 
+     * @return A sequential stream of the decoded records, in order.
+     */
+    public Stream<Object> stream() {
+        Iterator<Object> records = new Iterator<Object>() {
+            public boolean hasNext() {
+                try {
+                    return JsonLinesReader.this.hasNext();
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            public Object next() {
+                try {
+                    return JsonLinesReader.this.next();
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        Spliterator<Object> spliterator = Spliterators.spliteratorUnknownSize(records, Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false).onClose(closer(this));
+    }
+    
+    // Returns a stream close handler which closes the given resource.
+    private static Runnable closer(final Closeable resource) {
+        return new Runnable() {
+            public void run() {
+                try {
+                    resource.close();
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+    
+    /**
+     * Gets the number of characters consumed so far, or of bytes
+     * for a reader opened over a file.
+     * 
+     * @return The position of this reader in the input.
+     */
+    public long getPosition() {
+        return records.lexer.position();
+    }
+    
+    /**
+     * Closes the underlying stream.
+     * 
+     * @throws IOException If an error occurs while closing.
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    // Reads records one line at a time, with the lexer in line mode so that
+    // a line break ends each record as the end of the input would.
+    private static class Records {
+        final JsonLexer lexer;
+        private final JsonParser parser;
+        // Line of the next record, counted from the start of the input read.
+        private long line = 1;
+        
+        Records(JsonLexer lexer) {
+            this.lexer = lexer;
+            this.parser = new JsonParser(lexer);
+            lexer.lines = true;
+        }
+        
+        // Number of lines before the start of the input read, for errors.
+        long linesBefore() throws IOException {
+            return 0;
+        }
+        
+        // Skips blank lines, and returns whether anything but whitespace is left.
+        boolean hasNext() throws IOException {
+            while(lexer.peek() == TokenType.NONE) {
+                if(!lexer.skipLineBreak()) {
+                    return lexer.current() != null;
+                }
+                line++;
+            }
+            return true;
+        }
+        
+        Object next() throws IOException {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Object record = parser.decodeValue();
+                TokenType token = lexer.peek();
+                if(token == TokenType.NONE && lexer.skipLineBreak()) {
+                    line++;
+                } else if(token != TokenType.NONE || lexer.current() != null) {
+                    throw lexer.unexpected("line break");
+                }
+                return record;
+            } catch(IOException e) {
+                throw new IOException(e.getMessage() + " on line " + (linesBefore() + line), e);
+            }
+        }
+    }
+    
+    // The records of a range of a file, which splits in two at the line break
+    // nearest its middle. The range is mapped once records are first read.
+    private static final class Lines implements Spliterator<Object> {
+        private final FileChannel channel;
+        private long start;
+        private final long end;
+        private Records records;
+        
+        Lines(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+        
+        public boolean tryAdvance(Consumer<? super Object> action) {
+            try {
+                if(records == null) {
+                    if(start == end) {
+                        return false;
+                    }
+                    final long first = start;
+                    records = new Records(new MappedLexer(channel, first, end, MappedLexer.WINDOW_SIZE)) {
+                        // Lines before the range, counted on the first error
+                        // only; those within it are counted as it is read.
+                        private long before = -1;
+                        
+                        long linesBefore() throws IOException {
+                            if(before < 0) {
+                                before = lineBreaks(first);
+                            }
+                            return before;
+                        }
+                    };
+                }
+                if(!records.hasNext()) {
+                    return false;
+                }
+                action.accept(records.next());
+                return true;
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        public Spliterator<Object> trySplit() {
+            if(records != null || end - start < MIN_SPLIT) {
+                return null;
+            }
+            try {
+                long cut = lineBreak(start + (end - start) / 2);
+                if(cut < 0) {
+                    return null;
+                }
+                Lines prefix = new Lines(channel, start, cut + 1);
+                start = cut + 1;
+                return prefix;
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        // Returns the position of the first line break at or after the given
+        // one and before the end of the range, or -1 if there is none.
+        private long lineBreak(long from) throws IOException {
+            ByteBuffer chunk = ByteBuffer.allocate(JsonLexer.BUFFER_SIZE);
+            while(from < end) {
+                chunk.clear();
+                chunk.limit((int)Math.min(chunk.capacity(), end - from));
+                int n = channel.read(chunk, from);
+                if(n < 0) {
+                    break;
+                }
+                for(int i = 0; i < n; i++) {
+                    if(chunk.get(i) == '\n') {
+                        return from + i;
+                    }
+                }
+                from += n;
+            }
+            return -1;
+        }
+        
+        // Counts the line breaks of the file before the given position.
+        private long lineBreaks(long to) throws IOException {
+            ByteBuffer chunk = ByteBuffer.allocate(JsonLexer.BUFFER_SIZE);
+            long count = 0;
+            for(long from = 0; from < to;) {
+                chunk.clear();
+                chunk.limit((int)Math.min(chunk.capacity(), to - from));
+                int n = channel.read(chunk, from);
+                if(n < 0) {
+                    break;
+                }
+                for(int i = 0; i < n; i++) {
+                    if(chunk.get(i) == '\n') {
+                        count++;
+                    }
+                }
+                from += n;
+            }
+            return count;
+        }
+        
+        public long estimateSize() {
+            return records == null ? end - start : Long.MAX_VALUE;
+        }
+        
+        public int characteristics() {
+            return ORDERED;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.eps.pson;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A writer for newline-delimited JSON (NDJSON, or JSON Lines), which encodes
+ * each record on a line of its own. Records are encoded straight into the
+ * destination, through a {@link Utf8JsonWriter} for streams and channels,
+ * so no String is created for a record.
+ * <pre>
+ * try(JsonLinesWriter writer = new JsonLinesWriter(out)) {
+ *     for(JsonObject record : records) {
+ *         writer.write(record);
+ *     }
+ * }
+ * </pre>
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see JsonLinesReader
+ */
+public final class JsonLinesWriter implements Closeable, Flushable {
+    private final Writer out;
+    
+    /**
+     * Initializes a writer which encodes records as UTF-8 to the given stream.
+     * 
+     * @param out The stream the records are written to.
+     * @throws NullPointerException If the stream is null.
+     */
+    public JsonLinesWriter(OutputStream out) {
+        this.out = new Utf8JsonWriter(out);
+    }
+    
+    /**
+     * Initializes a writer which encodes records as UTF-8 to the given channel.
+     * 
+     * @param channel The channel the records are written to.
+     * @throws NullPointerException If the channel is null.
+     */
+    public JsonLinesWriter(WritableByteChannel channel) {
+        this.out = new Utf8JsonWriter(channel);
+    }
+    
+    /**
+     * Initializes a writer which writes records to the given character stream.
+     * Pretty printing writers such as {@link JsonWriter} should not be used,
+     * as a record must fit on one line.
+     * 
+     * @param out The stream the records are written to.
+     * @throws NullPointerException If the stream is null.
+     */
+    public JsonLinesWriter(Writer out) {
+        if(out == null) {
+            throw new NullPointerException("out");
+        }
+        this.out = out;
+    }
+    
+    /**
+     * Encodes the given record, followed by a line break.
+     * 
+     * @param record The value to be encoded.
+     * @return This writer.
+     * @throws IOException If an error occurs while writing.
+     */
+    public JsonLinesWriter write(Object record) throws IOException {
+        JsonObject.encode(out, record);
+        out.write('\n');
+        return this;
+    }
+    
+    /**
+     * Writes any buffered records to the destination and flushes it.
+     * 
+     * @throws IOException If an error occurs while writing.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    /**
+     * Flushes this writer, then closes the destination.
+     * 
+     * @throws IOException If an error occurs while writing or closing.
+     */
+    public void close() throws IOException {
+        out.close();
+    }
+}
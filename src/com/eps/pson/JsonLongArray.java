@@ -0,0 +1,79 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A JSON array of integers, held in a {@code long[]} rather than as boxed
+ * {@link Long}s. Decoding returns one for every non-empty array whose
+ * elements are all integers which fit in a long.
+ * <br>
+ * <br>
+ * Reading the array, whether by index, by iterating or streaming over it,
+ * by searching it or by comparing it, is served from the primitive array
+ * and boxes only the element being read; {@link #getLong(int)},
+ * {@link #getDouble(int)} and encoding box nothing. Changing the array boxes
+ * every element into the list first, after which it behaves like any other
+ * {@link JsonArray}.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see JsonDoubleArray
+ */
+public final class JsonLongArray extends PrimitiveJsonArray {
+    private static final long serialVersionUID = 1L;
+    
+    private long[] values;
+    
+    /**
+     * Initializes an array holding a copy of the given values.
+     * 
+     * @param values The elements of this array.
+     * @throws NullPointerException If the values are null.
+     */
+    public JsonLongArray(long[] values) {
+        this.values = values.clone();
+    }
+    
+    // Takes ownership of the first length values of the given array.
+    JsonLongArray(long[] values, int length) {
+        this.values = length == values.length ? values : Arrays.copyOf(values, length);
+    }
+    
+    int length() {
+        return values.length;
+    }
+    
+    Object element(int k) {
+        return Long.valueOf(values[k]);
+    }
+    
+    void writeElement(Writer out, int k) throws IOException {
+        JsonObject.writeLong(out, values[k]);
+    }
+    
+    boolean matches(int k, Object o) {
+        return o instanceof Long && ((Long)o).longValue() == values[k];
+    }
+    
+    int hashAt(int k) {
+        return Long.hashCode(values[k]);
+    }
+    
+    void release() {
+        values = null;
+    }
+    
+    public long getLong(int index) {
+        if(!isDeferred()) {
+            return super.getLong(index);
+        }
+        check(index);
+        return values[index];
+    }
+    
+    public double getDouble(int index) {
+        return isDeferred() ? getLong(index) : super.getDouble(index);
+    }
+}
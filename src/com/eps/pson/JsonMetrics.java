@@ -0,0 +1,224 @@
+package com.eps.pson;
+
+/**
+ * Reports measurements of each document decoded by a {@link JsonDecoder} and
+ * each value encoded by a {@link JsonEncoder}, which the static methods of
+ * {@link JsonObject} use for strings, byte arrays, buffers and streams, to a
+ * {@link Listener}. Measuring is enabled for the life of the JVM by the
+ * system property <code>com.eps.pson.metrics</code>:
+ * <pre>
+ * -Dcom.eps.pson.metrics=true   listener set with setListener()
+ * -Dcom.eps.pson.metrics=jfr    JDK Flight Recorder events
+ * </pre>
+ * Without it, the counting in the lexers and writers is behind a constant
+ * which the compiler removes, so decoding and encoding cost nothing more.
+ * With it, each decoder and encoder counts into space of its own, and
+ * reports to the listener without allocating.
+ * <br>
+ * <br>
+ * Tokens are the values and keys of a document, objects and arrays each
+ * counted once; strings include keys. Input and output are counted in
+ * characters for strings, and in bytes for UTF-8. Only documents decoded or
+ * encoded in full are reported, and the encodings kept by
+ * {@link CachedJsonObject} and {@link CachedJsonArray} count as their bytes
+ * only.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ */
+public final class JsonMetrics {
+    /**
+     * Receives the measurements of each document. Listeners are called on
+     * the thread which decoded or encoded it, and should return quickly.
+     * 
+     * @since 0.2
+     * @author David Vallee
+     */
+    public interface Listener {
+        /**
+         * Receives the measurements of a decoded document.
+         * 
+         * @param input The length of the document.
+         * @param tokens The number of values and keys read.
+         * @param depth The deepest nesting of objects and arrays.
+         * @param strings The number of strings read, keys included.
+         * @param numbers The number of numbers read.
+         * @param nanos The time taken, in nanoseconds.
+         */
+        void decoded(long input, long tokens, int depth, long strings, long numbers, long nanos);
+        
+        /**
+         * Receives the measurements of an encoded value.
+         * 
+         * @param output The length of the encoded value.
+         * @param tokens The number of values and keys written.
+         * @param depth The deepest nesting of objects and arrays.
+         * @param strings The number of strings written, keys included.
+         * @param numbers The number of numbers written.
+         * @param nanos The time taken, in nanoseconds.
+         */
+        void encoded(long output, long tokens, int depth, long strings, long numbers, long nanos);
+    }
+    
+    private static final String PROPERTY = "com.eps.pson.metrics";
+    
+    static final boolean ENABLED;
+    private static volatile Listener listener;
+    
+    static {
+        String value = System.getProperty(PROPERTY, "");
+        ENABLED = value.equals("true") || value.equals("jfr");
+        if(value.equals("jfr")) {
+            try {
+                listener = flightRecorder();
+            } catch(UnsupportedOperationException e) {
+                // Measured, but reported only to a listener set later.
+            }
+        }
+    }
+    
+    private JsonMetrics() {
+    }
+    
+    /**
+     * Gets whether measuring was enabled by the system property.
+     * 
+     * @return True if documents are measured.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+    
+    /**
+     * Sets the listener every measurement is reported to, in place of any
+     * set before.
+     * 
+     * @param listener The listener, or null for none.
+     * @throws IllegalStateException If measuring was not enabled by the
+     * system property <code>com.eps.pson.metrics</code>.
+     */
+    public static void setListener(Listener listener) {
+        if(!ENABLED) {
+            throw new IllegalStateException("Metrics are not enabled, see " + PROPERTY);
+        }
+        JsonMetrics.listener = listener;
+    }
+    
+    /**
+     * Gets the listener measurements are reported to.
+     * 
+     * @return The listener, or null if there is none.
+     */
+    public static Listener getListener() {
+        return listener;
+    }
+    
+    /**
+     * Creates a listener which commits a JDK Flight Recorder event for each
+     * measurement, <code>com.eps.pson.Decode</code> or
+     * <code>com.eps.pson.Encode</code>, in the category "JSON". The events
+     * are recorded like any other, as configured for the recording.
+     * 
+     * @return The listener.
+     * @throws UnsupportedOperationException If the JVM is older than Java 11,
+     * or has no Flight Recorder.
+     */
+    public static Listener flightRecorder() {
+        try {
+            return (Listener)Class.forName("com.eps.pson.FlightRecorderListener").newInstance();
+        } catch(ReflectiveOperationException | LinkageError e) {
+            throw new UnsupportedOperationException("Flight Recorder events need Java 11 or later");
+        }
+    }
+    
+    // Starts measuring into the given counts, returning the start time.
+    static long begin(Counts counts) {
+        counts.reset();
+        return System.nanoTime();
+    }
+    
+    static void decoded(Counts counts, long input, long start) {
+        Listener listener = JsonMetrics.listener;
+        if(listener != null) {
+            listener.decoded(input, counts.tokens(), counts.maxDepth, counts.strings, counts.numbers,
+                    System.nanoTime() - start);
+        }
+    }
+    
+    static void encoded(Counts counts, long output, long start) {
+        Listener listener = JsonMetrics.listener;
+        if(listener != null) {
+            listener.encoded(output, counts.tokens(), counts.maxDepth, counts.strings, counts.numbers,
+                    System.nanoTime() - start);
+        }
+    }
+    
+    // Returns the counts of the given writer, or null if it has none.
+    static Counts of(Object out) {
+        if(out instanceof Utf8JsonWriter) {
+            return ((Utf8JsonWriter)out).counts;
+        } else if(out instanceof JsonWriter) {
+            return ((JsonWriter)out).counts;
+        }
+        return null;
+    }
+    
+    // Counts a token written to the given writer, if it keeps counts.
+    static void wrote(Object out, TokenType token) {
+        Counts counts = of(out);
+        if(counts != null) {
+            counts.scanned(token);
+        }
+    }
+    
+    // Counts of one document, kept by a decoder's lexers or an encoder's
+    // writers, and filled in only while measuring is enabled.
+    static final class Counts {
+        long strings;
+        long numbers;
+        long literals;
+        long containers;
+        int depth;
+        int maxDepth;
+        
+        void reset() {
+            strings = 0;
+            numbers = 0;
+            literals = 0;
+            containers = 0;
+            depth = 0;
+            maxDepth = 0;
+        }
+        
+        long tokens() {
+            return strings + numbers + literals + containers;
+        }
+        
+        void open() {
+            containers++;
+            if(++depth > maxDepth) {
+                maxDepth = depth;
+            }
+        }
+        
+        void close() {
+            depth--;
+        }
+        
+        // Counts a token as scanned by a lexer.
+        void scanned(TokenType token) {
+            switch(token) {
+                case STRING: strings++; break;
+                case NUMBER: numbers++; break;
+                case TRUE:
+                case FALSE:
+                case NULL: literals++; break;
+                case BRACE_OPEN:
+                case SQUARE_OPEN: open(); break;
+                case BRACE_CLOSE:
+                case SQUARE_CLOSE: close(); break;
+                default: break;
+            }
+        }
+    }
+}
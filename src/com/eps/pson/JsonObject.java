@@ -1,12 +1,18 @@
 package com.eps.pson;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Represents a JSON object, retains order of insertion.
@@ -18,6 +24,24 @@ import java.util.Map;
  * @see LinkedHashMap
  */
 public class JsonObject extends LinkedHashMap<Object, Object> implements JsonSerializable {
+    // Escape for each char below 0x80: 0 if it is written as is, 'u' for
+    // the "\\uXXXX" form, or the char following the backslash otherwise.
+    static final char[] ESCAPES = new char[0x80];
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    
+    static {
+        for(int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = 'u';
+        }
+        ESCAPES[0x7F] = 'u';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+    }
     
     public void writeJson(Writer out) throws IOException {
         write(out, this);
@@ -29,30 +53,54 @@ public class JsonObject extends LinkedHashMap<Object, Object> implements JsonSer
         }
         if(object == null) {
             out.write("null");
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.wrote(out, TokenType.NULL);
+            }
             return;
         }
+        StructuredWriter layout = out instanceof StructuredWriter ? (StructuredWriter)out : null;
+        if(layout != null) {
+            layout.beginObject();
+        } else {
+            out.write('{');
+        }
         Iterator<?> iter = object.entrySet().iterator();
         boolean first = true;
-        out.write('{');
         while(iter.hasNext()) {
-            if(first) first = false;
-            else {
+            if(layout != null) {
+                layout.separator(first);
+            } else if(!first) {
                 out.write(',');
             }
+            first = false;
             Map.Entry<?, ?> entry = (Map.Entry<?, ?>)iter.next();
-            out.write('\"');
-            out.write(escape(String.valueOf(entry.getKey())));
-            out.write('\"');
+            writeString(out, String.valueOf(entry.getKey()));
             out.write(':');
             encode(out, entry.getValue());
         }
-        out.write('}');
+        if(layout != null) {
+            layout.endObject(first);
+        } else {
+            out.write('}');
+        }
     }
     
     /**
      * Encodes the given value to a JSON-compatible string, using the 
-     * given writer. If the given writer is an instance of {@link JsonWriter},
-     * the JSON string is "pretty-ified".
+     * given writer. If the given writer is a {@link StructuredWriter}, such
+     * as {@link JsonWriter}, it lays out the objects and arrays, which
+     * "pretty-ifies" the JSON string if it is set to do so.
+     * <br>
+     * <br>
+     * Iterators, streams, and Iterables other than lists are written as
+     * arrays, each element pulled only once the one before it is written,
+     * and a {@link Supplier} as the value it supplies when it is reached,
+     * so that output need not exist in memory before it is written. Objects
+     * may be pulled the same way, from {@link #lazyObject(Iterator)}. Written
+     * to a stream through a {@link Utf8JsonWriter}, as by
+     * {@link #encode(OutputStream, Object)}, these are flushed to the stream
+     * as the buffer fills, and take constant memory however long they are.
+     * Streams are not closed.
      * 
      * @param out The {@link Writer} the JSON string will be written to.
      * @param value The value to be encoded into a JSON string.
@@ -63,20 +111,24 @@ public class JsonObject extends LinkedHashMap<Object, Object> implements JsonSer
             throw new NullPointerException("out");
         }
         if(value instanceof String) {
-            out.write('\"');
-            out.write(escape((String)value));
-            out.write('\"');
+            writeString(out, (String)value);
             return;
         } else if(value instanceof Double) {
-            Double v = (Double)value;
-            if(v.isInfinite() || v.isNaN()) {
-                out.write("null");
-            } else {
-                out.write(v.toString());
-            }
+            writeDouble(out, ((Double)value).doubleValue());
             return;
+        } else if(value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            writeLong(out, ((Number)value).longValue());
         } else if(value instanceof Number) {
             out.write(value.toString());
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.wrote(out, TokenType.NUMBER);
+            }
+        } else if(value instanceof Boolean) {
+            out.write(((Boolean)value).booleanValue() ? "true" : "false");
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.wrote(out, TokenType.TRUE);
+            }
         } else if(value instanceof JsonSerializable) {
             ((JsonSerializable)value).writeJson(out);
             return;
@@ -86,15 +138,63 @@ public class JsonObject extends LinkedHashMap<Object, Object> implements JsonSer
         } else if(value instanceof List) {
             JsonArray.write(out, (List<?>)value);
             return;
+        } else if(value instanceof Supplier) {
+            encode(out, ((Supplier<?>)value).get());
+            return;
+        } else if(JsonArray.isLazy(value)) {
+            JsonArray.writeLazy(out, value);
+            return;
         } else if(value instanceof Object) {
-            out.write('\"');
-            out.write(escape(value.toString()));
-            out.write('\"');
+            writeString(out, value.toString());
         } else {
             out.write(String.valueOf(value));
+            if(JsonMetrics.ENABLED) {
+                JsonMetrics.wrote(out, TokenType.NULL);
+            }
         }
     }
     
+    // Writes the given number without boxing it.
+    static void writeLong(Writer out, long value) throws IOException {
+        if(JsonMetrics.ENABLED) {
+            JsonMetrics.wrote(out, TokenType.NUMBER);
+        }
+        if(out instanceof Utf8JsonWriter) {
+            ((Utf8JsonWriter)out).writeLong(value);
+        } else {
+            out.write(Long.toString(value));
+        }
+    }
+    
+    // Writes the given number without boxing it, or null if it is not finite.
+    static void writeDouble(Writer out, double value) throws IOException {
+        boolean finite = !Double.isInfinite(value) && !Double.isNaN(value);
+        if(JsonMetrics.ENABLED) {
+            JsonMetrics.wrote(out, finite ? TokenType.NUMBER : TokenType.NULL);
+        }
+        if(!finite) {
+            out.write("null");
+        } else if(out instanceof Utf8JsonWriter) {
+            ((Utf8JsonWriter)out).writeDouble(value);
+        } else {
+            out.write(Double.toString(value));
+        }
+    }
+    
+    // Writes the given string quoted and escaped, straight into the writer.
+    static void writeString(Writer out, String value) throws IOException {
+        if(JsonMetrics.ENABLED) {
+            JsonMetrics.wrote(out, TokenType.STRING);
+        }
+        if(out instanceof Utf8JsonWriter) {
+            ((Utf8JsonWriter)out).writeQuoted(value);
+            return;
+        }
+        out.write('\"');
+        escape(out, value);
+        out.write('\"');
+    }
+    
     /**
      * Returns a JSON string representation of this object.
      * 
@@ -116,44 +216,40 @@ public class JsonObject extends LinkedHashMap<Object, Object> implements JsonSer
         return encode(this);
     }
     
-    private static void escape(StringBuffer out, String value) {
-        if(out == null) {
-            throw new NullPointerException("out");
-        }
-        for(int i = 0; i < value.length(); i++) {
+    // Writes the given string with escapes, copying runs that need no escaping
+    // in one call. Characters below 0x80 are looked up in ESCAPES.
+    private static void escape(Writer out, String value) throws IOException {
+        final int len = value.length();
+        int start = 0;
+        for(int i = 0; i < len; i++) {
             char ch = value.charAt(i);
-            switch(ch) {
-                case '"': out.append("\\\""); break;
-                case '\\': out.append("\\\\"); break;
-                case '\b': out.append("\\b"); break;
-                case '\f': out.append("\\f"); break;
-                case '\n': out.append("\\n"); break;
-                case '\r': out.append("\\r"); break;
-                case '\t': out.append("\\t"); break;
-                default:
-                    if((ch >= '\u0000' && ch <= '\u001F')
-                            || (ch >= '\u007F' && ch <= '\u009F')
-                            || (ch >= '\u2000' && ch <= '\u20FF')) {
-                        String ss = Integer.toHexString(ch);
-                        out.append("\\u");
-                        for (int k = 0; k < 4 - ss.length(); k++) {
-                            out.append('0');
-                        }
-                        out.append(ss.toUpperCase());
-                    } else {
-                        out.append(ch);
-                    }
+            char escape;
+            if(ch < 0x80) {
+                escape = ESCAPES[ch];
+                if(escape == 0) {
+                    continue;
+                }
+            } else if(ch <= '\u009F' || (ch >= '\u2000' && ch <= '\u20FF')) {
+                escape = 'u';
+            } else {
+                continue;
+            }
+            if(i > start) {
+                out.write(value, start, i - start);
             }
+            out.write('\\');
+            out.write(escape);
+            if(escape == 'u') {
+                out.write(HEX[(ch >> 12) & 0xF]);
+                out.write(HEX[(ch >> 8) & 0xF]);
+                out.write(HEX[(ch >> 4) & 0xF]);
+                out.write(HEX[ch & 0xF]);
+            }
+            start = i + 1;
         }
-    }
-    
-    private static String escape(String value) {
-        if(value == null) {
-            return null;
+        if(start < len) {
+            out.write(value, start, len - start);
         }
-        StringBuffer out = new StringBuffer();
-        escape(out, value);
-        return out.toString();
     }
     
     /**
@@ -164,9 +260,92 @@ public class JsonObject extends LinkedHashMap<Object, Object> implements JsonSer
      * @throws IOException If an error occurs while encoding.
      */
     public static String encode(Object value) throws IOException {
-        StringWriter out = new StringWriter();
-        encode(out, value);
-        return out.toString();
+        JsonEncoder encoder = JsonEncoder.take();
+        try {
+            return encoder.encode(value);
+        } finally {
+            JsonEncoder.give(encoder);
+        }
+    }
+    
+    /**
+     * Encodes the given value as UTF-8 encoded JSON, straight to the given
+     * stream. The stream is flushed, but not closed.
+     * 
+     * @param out The stream the encoded JSON will be written to.
+     * @param value The value to be encoded.
+     * @throws IOException If an error occurs while encoding.
+     * @see Utf8JsonWriter
+     */
+    public static void encode(OutputStream out, Object value) throws IOException {
+        JsonEncoder encoder = JsonEncoder.take();
+        try {
+            encoder.encode(out, value);
+        } finally {
+            JsonEncoder.give(encoder);
+        }
+    }
+    
+    /**
+     * Encodes the given instance of a class to a JSON string, as an object
+     * of its fields, as {@link #decode(String, Class)} reads them. Elements
+     * of arrays, collections and maps are bound by their own classes, enums
+     * are written as their names, and other classes of the Java platform
+     * as with {@link #encode(Object)}.
+     * 
+     * @param value The value to be encoded.
+     * @param type The class whose fields are written.
+     * @return The JSON string.
+     * @throws IOException If an error occurs while encoding.
+     * @throws NullPointerException If the class is null.
+     * @since 0.2
+     */
+    public static <T> String encode(T value, Class<? super T> type) throws IOException {
+        JsonEncoder encoder = JsonEncoder.take();
+        try {
+            return encoder.encode(value, type);
+        } finally {
+            JsonEncoder.give(encoder);
+        }
+    }
+    
+    /**
+     * Encodes the given instance of a class as UTF-8 encoded JSON, straight
+     * to the given stream, as with {@link #encode(Object, Class)}. The stream
+     * is flushed, but not closed.
+     * 
+     * @param out The stream the encoded JSON will be written to.
+     * @param value The value to be encoded.
+     * @param type The class whose fields are written.
+     * @throws IOException If an error occurs while encoding.
+     * @throws NullPointerException If the stream or the class is null.
+     * @since 0.2
+     */
+    public static <T> void encode(OutputStream out, T value, Class<? super T> type) throws IOException {
+        JsonEncoder encoder = JsonEncoder.take();
+        try {
+            encoder.encode(out, value, type);
+        } finally {
+            JsonEncoder.give(encoder);
+        }
+    }
+    
+    /**
+     * Encodes the given value as UTF-8 encoded JSON, straight to the given
+     * stream, as with {@link #encode(OutputStream, Object)}, but encoding
+     * large arrays and objects on several threads. The output is the same.
+     * The stream is flushed, but not closed.
+     * 
+     * @param out The stream the encoded JSON will be written to.
+     * @param value The value to be encoded.
+     * @throws IOException If an error occurs while encoding.
+     * @see Utf8JsonWriter#writeValueParallel(Object)
+     * @since 0.2
+     */
+    public static void encodeParallel(OutputStream out, Object value) throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter(out);
+        writer.writeValueParallel(value);
+        writer.flush();
     }
     
     /**
@@ -177,10 +356,129 @@ public class JsonObject extends LinkedHashMap<Object, Object> implements JsonSer
      * @throws IOException If an error occurs while encoding.
      */
     public static String encodePretty(Object value) throws IOException {
-        @SuppressWarnings("resource")
-        JsonWriter out = new JsonWriter().setPrettyPrinting(true);
-        encode(out, value);
-        return out.toString();
+        JsonEncoder encoder = JsonEncoder.take();
+        try {
+            return encoder.setPrettyPrinting(true).encode(value);
+        } finally {
+            JsonEncoder.give(encoder);
+        }
+    }
+    
+    /**
+     * Copies the given value, with every {@link JsonObject} and
+     * {@link JsonArray} in it, and every other map and list which is not
+     * {@link JsonSerializable}, copied into a {@link CachedJsonObject} or
+     * {@link CachedJsonArray}, which keep their encoding from one encode to
+     * the next. Other values are held as they are.
+     * <pre>
+     * JsonObject catalog = (JsonObject)JsonObject.cached(JsonObject.decode(json));
+     * </pre>
+     * 
+     * @param value The value to be copied.
+     * @return The copy, or the value itself if it is not a map or list.
+     * @since 0.2
+     */
+    public static Object cached(Object value) {
+        if(value instanceof Map && isModel(value, JsonObject.class)) {
+            CachedJsonObject object = new CachedJsonObject();
+            for(Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                object.put(entry.getKey(), cached(entry.getValue()));
+            }
+            return object;
+        } else if(value instanceof List && isModel(value, JsonArray.class)) {
+            List<?> list = (List<?>)value;
+            CachedJsonArray array = new CachedJsonArray();
+            array.ensureCapacity(list.size());
+            for(Object element : list) {
+                array.add(cached(element));
+            }
+            return array;
+        }
+        return value;
+    }
+    
+    /**
+     * Returns a value encoded as a JSON object whose entries are pulled from
+     * the given iterator, each only once the one before it has been written,
+     * as iterators are encoded as arrays. Written to a stream, the output is
+     * flushed as the buffer fills, so an object of any size is encoded in
+     * constant memory. The entries can be encoded only once.
+     * <pre>
+     * JsonObject.encode(outputStream, JsonObject.lazyObject(totalsByRegion()));
+     * </pre>
+     * 
+     * @param entries The entries of the object, keyed by any value whose
+     * string is the key.
+     * @return A value to be encoded.
+     * @throws NullPointerException If the iterator is null.
+     * @since 0.2
+     */
+    public static JsonSerializable lazyObject(Iterator<? extends Map.Entry<?, ?>> entries) {
+        if(entries == null) {
+            throw new NullPointerException("entries");
+        }
+        return new PulledJsonObject(entries);
+    }
+    
+    /**
+     * Returns a value encoded as a JSON object whose entries are pulled from
+     * the given stream, as with {@link #lazyObject(Iterator)}. The stream is
+     * not closed.
+     * 
+     * @param entries The entries of the object.
+     * @return A value to be encoded.
+     * @throws NullPointerException If the stream is null.
+     * @since 0.2
+     */
+    public static JsonSerializable lazyObject(Stream<? extends Map.Entry<?, ?>> entries) {
+        if(entries == null) {
+            throw new NullPointerException("entries");
+        }
+        return new PulledJsonObject(entries.iterator());
+    }
+    
+    // Whether the value is a map or list encoded by its contents, rather
+    // than through a writeJson() of its own which its copy would not have.
+    private static boolean isModel(Object value, Class<?> type) {
+        return !(value instanceof JsonSerializable) || value.getClass() == type
+                || value instanceof DeferredJsonObject || value instanceof DeferredJsonArray
+                || value instanceof CachedJsonObject || value instanceof CachedJsonArray;
+    }
+    
+    /**
+     * Encodes the given value as CBOR (RFC 8949), a binary form of the same
+     * values JSON holds, which is smaller than JSON text and needs no text
+     * parsing to decode. Values are taken from the same model as with
+     * {@link #encode(Object)}, and {@link #decodeCbor(byte[], int, int)}
+     * returns what {@link #decode(String)} would have for the JSON. Numbers
+     * keep their binary form, integers in as few bytes as hold them, and
+     * doubles as floats when a float holds them exactly. Other
+     * {@link JsonSerializable} types are encoded from the JSON they write.
+     * 
+     * @param value The value to be encoded.
+     * @return The CBOR encoded value.
+     * @throws IOException If an error occurs while encoding.
+     * @since 0.2
+     */
+    public static byte[] encodeCbor(Object value) throws IOException {
+        return CborWriter.encode(value);
+    }
+    
+    /**
+     * Encodes the given value as CBOR, straight to the given stream, as with
+     * {@link #encodeCbor(Object)}. The stream is flushed, but not closed.
+     * 
+     * @param out The stream the encoded value will be written to.
+     * @param value The value to be encoded.
+     * @throws IOException If an error occurs while encoding.
+     * @throws NullPointerException If the stream is null.
+     * @since 0.2
+     */
+    public static void encodeCbor(OutputStream out, Object value) throws IOException {
+        if(out == null) {
+            throw new NullPointerException("out");
+        }
+        CborWriter.encode(out, value);
     }
     
     /**
@@ -190,7 +488,9 @@ public class JsonObject extends LinkedHashMap<Object, Object> implements JsonSer
      * <li>Object - Represented by {@link JsonObject}, or a {@link HashMap}.</li>
      * <li>String - Represented by {@link String}.</li>
      * <li>Array - Represented by {@link JsonArray}, or {@link ArrayList}</li>
-     * <li>Number - Represented by {@link Double}, so as not to lose precision.</li>
+     * <li>Number - Represented by {@link Long} for integers and {@link Double}
+     * for floating points, or {@link java.math.BigInteger} and
+     * {@link java.math.BigDecimal} for those beyond their range.</li>
      * <li>Boolean - Represented by the {@code boolean} primitive type.</li>
      * <li>Null/Undefined - Represented by, surprise, {@code null}.</li>
      * <br>
@@ -201,9 +501,448 @@ public class JsonObject extends LinkedHashMap<Object, Object> implements JsonSer
      * @throws NullPointerException If the JSON string is null.
      */
     public static Object decode(String json) throws IOException {
+        return decode(json, (KeyCache)null);
+    }
+    
+    /**
+     * Decodes the given JSON string as with {@link #decode(String)}, sharing
+     * one String instance for every occurrence of a key through the given
+     * cache.
+     * 
+     * @param json The JSON string to be decoded.
+     * @param keys The cache object keys are looked up in, or null for none.
+     * @return The respective value in code of the JSON string.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the JSON string is null.
+     * @since 0.2
+     */
+    public static Object decode(String json, KeyCache keys) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        JsonDecoder decoder = JsonDecoder.take();
+        try {
+            return decoder.setKeyCache(keys).decode(json);
+        } finally {
+            JsonDecoder.give(decoder);
+        }
+    }
+    
+    /**
+     * Decodes the given range of UTF-8 encoded bytes, attempting to convert
+     * it to the appropriate value, as with {@link #decode(String)}. The bytes
+     * are read in place; only keys and string values are copied out.
+     * 
+     * @param json The array holding the UTF-8 encoded JSON document.
+     * @param offset The index of the first byte of the document.
+     * @param length The number of bytes in the document.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the array is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     */
+    public static Object decode(byte[] json, int offset, int length) throws IOException {
+        return decode(json, offset, length, (KeyCache)null);
+    }
+    
+    /**
+     * Decodes the given range of UTF-8 encoded bytes as with
+     * {@link #decode(byte[], int, int)}, sharing one String instance for
+     * every occurrence of a key through the given cache.
+     * 
+     * @param json The array holding the UTF-8 encoded JSON document.
+     * @param offset The index of the first byte of the document.
+     * @param length The number of bytes in the document.
+     * @param keys The cache object keys are looked up in, or null for none.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the array is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     * @since 0.2
+     */
+    public static Object decode(byte[] json, int offset, int length, KeyCache keys) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        JsonDecoder decoder = JsonDecoder.take();
+        try {
+            return decoder.setKeyCache(keys).decode(json, offset, length);
+        } finally {
+            JsonDecoder.give(decoder);
+        }
+    }
+    
+    /**
+     * Decodes the UTF-8 encoded bytes between the given buffer's position
+     * and limit, as with {@link #decode(String)}. Heap and direct buffers
+     * are read in place, and the buffer's position is left unchanged.
+     * 
+     * @param json The buffer holding the UTF-8 encoded JSON document.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the buffer is null.
+     */
+    public static Object decode(ByteBuffer json) throws IOException {
+        return decode(json, (KeyCache)null);
+    }
+    
+    /**
+     * Decodes the UTF-8 encoded bytes between the given buffer's position
+     * and limit as with {@link #decode(ByteBuffer)}, sharing one String
+     * instance for every occurrence of a key through the given cache.
+     * 
+     * @param json The buffer holding the UTF-8 encoded JSON document.
+     * @param keys The cache object keys are looked up in, or null for none.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the buffer is null.
+     * @since 0.2
+     */
+    public static Object decode(ByteBuffer json, KeyCache keys) throws IOException {
         if(json == null) {
             throw new NullPointerException("json");
         }
-        return JsonParser.decodeValue(json, new IntRef(0));
+        JsonDecoder decoder = JsonDecoder.take();
+        try {
+            return decoder.setKeyCache(keys).decode(json);
+        } finally {
+            JsonDecoder.give(decoder);
+        }
+    }
+    
+    /**
+     * Decodes the given JSON string into an instance of the given class,
+     * filling its fields straight from the document rather than through a
+     * JsonObject. Every field which is neither static nor transient is bound
+     * to the key of its own name, those of superclasses included; keys
+     * without a field are skipped, and fields without a key are left as the
+     * class's constructor without parameters set them. Fields may be
+     * primitives and their wrappers, strings, enums, BigInteger, BigDecimal,
+     * arrays, collections and maps of any of these, keyed by strings,
+     * integers or enums, or classes bound the same way. The fields of each
+     * class are looked up once, and read and written through cached method
+     * handles after that.
+     * <pre>
+     * Order order = JsonObject.decode(json, Order.class);
+     * </pre>
+     * 
+     * @param json The JSON string to be decoded.
+     * @param type The class of the value, whose fields the object is bound to.
+     * @return The value, or null if the document is <code>null</code> or empty.
+     * @throws IOException If the document is malformed, or does not fit the class.
+     * @throws NullPointerException If the JSON string or the class is null.
+     * @throws IllegalArgumentException If the class is primitive, or a class
+     * to be created has no constructor without parameters, or a map to be
+     * filled is keyed by another type than strings, integers or enums.
+     * @see #encode(Object, Class)
+     * @since 0.2
+     */
+    public static <T> T decode(String json, Class<T> type) throws IOException {
+        JsonDecoder decoder = JsonDecoder.take();
+        try {
+            return decoder.decode(json, type);
+        } finally {
+            JsonDecoder.give(decoder);
+        }
+    }
+    
+    /**
+     * Decodes the given range of UTF-8 encoded bytes into an instance of the
+     * given class, as with {@link #decode(String, Class)}.
+     * 
+     * @param json The array holding the UTF-8 encoded JSON document.
+     * @param offset The index of the first byte of the document.
+     * @param length The number of bytes in the document.
+     * @param type The class of the value, whose fields the object is bound to.
+     * @return The value, or null if the document is <code>null</code> or empty.
+     * @throws IOException If the document is malformed, or does not fit the class.
+     * @throws NullPointerException If the array or the class is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     * @throws IllegalArgumentException If the class is primitive, or a class
+     * to be created has no constructor without parameters, or a map to be
+     * filled is keyed by another type than strings, integers or enums.
+     * @since 0.2
+     */
+    public static <T> T decode(byte[] json, int offset, int length, Class<T> type) throws IOException {
+        JsonDecoder decoder = JsonDecoder.take();
+        try {
+            return decoder.decode(json, offset, length, type);
+        } finally {
+            JsonDecoder.give(decoder);
+        }
+    }
+    
+    /**
+     * Decodes the UTF-8 encoded bytes between the given buffer's position
+     * and limit into an instance of the given class, as with
+     * {@link #decode(String, Class)}. The buffer's position is left unchanged.
+     * 
+     * @param json The buffer holding the UTF-8 encoded JSON document.
+     * @param type The class of the value, whose fields the object is bound to.
+     * @return The value, or null if the document is <code>null</code> or empty.
+     * @throws IOException If the document is malformed, or does not fit the class.
+     * @throws NullPointerException If the buffer or the class is null.
+     * @throws IllegalArgumentException If the class is primitive, or a class
+     * to be created has no constructor without parameters, or a map to be
+     * filled is keyed by another type than strings, integers or enums.
+     * @since 0.2
+     */
+    public static <T> T decode(ByteBuffer json, Class<T> type) throws IOException {
+        JsonDecoder decoder = JsonDecoder.take();
+        try {
+            return decoder.decode(json, type);
+        } finally {
+            JsonDecoder.give(decoder);
+        }
+    }
+    
+    /**
+     * Decodes the given JSON string as with {@link #decode(String)}, on
+     * several threads if it holds a large array. A quick scan cuts the
+     * top-level array into chunks, which are decoded on a fork-join pool
+     * and joined into one {@link JsonArray} in order. The pool is the one
+     * the calling thread runs in, if any, or the common pool otherwise.
+     * Documents under a megabyte, documents which are not arrays, and any
+     * document when the pool has a single thread, are decoded on the
+     * calling thread.
+     * <br>
+     * <br>
+     * The top-level array is always a plain {@link JsonArray}, even if it
+     * only holds numbers; nested arrays are decoded as usual.
+     * 
+     * @param json The JSON string to be decoded.
+     * @return The respective value in code of the JSON string.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the JSON string is null.
+     * @since 0.2
+     */
+    public static Object decodeParallel(String json) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        char[] buf = json.toCharArray();
+        return ParallelParser.decode(buf, 0, buf.length);
+    }
+    
+    /**
+     * Decodes the given range of UTF-8 encoded bytes, on several threads
+     * if it holds a large array, as with {@link #decodeParallel(String)}.
+     * 
+     * @param json The array holding the UTF-8 encoded JSON document.
+     * @param offset The index of the first byte of the document.
+     * @param length The number of bytes in the document.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the array is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     * @since 0.2
+     */
+    public static Object decodeParallel(byte[] json, int offset, int length) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        return ParallelParser.decode(ByteBuffer.wrap(json, offset, length));
+    }
+    
+    /**
+     * Decodes the UTF-8 encoded bytes between the given buffer's position
+     * and limit, on several threads if they hold a large array, as with
+     * {@link #decodeParallel(String)}. The buffer's position is left unchanged.
+     * 
+     * @param json The buffer holding the UTF-8 encoded JSON document.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the buffer is null.
+     * @since 0.2
+     */
+    public static Object decodeParallel(ByteBuffer json) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        return ParallelParser.decode(json);
+    }
+    
+    /**
+     * Decodes the given JSON string lazily. A single pass checks the whole
+     * document and records where each value begins, but values are only
+     * decoded when they are looked up with {@link #get(Object)} or
+     * {@link JsonArray#get(int)}, and subtrees which are never looked up are
+     * never built. Nested objects and arrays are decoded lazily as well.
+     * Any other operation on a lazily decoded object or array, such as
+     * iterating over it, encoding it or changing it, decodes all of its
+     * entries first, after which it behaves like any other.
+     * <br>
+     * <br>
+     * Lazily decoded values keep the document in memory while they are
+     * reachable, and are not safe for use by several threads at once,
+     * even for lookups.
+     * 
+     * @param json The JSON string to be decoded.
+     * @return The respective value in code of the JSON string.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the JSON string is null.
+     * @since 0.2
+     */
+    public static Object decodeLazy(String json) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        char[] buf = json.toCharArray();
+        return LazyIndex.decode(new CharLexer(buf, 0, buf.length));
+    }
+    
+    /**
+     * Decodes the given range of UTF-8 encoded bytes lazily, as with
+     * {@link #decodeLazy(String)}. The array is read in place, and must
+     * not be changed while any of the decoded values are in use.
+     * 
+     * @param json The array holding the UTF-8 encoded JSON document.
+     * @param offset The index of the first byte of the document.
+     * @param length The number of bytes in the document.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the array is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     * @since 0.2
+     */
+    public static Object decodeLazy(byte[] json, int offset, int length) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        return LazyIndex.decode(new Utf8Lexer(ByteBuffer.wrap(json, offset, length)));
+    }
+    
+    /**
+     * Decodes the UTF-8 encoded bytes between the given buffer's position
+     * and limit lazily, as with {@link #decodeLazy(String)}. The buffer is
+     * read in place, and its contents must not be changed while any of the
+     * decoded values are in use; its position and limit may be.
+     * 
+     * @param json The buffer holding the UTF-8 encoded JSON document.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the buffer is null.
+     * @since 0.2
+     */
+    public static Object decodeLazy(ByteBuffer json) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        return LazyIndex.decode(new Utf8Lexer(json));
+    }
+    
+    /**
+     * Decodes the given range of CBOR (RFC 8949) encoded bytes into the same
+     * values as {@link #decode(String)}: maps into a JsonObject, arrays into
+     * a JsonArray, or a JsonLongArray or JsonDoubleArray if they hold only
+     * integers or only floats, and numbers into Long, Double, or BigInteger
+     * and BigDecimal for bignums and decimal fractions. Byte strings are
+     * decoded into byte arrays, and other tags are ignored. The bytes are
+     * read in place.
+     * 
+     * @param cbor The array holding the CBOR encoded value.
+     * @param offset The index of the first byte of the value.
+     * @param length The number of bytes in the value.
+     * @return The decoded value, or null if the range is empty.
+     * @throws IOException If the value is malformed.
+     * @throws NullPointerException If the array is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     * @see #encodeCbor(Object)
+     * @since 0.2
+     */
+    public static Object decodeCbor(byte[] cbor, int offset, int length) throws IOException {
+        return decodeCbor(cbor, offset, length, null);
+    }
+    
+    /**
+     * Decodes the given range of CBOR encoded bytes as with
+     * {@link #decodeCbor(byte[], int, int)}, sharing one String instance
+     * for every occurrence of a key through the given cache.
+     * 
+     * @param cbor The array holding the CBOR encoded value.
+     * @param offset The index of the first byte of the value.
+     * @param length The number of bytes in the value.
+     * @param keys The cache map keys are looked up in, or null for none.
+     * @return The decoded value, or null if the range is empty.
+     * @throws IOException If the value is malformed.
+     * @throws NullPointerException If the array is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     * @since 0.2
+     */
+    public static Object decodeCbor(byte[] cbor, int offset, int length, KeyCache keys) throws IOException {
+        if(cbor == null) {
+            throw new NullPointerException("cbor");
+        }
+        return CborReader.decode(ByteBuffer.wrap(cbor, offset, length), keys);
+    }
+    
+    /**
+     * Decodes the CBOR encoded bytes between the given buffer's position and
+     * limit, as with {@link #decodeCbor(byte[], int, int)}. Heap and direct
+     * buffers are read in place, and the buffer's position is left unchanged.
+     * 
+     * @param cbor The buffer holding the CBOR encoded value.
+     * @return The decoded value, or null if the buffer has nothing left.
+     * @throws IOException If the value is malformed.
+     * @throws NullPointerException If the buffer is null.
+     * @since 0.2
+     */
+    public static Object decodeCbor(ByteBuffer cbor) throws IOException {
+        return decodeCbor(cbor, null);
+    }
+    
+    /**
+     * Decodes the CBOR encoded bytes between the given buffer's position and
+     * limit as with {@link #decodeCbor(ByteBuffer)}, sharing one String
+     * instance for every occurrence of a key through the given cache.
+     * 
+     * @param cbor The buffer holding the CBOR encoded value.
+     * @param keys The cache map keys are looked up in, or null for none.
+     * @return The decoded value, or null if the buffer has nothing left.
+     * @throws IOException If the value is malformed.
+     * @throws NullPointerException If the buffer is null.
+     * @since 0.2
+     */
+    public static Object decodeCbor(ByteBuffer cbor, KeyCache keys) throws IOException {
+        if(cbor == null) {
+            throw new NullPointerException("cbor");
+        }
+        return CborReader.decode(cbor, keys);
+    }
+    
+    /**
+     * Decodes the UTF-8 encoded JSON file at the given path, as with
+     * {@link #decode(String)}. The file is memory-mapped and parsed in place,
+     * so only the decoded values occupy the heap; files larger than 2 GB are
+     * mapped one window at a time.
+     * 
+     * @param json The path of the JSON file.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the file cannot be read, or is malformed.
+     * @throws NullPointerException If the path is null.
+     */
+    public static Object decode(Path json) throws IOException {
+        return decode(json, (KeyCache)null);
+    }
+    
+    /**
+     * Decodes the UTF-8 encoded JSON file at the given path as with
+     * {@link #decode(Path)}, sharing one String instance for every
+     * occurrence of a key through the given cache.
+     * 
+     * @param json The path of the JSON file.
+     * @param keys The cache object keys are looked up in, or null for none.
+     * @return The respective value in code of the JSON document.
+     * @throws IOException If the file cannot be read, or is malformed.
+     * @throws NullPointerException If the path is null.
+     * @since 0.2
+     */
+    public static Object decode(Path json, KeyCache keys) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        try(FileChannel channel = FileChannel.open(json, StandardOpenOption.READ)) {
+            return JsonParser.decode(new MappedLexer(channel), keys);
+        }
     }
 }
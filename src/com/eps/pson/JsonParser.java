@@ -1,226 +1,219 @@
 package com.eps.pson;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 // Internal
 // Set of methods for parsing JSON values.
 final class JsonParser {
-    private static final Pattern PT_LONG = Pattern.compile("^[-+]?[0-9]+$");
-    private static final Pattern PT_DOUBLE = Pattern.compile("^[-+]?[0-9]*\\.?[0-9]+([eE][-+]?[0-9]+)?$");
+    private static final Object[] NO_ENTRIES = new Object[0];
     
-    private JsonParser() {}
+    private final JsonLexer lexer;
+    // Keys and values, alternating, of the objects being decoded, each
+    // object's above those of the objects it is nested in. Grown to fit the
+    // most deeply nested entries, and let go past Pool.MAX_RETAINED.
+    private Object[] entries = NO_ENTRIES;
+    private int top;
     
-    private static void clearWhitespace(String json, IntRef ref) {
-        for(; ref.value < json.length(); ref.value++) {
-            if(" \t\n\r".indexOf(json.charAt(ref.value)) == -1) {
-                break;
-            }
-        }
+    JsonParser(JsonLexer lexer) {
+        this.lexer = lexer;
     }
     
-    private static TokenType getNextToken(String json, IntRef ref) {
-        clearWhitespace(json, ref);
-        if(ref.value == json.length()) {
-            return TokenType.NONE;
-        }
-        char c = json.charAt(ref.value);
-        ref.value++;
-        switch(c) {
-            case '{': return TokenType.BRACE_OPEN;
-            case '}': return TokenType.BRACE_CLOSE;
-            case '[': return TokenType.SQUARE_OPEN;
-            case ']': return TokenType.SQUARE_CLOSE;
-            case ',': return TokenType.COMMA;
-            case '"': return TokenType.STRING;
-            case '0': case '1': case '2': case '3': case '4':
-            case '5': case '6': case '7': case '8': case '9':
-            case '-': return TokenType.NUMBER;
-            case ':': return TokenType.COLON;
-        }
-        ref.value--;
-        if(hasToken(json, ref, "false")) {
-            ref.value += 5;
-            return TokenType.FALSE;
-        }
-        if(hasToken(json, ref, "true")) {
-            ref.value += 4;
-            return TokenType.TRUE;
-        }
-        if(hasToken(json, ref, "null")) {
-            ref.value += 4;
-            return TokenType.NULL;
+    static Object decode(String json, KeyCache keys) throws IOException {
+        char[] buf = json.toCharArray();
+        return decode(buf, 0, buf.length, keys);
+    }
+    
+    static Object decode(char[] json, int offset, int length, KeyCache keys) throws IOException {
+        return decode(new CharLexer(json, offset, length), keys);
+    }
+    
+    static Object decode(ByteBuffer json, KeyCache keys) throws IOException {
+        return decode(new Utf8Lexer(json), keys);
+    }
+    
+    static Object decode(JsonLexer lexer, KeyCache keys) throws IOException {
+        lexer.keys = keys;
+        return decode(lexer);
+    }
+    
+    static Object decode(JsonLexer lexer) throws IOException {
+        if(lexer.peek() == TokenType.NONE) {
+            return null;
         }
-        return TokenType.NONE;
+        return new JsonParser(lexer).decodeValue();
     }
     
-    private static TokenType seekNextToken(String json, IntRef ref) {
-        IntRef v = new IntRef(ref);
-        return getNextToken(json, v);
+    // Decodes a run of an array's elements split off by ParallelParser. The
+    // elements are separated by commas, and the run either fills the input,
+    // or for the last run of the array, ends with its closing bracket.
+    void decodeElements(JsonArray list, boolean last) throws IOException {
+        while(true) {
+            list.add(decodeValue());
+            TokenType token = lexer.peek();
+            if(token == TokenType.COMMA) {
+                lexer.next();
+            } else if(last ? token == TokenType.SQUARE_CLOSE : token == TokenType.NONE && lexer.current() == null) {
+                lexer.next();
+                return;
+            } else {
+                throw lexer.unexpected("',' or ']'");
+            }
+        }
     }
     
-    private static ArrayList<Object> decodeArray(String json, IntRef ref) throws IOException {
-        ArrayList<Object> list = new ArrayList<>();
-        getNextToken(json, ref);
-        boolean complete = false;
-        while(!complete) {
-            TokenType token = seekNextToken(json, ref);
-            if(token == TokenType.NONE) {
-                throw new IOException("Expected token, reached end of input");
-            } else if(token == TokenType.COMMA) {
-                getNextToken(json, ref);
+    private JsonArray decodeArray() throws IOException {
+        lexer.next();
+        if(lexer.peek() == TokenType.SQUARE_CLOSE) {
+            lexer.next();
+            return new JsonArray();
+        }
+        JsonArray list;
+        if(lexer.peek() == TokenType.NUMBER) {
+            list = decodeNumbers();
+        } else {
+            list = new JsonArray();
+            list.add(decodeValue());
+        }
+        while(true) {
+            TokenType token = lexer.peek();
+            if(token == TokenType.COMMA) {
+                lexer.next();
+                list.add(decodeValue());
             } else if(token == TokenType.SQUARE_CLOSE) {
-                getNextToken(json, ref);
-                break;
+                lexer.next();
+                return list;
             } else {
-                Object value = decodeValue(json, ref);
-                list.add(value);
+                throw lexer.unexpected("',' or ']'");
             }
         }
-        return list;
     }
     
-    private static String decodeString(String json, IntRef ref) throws IOException {
-        StringBuilder s = new StringBuilder(1024);
-        char c;
-        clearWhitespace(json, ref);
-        c = json.charAt(ref.value++);
-        boolean complete = false;
-        while(!complete) {
-            if(ref.value == json.length()) {
-                break;
+    // Decodes the numbers starting an array into a long[] while they are all
+    // integers which fit a long, or into a double[] while they all have a
+    // fraction or exponent and fit a double. Stops before the token which
+    // ends the run: if it is the closing bracket, the whole array is returned
+    // unboxed, and otherwise the elements so far are boxed into a JsonArray
+    // for decodeArray() to continue.
+    private JsonArray decodeNumbers() throws IOException {
+        final JsonLexer lexer = this.lexer;
+        NumberParser number = lexer.readNumberToken();
+        long[] longs = null;
+        double[] doubles = null;
+        if(number.isLong()) {
+            longs = new long[16];
+            longs[0] = number.longValue();
+        } else if(number.isDecimal() && !Double.isInfinite(number.doubleValue())) {
+            doubles = new double[16];
+            doubles[0] = number.doubleValue();
+        } else {
+            JsonArray list = new JsonArray();
+            list.add(number.finish());
+            return list;
+        }
+        int n = 1;
+        while(lexer.peek() == TokenType.COMMA) {
+            lexer.next();
+            if(lexer.peek() != TokenType.NUMBER) {
+                JsonArray list = box(longs, doubles, n);
+                list.add(decodeValue());
+                return list;
             }
-            c = json.charAt(ref.value++);
-            if(c == '"') {
-                complete = true;
-                break;
-            } else if(c == '\\') {
-                if(ref.value == json.length()) {
-                    break;
+            number = lexer.readNumberToken();
+            if(longs != null) {
+                if(number.isLong()) {
+                    if(n == longs.length) {
+                        longs = Arrays.copyOf(longs, n << 1);
+                    }
+                    longs[n++] = number.longValue();
+                    continue;
                 }
-                c = json.charAt(ref.value++);
-                if(c == 'b') {
-                    s.append('\b');
-                } else if(c == 'f') {
-                    s.append('\f');
-                } else if(c == 'n') {
-                    s.append('\n');
-                } else if(c == 'r') {
-                    s.append('\r');
-                } else if(c == 't') {
-                    s.append('\t');
-                } else {
-                    s.append(c);
+            } else if(number.isDecimal()) {
+                double value = number.doubleValue();
+                if(!Double.isInfinite(value)) {
+                    if(n == doubles.length) {
+                        doubles = Arrays.copyOf(doubles, n << 1);
+                    }
+                    doubles[n++] = value;
+                    continue;
                 }
-            } else {
-                s.append(c);
             }
+            JsonArray list = box(longs, doubles, n);
+            list.add(number.finish());
+            return list;
         }
-        if(!complete) {
-            throw new IOException("String parsing incomplete");
+        return longs != null ? new JsonLongArray(longs, n) : new JsonDoubleArray(doubles, n);
+    }
+    
+    private static JsonArray box(long[] longs, double[] doubles, int n) {
+        JsonArray list = new JsonArray(Math.max(8, n + 1));
+        for(int k = 0; k < n; k++) {
+            list.add(longs != null ? (Object)Long.valueOf(longs[k]) : (Object)Double.valueOf(doubles[k]));
         }
-        return s.toString();
+        return list;
     }
     
-    private static Object decodeObject(String json, IntRef ref) throws IOException {
-        JsonObject o = new JsonObject();
-        TokenType token = getNextToken(json, ref);
-        boolean complete = false;
-        while(!complete) {
-            token = seekNextToken(json, ref);
-            if(token == TokenType.NONE) {
-                System.err.println("Unexpected token " + json.charAt(ref.value));
-                return null;
-            } else if(token == TokenType.COMMA) {
-                getNextToken(json, ref);
-            } else if(token == TokenType.BRACE_CLOSE) {
-                getNextToken(json, ref);
-                return o;
-            } else {
-                String name = decodeString(json, ref);
-                if(name == null) {
-                    throw new IOException("Failed to parse key for object at " + ref.value);
+    // Decodes the entries of an object onto the stack of entries, then
+    // copies them into an object of their exact size.
+    private JsonObject decodeObject() throws IOException {
+        lexer.next();
+        if(lexer.peek() == TokenType.BRACE_CLOSE) {
+            lexer.next();
+            return new CompactJsonObject();
+        }
+        final int base = top;
+        try {
+            while(true) {
+                String name = lexer.readKey();
+                if(lexer.peek() != TokenType.COLON) {
+                    throw lexer.unexpected(TokenType.COLON.name());
+                }
+                lexer.next();
+                Object value = decodeValue();
+                if(top + 2 > entries.length) {
+                    entries = Arrays.copyOf(entries, Math.max(32, entries.length << 1));
                 }
-                token = getNextToken(json, ref);
-                if(token != TokenType.COLON) {
-                    throw new IOException("Expected " + TokenType.COLON.name() + ", got " + token.name());
+                entries[top++] = name;
+                entries[top++] = value;
+                TokenType token = lexer.peek();
+                if(token == TokenType.COMMA) {
+                    lexer.next();
+                } else if(token == TokenType.BRACE_CLOSE) {
+                    lexer.next();
+                    return new CompactJsonObject(entries, base, top);
+                } else {
+                    throw lexer.unexpected("',' or '}'");
                 }
-                Object value = decodeValue(json, ref);
-                o.put(name, value);
+            }
+        } finally {
+            Arrays.fill(entries, base, top, null);
+            top = base;
+            if(base == 0 && entries.length > Pool.MAX_RETAINED) {
+                entries = NO_ENTRIES;
             }
         }
-        return o;
     }
     
-    protected static Object decodeValue(String json, IntRef ref) throws IOException {
-        TokenType token = seekNextToken(json, ref);
-        switch(token) {
-            case STRING: {
-                return decodeString(json, ref);
-            }
-            case BRACE_OPEN: {
-                return decodeObject(json, ref);
-            }
-            case SQUARE_OPEN: {
-                return decodeArray(json, ref);
-            }
-            case NUMBER: {
-                return decodeNumber(json, ref);
-            }
+    Object decodeValue() throws IOException {
+        switch(lexer.peek()) {
+            case STRING: return lexer.readString();
+            case BRACE_OPEN: return decodeObject();
+            case SQUARE_OPEN: return decodeArray();
+            case NUMBER: return lexer.readNumber();
             case TRUE: {
-                getNextToken(json, ref);
-                return true;
+                lexer.next();
+                return Boolean.TRUE;
             }
             case FALSE: {
-                getNextToken(json, ref);
-                return false;
+                lexer.next();
+                return Boolean.FALSE;
             }
             case NULL: {
-                getNextToken(json, ref);
+                lexer.next();
                 return null;
             }
-            case NONE:
-            default: break;
-        }
-        return null;
-    }
-    
-    private static Number decodeNumber(String json, IntRef ref) {
-        clearWhitespace(json, ref);
-        int lastIndex = getLastIndexOfNumber(json, ref);
-        int len = (lastIndex - ref.value) + 1;
-        String v = new String(json.toCharArray(), ref.value, len);
-        Number value = null;
-        if(PT_LONG.matcher(v).matches()) {
-            value = Long.valueOf(Long.parseLong(v));
-        } else if(PT_DOUBLE.matcher(v).matches()) {
-            value = Double.valueOf(Double.parseDouble(v));
-        }
-        ref.value = lastIndex + 1;
-        return value;
-    }
-    
-    private static int getLastIndexOfNumber(String json, IntRef ref) {
-        int i;
-        for(i = ref.value; i < json.length(); i++) {
-            if("0123456789+-.eE".indexOf(json.charAt(i)) == -1) {
-                break;
-            }
-        }
-        return i - 1;
-    }
-    
-    private static boolean hasToken(String json, IntRef ref, String token) {
-        int len = json.length() - ref.value;
-        if(len >= token.length()) {
-            for(int i = 0; i < token.length(); i++) {
-                if(json.charAt(i) != token.charAt(i)) {
-                    return false;
-                }
-            }
-            return true;
+            default: throw lexer.unexpected("value");
         }
-        return false;
     }
 }
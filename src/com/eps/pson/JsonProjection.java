@@ -0,0 +1,449 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of JSON paths, compiled once, for taking only a few values out of
+ * large documents. A document is scanned once, and only the values the paths
+ * lead to are decoded; every other subtree is skipped over without building
+ * any strings or numbers, and keys are compared with the paths' names in the
+ * input itself.
+ * <pre>
+ * JsonProjection projection = JsonProjection.compile("$.user.id", "$.items[*].price");
+ * JsonObject values = projection.extract(bytes, 0, bytes.length);
+ * Long id = (Long)values.get("$.user.id");
+ * JsonArray prices = (JsonArray)values.get("$.items[*].price");
+ * </pre>
+ * Paths start at the document, <code>$</code>, and are followed by any number
+ * of steps: <code>.name</code> or <code>['name']</code> for the value of a key,
+ * <code>[2]</code> for an element of an array, and <code>.*</code> or
+ * <code>[*]</code> for every value of an object or element of an array.
+ * <p>
+ * A projection holds no state while scanning, and may be shared by threads.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ */
+public final class JsonProjection {
+    /**
+     * Receives the values found by {@link JsonProjection#extract(String, Handler)},
+     * in the order they appear in the document.
+     * 
+     * @since 0.2
+     * @author David Vallee
+     */
+    public interface Handler {
+        /**
+         * Receives a value found at one of the paths.
+         * 
+         * @param path The path, as given to {@link JsonProjection#compile(String...)}.
+         * @param value The decoded value.
+         */
+        void value(String path, Object value);
+    }
+    
+    private static final String[] NO_NAMES = new String[0];
+    private static final int[] NO_INTS = new int[0];
+    private static final Node[] NO_NODES = new Node[0];
+    
+    private final String[] paths;
+    // Whether each path has a wildcard, and so may lead to many values.
+    private final boolean[] many;
+    private final Node root = new Node();
+    
+    private JsonProjection(String[] paths) {
+        this.paths = paths.clone();
+        this.many = new boolean[paths.length];
+        for(int i = 0; i < paths.length; i++) {
+            add(i);
+        }
+    }
+    
+    /**
+     * Compiles the given paths.
+     * 
+     * @param paths The paths to extract.
+     * @return The compiled projection.
+     * @throws NullPointerException If the paths, or any of them, are null.
+     * @throws IllegalArgumentException If a path is malformed.
+     */
+    public static JsonProjection compile(String... paths) {
+        if(paths == null) {
+            throw new NullPointerException("paths");
+        }
+        return new JsonProjection(paths);
+    }
+    
+    /**
+     * Scans the given JSON string, returning the values found at the paths,
+     * keyed by their paths. Paths with a wildcard are mapped to a JsonArray
+     * of every value found, and paths which lead to no value are left out.
+     * 
+     * @param json The JSON string to be scanned.
+     * @return The values found, by path.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the JSON string is null.
+     */
+    public JsonObject extract(String json) throws IOException {
+        JsonObject values = new JsonObject();
+        extract(json, collector(values));
+        return values;
+    }
+    
+    /**
+     * Scans the given range of UTF-8 encoded bytes, as with
+     * {@link #extract(String)}. The bytes are read in place.
+     * 
+     * @param json The array holding the UTF-8 encoded JSON document.
+     * @param offset The index of the first byte of the document.
+     * @param length The number of bytes in the document.
+     * @return The values found, by path.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the array is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     */
+    public JsonObject extract(byte[] json, int offset, int length) throws IOException {
+        JsonObject values = new JsonObject();
+        extract(json, offset, length, collector(values));
+        return values;
+    }
+    
+    /**
+     * Scans the UTF-8 encoded bytes between the given buffer's position and
+     * limit, as with {@link #extract(String)}. The buffer is read in place,
+     * and its position is left unchanged.
+     * 
+     * @param json The buffer holding the UTF-8 encoded JSON document.
+     * @return The values found, by path.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the buffer is null.
+     */
+    public JsonObject extract(ByteBuffer json) throws IOException {
+        JsonObject values = new JsonObject();
+        extract(json, collector(values));
+        return values;
+    }
+    
+    /**
+     * Scans the given JSON string, passing each value found at the paths
+     * to the given handler as soon as it is decoded.
+     * 
+     * @param json The JSON string to be scanned.
+     * @param handler The handler receiving the values found.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the JSON string or the handler is null.
+     */
+    public void extract(String json, Handler handler) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        char[] buf = json.toCharArray();
+        scan(new CharLexer(buf, 0, buf.length), handler);
+    }
+    
+    /**
+     * Scans the given range of UTF-8 encoded bytes, as with
+     * {@link #extract(String, Handler)}.
+     * 
+     * @param json The array holding the UTF-8 encoded JSON document.
+     * @param offset The index of the first byte of the document.
+     * @param length The number of bytes in the document.
+     * @param handler The handler receiving the values found.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the array or the handler is null.
+     * @throws IndexOutOfBoundsException If the range lies outside the array.
+     */
+    public void extract(byte[] json, int offset, int length, Handler handler) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        scan(new Utf8Lexer(ByteBuffer.wrap(json, offset, length)), handler);
+    }
+    
+    /**
+     * Scans the UTF-8 encoded bytes between the given buffer's position and
+     * limit, as with {@link #extract(String, Handler)}.
+     * 
+     * @param json The buffer holding the UTF-8 encoded JSON document.
+     * @param handler The handler receiving the values found.
+     * @throws IOException If the document is malformed.
+     * @throws NullPointerException If the buffer or the handler is null.
+     */
+    public void extract(ByteBuffer json, Handler handler) throws IOException {
+        if(json == null) {
+            throw new NullPointerException("json");
+        }
+        scan(new Utf8Lexer(json), handler);
+    }
+    
+    private Handler collector(final JsonObject values) {
+        return new Handler() {
+            public void value(String path, Object value) {
+                if(!isMany(path)) {
+                    values.put(path, value);
+                    return;
+                }
+                JsonArray found = (JsonArray)values.get(path);
+                if(found == null) {
+                    values.put(path, found = new JsonArray());
+                }
+                found.add(value);
+            }
+        };
+    }
+    
+    private boolean isMany(String path) {
+        for(int i = 0; i < paths.length; i++) {
+            if(paths[i] == path) {
+                return many[i];
+            }
+        }
+        return false;
+    }
+    
+    private void scan(JsonLexer lexer, Handler handler) throws IOException {
+        if(handler == null) {
+            throw new NullPointerException("handler");
+        }
+        if(lexer.peek() != TokenType.NONE) {
+            scan(lexer, new JsonParser(lexer), root, handler);
+        }
+    }
+    
+    // Scans the value under the cursor, which the given node leads to.
+    // Values at the end of a path are decoded whole, along with any deeper
+    // paths through them; containers are entered only for the keys and
+    // indices which lead further, and everything else is skipped.
+    private void scan(JsonLexer lexer, JsonParser parser, Node node, Handler handler) throws IOException {
+        if(node.targets.length > 0) {
+            walk(node, parser.decodeValue(), handler);
+            return;
+        }
+        TokenType token = lexer.peek();
+        if(token == TokenType.BRACE_OPEN && (node.names.length > 0 || node.any != null)) {
+            lexer.next();
+            if(lexer.peek() == TokenType.BRACE_CLOSE) {
+                lexer.next();
+                return;
+            }
+            while(true) {
+                if(lexer.peek() != TokenType.STRING) {
+                    throw lexer.unexpected("string");
+                }
+                Node child = null;
+                for(int i = 0; i < node.names.length; i++) {
+                    if(lexer.stringEquals(node.names[i])) {
+                        child = node.named[i];
+                        break;
+                    }
+                }
+                lexer.skip();
+                if(lexer.peek() != TokenType.COLON) {
+                    throw lexer.unexpected(TokenType.COLON.name());
+                }
+                lexer.next();
+                if(child != null && node.any != null) {
+                    // Both the name and the wildcard lead further.
+                    Object value = parser.decodeValue();
+                    walk(child, value, handler);
+                    walk(node.any, value, handler);
+                } else if(child != null || node.any != null) {
+                    scan(lexer, parser, child != null ? child : node.any, handler);
+                } else {
+                    lexer.skipValue();
+                }
+                token = lexer.peek();
+                if(token == TokenType.COMMA) {
+                    lexer.next();
+                } else if(token == TokenType.BRACE_CLOSE) {
+                    lexer.next();
+                    return;
+                } else {
+                    throw lexer.unexpected("',' or '}'");
+                }
+            }
+        } else if(token == TokenType.SQUARE_OPEN && (node.indices.length > 0 || node.any != null)) {
+            lexer.next();
+            if(lexer.peek() == TokenType.SQUARE_CLOSE) {
+                lexer.next();
+                return;
+            }
+            for(int index = 0; ; index++) {
+                Node child = node.element(index);
+                if(child != null && node.any != null) {
+                    Object value = parser.decodeValue();
+                    walk(child, value, handler);
+                    walk(node.any, value, handler);
+                } else if(child != null || node.any != null) {
+                    scan(lexer, parser, child != null ? child : node.any, handler);
+                } else {
+                    lexer.skipValue();
+                }
+                token = lexer.peek();
+                if(token == TokenType.COMMA) {
+                    lexer.next();
+                } else if(token == TokenType.SQUARE_CLOSE) {
+                    lexer.next();
+                    return;
+                } else {
+                    throw lexer.unexpected("',' or ']'");
+                }
+            }
+        } else {
+            lexer.skipValue();
+        }
+    }
+    
+    // Follows the given node through a value which has already been decoded.
+    private void walk(Node node, Object value, Handler handler) {
+        for(int target : node.targets) {
+            handler.value(paths[target], value);
+        }
+        if(value instanceof Map) {
+            for(Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                for(int i = 0; i < node.names.length; i++) {
+                    if(node.names[i].equals(entry.getKey())) {
+                        walk(node.named[i], entry.getValue(), handler);
+                    }
+                }
+                if(node.any != null) {
+                    walk(node.any, entry.getValue(), handler);
+                }
+            }
+        } else if(value instanceof List) {
+            List<?> elements = (List<?>)value;
+            for(int index = 0; index < elements.size(); index++) {
+                Node child = node.element(index);
+                if(child != null) {
+                    walk(child, elements.get(index), handler);
+                }
+                if(node.any != null) {
+                    walk(node.any, elements.get(index), handler);
+                }
+            }
+        }
+    }
+    
+    // Parses the path at the given index into steps, adding them to the tree.
+    private void add(int target) {
+        String path = paths[target];
+        if(path == null) {
+            throw new NullPointerException("path");
+        }
+        int length = path.length();
+        if(length == 0 || path.charAt(0) != '$') {
+            throw malformed(path);
+        }
+        Node node = root;
+        int i = 1;
+        while(i < length) {
+            char c = path.charAt(i);
+            if(c == '.') {
+                int start = ++i;
+                while(i < length && path.charAt(i) != '.' && path.charAt(i) != '[') {
+                    i++;
+                }
+                if(i == start) {
+                    throw malformed(path);
+                }
+                String name = path.substring(start, i);
+                if(name.equals("*")) {
+                    many[target] = true;
+                    node = node.any();
+                } else {
+                    node = node.named(name);
+                }
+            } else if(c == '[') {
+                int close = path.indexOf(']', i);
+                if(close < 0) {
+                    throw malformed(path);
+                }
+                char quote = path.charAt(i + 1);
+                if(quote == '\'' || quote == '"') {
+                    if(close - i < 3 || path.charAt(close - 1) != quote) {
+                        throw malformed(path);
+                    }
+                    node = node.named(path.substring(i + 2, close - 1));
+                } else if(close == i + 2 && quote == '*') {
+                    many[target] = true;
+                    node = node.any();
+                } else {
+                    int index;
+                    try {
+                        index = Integer.parseInt(path.substring(i + 1, close));
+                    } catch(NumberFormatException e) {
+                        throw malformed(path);
+                    }
+                    if(index < 0) {
+                        throw malformed(path);
+                    }
+                    node = node.indexed(index);
+                }
+                i = close + 1;
+            } else {
+                throw malformed(path);
+            }
+        }
+        node.targets = Arrays.copyOf(node.targets, node.targets.length + 1);
+        node.targets[node.targets.length - 1] = target;
+    }
+    
+    private static IllegalArgumentException malformed(String path) {
+        return new IllegalArgumentException("Malformed path " + path);
+    }
+    
+    // A step of one or more paths, and the steps which follow it.
+    private static final class Node {
+        // Indices of the paths which end here.
+        int[] targets = NO_INTS;
+        String[] names = NO_NAMES;
+        Node[] named = NO_NODES;
+        int[] indices = NO_INTS;
+        Node[] indexed = NO_NODES;
+        // Follows every key or index.
+        Node any;
+        
+        Node named(String name) {
+            for(int i = 0; i < names.length; i++) {
+                if(names[i].equals(name)) {
+                    return named[i];
+                }
+            }
+            names = Arrays.copyOf(names, names.length + 1);
+            named = Arrays.copyOf(named, named.length + 1);
+            names[names.length - 1] = name;
+            return named[named.length - 1] = new Node();
+        }
+        
+        Node indexed(int index) {
+            Node node = element(index);
+            if(node == null) {
+                indices = Arrays.copyOf(indices, indices.length + 1);
+                indexed = Arrays.copyOf(indexed, indexed.length + 1);
+                indices[indices.length - 1] = index;
+                node = indexed[indexed.length - 1] = new Node();
+            }
+            return node;
+        }
+        
+        Node any() {
+            if(any == null) {
+                any = new Node();
+            }
+            return any;
+        }
+        
+        Node element(int index) {
+            for(int i = 0; i < indices.length; i++) {
+                if(indices[i] == index) {
+                    return indexed[i];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,585 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A non-blocking parser which is fed UTF-8 encoded input in chunks, as it
+ * arrives from a socket or channel, rather than reading it itself. Chunks may
+ * end anywhere, including inside a string, an escape, a multi-byte sequence,
+ * a number or a literal; the parser keeps its place and resumes with the next
+ * chunk. Each top-level value becomes available from {@link #next()} as soon
+ * as its last byte has been fed.
+ * <pre>
+ * JsonPushParser parser = new JsonPushParser();
+ * while(channel.read(buffer) &gt;= 0) {
+ *     buffer.flip();
+ *     parser.feed(buffer);
+ *     buffer.clear();
+ *     while(parser.hasNext()) {
+ *         handle((JsonObject)parser.next());
+ *     }
+ * }
+ * parser.finish();
+ * </pre>
+ * Values are decoded as {@link JsonObject#decode(String)} would decode them.
+ * Any number of values may follow one another, separated by whitespace if
+ * need be, as in JSON Lines. Every chunk is consumed in full, and none of it
+ * is kept once {@link #feed(ByteBuffer)} returns: only the string or number
+ * being read is carried over to the next chunk, so the buffer the chunks are
+ * read into may be of any size, and reused.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ */
+public final class JsonPushParser {
+    private static final char REPLACEMENT = '\uFFFD';
+    
+    // Expects a value, or at the top level, whitespace before one.
+    private static final int S_VALUE = 0;
+    // Expects the first element of an array, or its end.
+    private static final int S_FIRST_ELEMENT = 1;
+    // Expects the first key of an object, or its end.
+    private static final int S_FIRST_KEY = 2;
+    // Expects a key after a comma.
+    private static final int S_KEY = 3;
+    private static final int S_COLON = 4;
+    // Expects a comma, or the end of the array or object.
+    private static final int S_AFTER = 5;
+    private static final int S_STRING = 6;
+    private static final int S_NUMBER = 7;
+    private static final int S_LITERAL = 8;
+    
+    // Stands in for null values in the queue.
+    private static final Object NULL = new Object();
+    
+    private final ArrayDeque<Object> values = new ArrayDeque<Object>();
+    private final NumberParser number = new NumberParser();
+    private KeyCache keys;
+    private IOException error;
+    private int state = S_VALUE;
+    // Offset of index 0 of the chunk being fed in the input.
+    private long base;
+    
+    // Open arrays and objects, and the key each object's next value goes to.
+    private Object[] containers = new Object[16];
+    private String[] names = new String[16];
+    private int depth;
+    
+    // The string being read.
+    private boolean key;
+    private boolean escape;
+    // The \\u escape being read, with the number of hex digits it still
+    // expects, its char so far, and the position of its backslash.
+    private int hex;
+    private int unit;
+    private long escapeAt;
+    private char[] chars = new char[64];
+    private int length;
+    // The multi-byte sequence being read, with the number of bytes it still
+    // expects, its code point so far, and its smallest valid code point.
+    private int expect;
+    private int sequence;
+    private int codePoint;
+    private int min;
+    
+    // The literal being read, and how much of it has matched.
+    private String literal;
+    private int matched;
+    
+    /**
+     * Sets the cache through which every occurrence of an object key
+     * shares one String instance.
+     * 
+     * @param keys The cache object keys are looked up in, or null for none.
+     * @return This parser.
+     * @see KeyCache
+     */
+    public JsonPushParser setKeyCache(KeyCache keys) {
+        this.keys = keys;
+        return this;
+    }
+    
+    /**
+     * Parses the remaining bytes of the given chunk, which are all consumed.
+     * 
+     * @param chunk The next bytes of the input.
+     * @throws IOException If the input is malformed. The parser cannot be
+     *         fed any further, and throws the same error again.
+     * @throws NullPointerException If the chunk is null.
+     */
+    public void feed(ByteBuffer chunk) throws IOException {
+        if(chunk == null) {
+            throw new NullPointerException("chunk");
+        }
+        if(error != null) {
+            throw error;
+        }
+        int start = chunk.position();
+        int end = chunk.limit();
+        base -= start;
+        try {
+            int i = start;
+            while(i < end) {
+                i = step(chunk, i, end);
+            }
+        } catch(IOException e) {
+            error = e;
+            throw e;
+        } finally {
+            base += end;
+            chunk.position(end);
+        }
+    }
+    
+    /**
+     * Parses the given range of bytes.
+     * 
+     * @param bytes The array holding the next bytes of the input.
+     * @param offset The index of the first byte.
+     * @param length The number of bytes.
+     * @throws IOException If the input is malformed.
+     * @see #feed(ByteBuffer)
+     */
+    public void feed(byte[] bytes, int offset, int length) throws IOException {
+        feed(ByteBuffer.wrap(bytes, offset, length));
+    }
+    
+    /**
+     * Signals the end of the input. A number at the end of the input is
+     * only complete once this is called, as more digits could follow.
+     * 
+     * @throws IOException If the input ends inside a value.
+     */
+    public void finish() throws IOException {
+        if(error != null) {
+            throw error;
+        }
+        try {
+            if(state == S_NUMBER) {
+                endNumber();
+            }
+            if(state == S_STRING) {
+                throw new IOException("String parsing incomplete");
+            } else if(state == S_LITERAL) {
+                throw new IOException("Expected value, got '" + literal.charAt(0) + "' at " + (base - matched));
+            }
+            if(state != S_VALUE || depth > 0) {
+                throw new IOException("Expected " + expected() + ", reached end of input");
+            }
+        } catch(IOException e) {
+            error = e;
+            throw e;
+        }
+    }
+    
+    /**
+     * Checks whether a decoded top-level value is waiting to be taken.
+     * 
+     * @return True if {@link #next()} has a value to return.
+     */
+    public boolean hasNext() {
+        return !values.isEmpty();
+    }
+    
+    /**
+     * Takes the next decoded top-level value, in the order of the input.
+     * 
+     * @return The decoded value.
+     * @throws NoSuchElementException If no value is waiting.
+     */
+    public Object next() {
+        Object value = values.removeFirst();
+        return value == NULL ? null : value;
+    }
+    
+    /**
+     * Gets the number of bytes fed so far.
+     * 
+     * @return The position of this parser in the input.
+     */
+    public long getPosition() {
+        return base;
+    }
+    
+    // Consumes input from index i of the chunk, returning the index to carry on from.
+    private int step(ByteBuffer chunk, int i, int end) throws IOException {
+        switch(state) {
+            case S_STRING: return string(chunk, i, end);
+            case S_NUMBER: {
+                final NumberParser number = this.number;
+                while(i < end && number.accept(chunk.get(i))) {
+                    i++;
+                }
+                if(i < end) {
+                    endNumber();
+                }
+                return i;
+            }
+            case S_LITERAL: {
+                final String literal = this.literal;
+                for(; i < end && matched < literal.length(); i++, matched++) {
+                    if(chunk.get(i) != literal.charAt(matched)) {
+                        long at = base + i - matched;
+                        throw new IOException("Expected value, got '" + literal.charAt(0) + "' at " + at);
+                    }
+                }
+                if(matched == literal.length()) {
+                    switch(literal.charAt(0)) {
+                        case 't': value(Boolean.TRUE); break;
+                        case 'f': value(Boolean.FALSE); break;
+                        default: value(null); break;
+                    }
+                }
+                return i;
+            }
+        }
+        byte b = chunk.get(i);
+        if(b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+            return i + 1;
+        }
+        switch(state) {
+            case S_FIRST_ELEMENT:
+                if(b == ']') {
+                    close();
+                    return i + 1;
+                }
+                // fall through
+            case S_VALUE: return begin(b, i);
+            case S_FIRST_KEY:
+                if(b == '}') {
+                    close();
+                    return i + 1;
+                }
+                // fall through
+            case S_KEY:
+                if(b == '"') {
+                    beginString(true);
+                    return i + 1;
+                }
+                break;
+            case S_COLON:
+                if(b == ':') {
+                    state = S_VALUE;
+                    return i + 1;
+                }
+                break;
+            case S_AFTER:
+                boolean object = containers[depth - 1] instanceof JsonObject;
+                if(b == ',') {
+                    state = object ? S_KEY : S_VALUE;
+                    return i + 1;
+                } else if(b == (object ? '}' : ']')) {
+                    close();
+                    return i + 1;
+                }
+                break;
+        }
+        throw unexpected(b, i);
+    }
+    
+    // Starts the value whose first byte is at index i.
+    private int begin(byte b, int i) throws IOException {
+        switch(b) {
+            case '{':
+                push(new CompactJsonObject());
+                state = S_FIRST_KEY;
+                return i + 1;
+            case '[':
+                push(new JsonArray());
+                state = S_FIRST_ELEMENT;
+                return i + 1;
+            case '"':
+                beginString(false);
+                return i + 1;
+            case '0': case '1': case '2': case '3': case '4':
+            case '5': case '6': case '7': case '8': case '9':
+            case '-':
+                number.reset();
+                state = S_NUMBER;
+                return i;
+            case 't': return beginLiteral("true", i);
+            case 'f': return beginLiteral("false", i);
+            case 'n': return beginLiteral("null", i);
+        }
+        throw unexpected(b, i);
+    }
+    
+    private int beginLiteral(String literal, int i) {
+        this.literal = literal;
+        matched = 0;
+        state = S_LITERAL;
+        return i;
+    }
+    
+    private void beginString(boolean key) {
+        this.key = key;
+        escape = false;
+        hex = 0;
+        expect = 0;
+        length = 0;
+        state = S_STRING;
+    }
+    
+    private void push(Object container) {
+        if(depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth << 1);
+            names = Arrays.copyOf(names, depth << 1);
+        }
+        containers[depth++] = container;
+    }
+    
+    // Ends the innermost array or object and adds it to its parent.
+    private void close() {
+        Object container = containers[--depth];
+        containers[depth] = null;
+        value(container instanceof JsonArray ? unbox((JsonArray)container) : container);
+    }
+    
+    // Adds a completed value to the innermost array or object, or queues it
+    // at the top level.
+    private void value(Object value) {
+        if(depth == 0) {
+            values.addLast(value == null ? NULL : value);
+            state = S_VALUE;
+            return;
+        }
+        Object container = containers[depth - 1];
+        if(container instanceof JsonObject) {
+            ((JsonObject)container).put(names[depth - 1], value);
+        } else {
+            ((JsonArray)container).add(value);
+        }
+        state = S_AFTER;
+    }
+    
+    private void endNumber() throws IOException {
+        number.check();
+        value(number.finish());
+    }
+    
+    // Moves an array holding only integers that fit a long, or only decimals
+    // that fit a double, into a long[] or double[], as JsonParser decodes it.
+    private static JsonArray unbox(JsonArray list) {
+        int n = list.size();
+        if(n == 0) {
+            return list;
+        }
+        Object first = list.get(0);
+        if(first instanceof Long) {
+            long[] longs = new long[n];
+            for(int k = 0; k < n; k++) {
+                Object element = list.get(k);
+                if(!(element instanceof Long)) {
+                    return list;
+                }
+                longs[k] = (Long)element;
+            }
+            return new JsonLongArray(longs, n);
+        } else if(first instanceof Double) {
+            double[] doubles = new double[n];
+            for(int k = 0; k < n; k++) {
+                Object element = list.get(k);
+                if(!(element instanceof Double)) {
+                    return list;
+                }
+                doubles[k] = (Double)element;
+            }
+            return new JsonDoubleArray(doubles, n);
+        }
+        return list;
+    }
+    
+    // Reads the string from index i, returning the index after its closing
+    // quote, or the end of the chunk if it goes on into the next one.
+    private int string(ByteBuffer chunk, int i, int end) throws IOException {
+        while(i < end) {
+            if(expect == 0 && !escape && hex == 0) {
+                int start = i;
+                byte b = 0;
+                while(i < end && (b = chunk.get(i)) >= 0 && b != '"' && b != '\\') {
+                    i++;
+                }
+                if(i < end && b == '"' && length == 0) {
+                    // The whole string is in this chunk, and plain.
+                    endString(chunk, start, i);
+                    return i + 1;
+                }
+                append(chunk, start, i);
+                if(i == end) {
+                    break;
+                }
+            }
+            if(decode(chunk.get(i), base + i++)) {
+                endString(null, 0, 0);
+                return i;
+            }
+        }
+        return i;
+    }
+    
+    // Completes the string, taken from the given range of plain bytes, or if
+    // the chunk is null, from the characters decoded so far.
+    private void endString(ByteBuffer chunk, int start, int end) {
+        final KeyCache keys = this.keys;
+        String s;
+        if(chunk == null) {
+            s = key && keys != null ? keys.get(chars, 0, length) : new String(chars, 0, length);
+        } else if(key && keys != null) {
+            s = keys.get(chunk, start, end);
+        } else if(chunk.hasArray()) {
+            s = new String(chunk.array(), chunk.arrayOffset() + start, end - start, StandardCharsets.ISO_8859_1);
+        } else {
+            length = 0;
+            append(chunk, start, end);
+            s = new String(chars, 0, length);
+        }
+        if(key) {
+            names[depth - 1] = s;
+            state = S_COLON;
+        } else {
+            value(s);
+        }
+    }
+    
+    // Decodes one byte of a string, at the given position of the input,
+    // returning true if it is the closing quote.
+    private boolean decode(int b, long at) throws IOException {
+        if(hex > 0) {
+            int digit = JsonLexer.hexDigit(b);
+            if(digit < 0) {
+                throw JsonLexer.invalidEscape(escapeAt);
+            }
+            unit = (unit << 4) | digit;
+            if(--hex == 0) {
+                append((char)unit);
+            }
+            return false;
+        }
+        if(expect > 0) {
+            if((b & 0xC0) == 0x80) {
+                codePoint = (codePoint << 6) | (b & 0x3F);
+                sequence++;
+                if(--expect == 0) {
+                    int cp = codePoint;
+                    if(cp < min || cp > Character.MAX_CODE_POINT
+                            || (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE)) {
+                        malformed();
+                    } else if(cp >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                        append(Character.highSurrogate(cp));
+                        append(Character.lowSurrogate(cp));
+                    } else {
+                        append((char)cp);
+                    }
+                }
+                return false;
+            }
+            malformed();
+        }
+        if(escape) {
+            escape = false;
+            if(b == 'u') {
+                // Surrogate pairs need no joining, as each half is a char of its own.
+                hex = 4;
+                unit = 0;
+                escapeAt = at - 1;
+                return false;
+            }
+            switch(b) {
+                case 'b': append('\b'); break;
+                case 'f': append('\f'); break;
+                case 'n': append('\n'); break;
+                case 'r': append('\r'); break;
+                case 't': append('\t'); break;
+                default: append((char)(b & 0xFF)); break;
+            }
+            return false;
+        }
+        if(b == '"') {
+            return true;
+        } else if(b == '\\') {
+            escape = true;
+        } else if(b >= 0) {
+            append((char)b);
+        } else if(b >= -62 && b < -32) {
+            lead(b & 0x1F, 1, 0x80);
+        } else if(b >= -32 && b < -16) {
+            lead(b & 0x0F, 2, 0x800);
+        } else if(b >= -16 && b < -11) {
+            lead(b & 0x07, 3, Character.MIN_SUPPLEMENTARY_CODE_POINT);
+        } else {
+            append(REPLACEMENT);
+        }
+        return false;
+    }
+    
+    private void lead(int bits, int expect, int min) {
+        this.codePoint = bits;
+        this.expect = expect;
+        this.min = min;
+        this.sequence = 1;
+    }
+    
+    // Replaces a malformed sequence as Utf8Lexer does: its first byte becomes
+    // one replacement character, as does each continuation byte after it.
+    private void malformed() {
+        for(int k = 0; k < sequence; k++) {
+            append(REPLACEMENT);
+        }
+        expect = 0;
+    }
+    
+    private void append(char c) {
+        if(length == chars.length) {
+            chars = Arrays.copyOf(chars, length << 1);
+        }
+        chars[length++] = c;
+    }
+    
+    // Appends a range of plain bytes.
+    private void append(ByteBuffer chunk, int start, int end) {
+        int n = end - start;
+        if(chars.length - length < n) {
+            chars = Arrays.copyOf(chars, Math.max(length + n, chars.length << 1));
+        }
+        char[] chars = this.chars;
+        for(int i = start; i < end; i++) {
+            chars[length++] = (char)chunk.get(i);
+        }
+    }
+    
+    // Describes what the current state expects, for error messages.
+    private String expected() {
+        switch(state) {
+            case S_FIRST_KEY:
+            case S_KEY: return "string";
+            case S_COLON: return TokenType.COLON.name();
+            case S_AFTER: return containers[depth - 1] instanceof JsonObject ? "',' or '}'" : "',' or ']'";
+            default: return "value";
+        }
+    }
+    
+    // Builds the error for a byte at index i which does not fit the grammar,
+    // worded as the lexers word it.
+    private IOException unexpected(byte b, int i) {
+        String got;
+        switch(b) {
+            case '{': got = TokenType.BRACE_OPEN.name(); break;
+            case '}': got = TokenType.BRACE_CLOSE.name(); break;
+            case '[': got = TokenType.SQUARE_OPEN.name(); break;
+            case ']': got = TokenType.SQUARE_CLOSE.name(); break;
+            case ',': got = TokenType.COMMA.name(); break;
+            case ':': got = TokenType.COLON.name(); break;
+            case '"': got = TokenType.STRING.name(); break;
+            case '0': case '1': case '2': case '3': case '4':
+            case '5': case '6': case '7': case '8': case '9':
+            case '-': got = TokenType.NUMBER.name(); break;
+            default: got = "'" + (char)(b & 0xFF) + "'"; break;
+        }
+        return new IOException("Expected " + expected() + ", got " + got + " at " + (base + i));
+    }
+}
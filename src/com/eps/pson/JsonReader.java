@@ -0,0 +1,223 @@
+package com.eps.pson;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A pull parser which reads JSON tokens one at a time from a stream.
+ * Input is read through a fixed, refillable buffer, so memory use does not
+ * depend on the size of the document; the buffer only grows if a single
+ * string or number is larger than it.
+ * <br>
+ * <br>
+ * Structural tokens and literals are consumed by {@link #nextToken()}.
+ * Strings and numbers are reported by {@link #nextToken()} but stay unread
+ * until they are consumed with {@link #nextString()}, {@link #nextLong()},
+ * {@link #nextDouble()}, {@link #nextNumber()} or {@link #skipValue()}.
+ * For example, summing a large array of numbers:
+ * <pre>
+ * JsonReader reader = new JsonReader(in);
+ * long sum = 0;
+ * reader.nextToken(); // SQUARE_OPEN
+ * while(reader.nextToken() == TokenType.NUMBER) {
+ *     sum += reader.nextLong();
+ *     reader.nextToken(); // COMMA or SQUARE_CLOSE
+ * }
+ * </pre>
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see TokenType
+ */
+public final class JsonReader implements Closeable {
+    private final Closeable in;
+    private final JsonLexer lexer;
+    
+    private JsonReader(Closeable in, JsonLexer lexer) {
+        this.in = in;
+        this.lexer = lexer;
+    }
+    
+    /**
+     * Initializes a reader over the given character stream.
+     * 
+     * @param in The stream the JSON document is read from.
+     * @throws NullPointerException If the stream is null.
+     */
+    public JsonReader(Reader in) {
+        if(in == null) {
+            throw new NullPointerException("in");
+        }
+        this.in = in;
+        this.lexer = new CharLexer(in);
+    }
+    
+    /**
+     * Initializes a reader over the given UTF-8 encoded byte stream.
+     * 
+     * @param in The stream the JSON document is read from.
+     * @throws NullPointerException If the stream is null.
+     */
+    public JsonReader(InputStream in) {
+        this(new InputStreamReader(nonNull(in), StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Opens a reader over the UTF-8 encoded JSON file at the given path.
+     * The file is memory-mapped rather than read through a buffer; files
+     * larger than 2 GB are mapped one window at a time.
+     * 
+     * @param path The path of the JSON file.
+     * @return A reader positioned at the start of the file.
+     * @throws IOException If the file cannot be opened or mapped.
+     * @throws NullPointerException If the path is null.
+     */
+    public static JsonReader open(Path path) throws IOException {
+        if(path == null) {
+            throw new NullPointerException("path");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new JsonReader(channel, new MappedLexer(channel));
+        } catch(IOException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+    
+    private static InputStream nonNull(InputStream in) {
+        if(in == null) {
+            throw new NullPointerException("in");
+        }
+        return in;
+    }
+    
+    /**
+     * Sets the cache through which {@link #nextValue()} shares one String
+     * instance for every occurrence of an object key.
+     * 
+     * @param keys The cache object keys are looked up in, or null for none.
+     * @return This reader.
+     * @see KeyCache
+     */
+    public JsonReader setKeyCache(KeyCache keys) {
+        lexer.keys = keys;
+        return this;
+    }
+    
+    /**
+     * Gets the type of the next token without consuming it.
+     * 
+     * @return The type of the next token, or {@link TokenType#NONE} at the end of input.
+     * @throws IOException If an error occurs while reading.
+     */
+    public TokenType peek() throws IOException {
+        return lexer.peek();
+    }
+    
+    /**
+     * Advances to the next token and returns its type. Structural tokens
+     * and the literals {@code true}, {@code false} and {@code null} are
+     * consumed; {@link TokenType#STRING} and {@link TokenType#NUMBER} are
+     * left to be read with the matching {@code next} method.
+     * 
+     * @return The type of the next token, or {@link TokenType#NONE} at the end of input.
+     * @throws IOException If an error occurs while reading.
+     */
+    public TokenType nextToken() throws IOException {
+        TokenType token = lexer.peek();
+        if(token == TokenType.STRING || token == TokenType.NUMBER) {
+            return token;
+        }
+        return lexer.next();
+    }
+    
+    /**
+     * Consumes the next string, which may be a value or an object's key.
+     * 
+     * @return The decoded string.
+     * @throws IOException If the next token is not a string, or an error occurs while reading.
+     */
+    public String nextString() throws IOException {
+        return lexer.readString();
+    }
+    
+    /**
+     * Consumes the next number as a long, without boxing it.
+     * 
+     * @return The value of the number.
+     * @throws IOException If the next token is not an integer which fits in a long,
+     * or an error occurs while reading.
+     */
+    public long nextLong() throws IOException {
+        return lexer.readLong();
+    }
+    
+    /**
+     * Consumes the next number as a double, without boxing it.
+     * 
+     * @return The value of the number.
+     * @throws IOException If the next token is not a number, or an error occurs while reading.
+     */
+    public double nextDouble() throws IOException {
+        return lexer.readDouble();
+    }
+    
+    /**
+     * Consumes the next number in the representation {@link JsonObject#decode(String)}
+     * would give it.
+     * 
+     * @return The value of the number.
+     * @throws IOException If the next token is not a number, or an error occurs while reading.
+     */
+    public Number nextNumber() throws IOException {
+        return lexer.readNumber();
+    }
+    
+    /**
+     * Consumes the next value, decoding objects and arrays in full.
+     * Useful for streaming over the elements of a large array one at a time.
+     * 
+     * @return The decoded value, as {@link JsonObject#decode(String)} would return it.
+     * @throws IOException If the next token does not start a value, or an error occurs while reading.
+     */
+    public Object nextValue() throws IOException {
+        return new JsonParser(lexer).decodeValue();
+    }
+    
+    /**
+     * Skips the next value, including any objects or arrays nested
+     * within it, without decoding it.
+     * 
+     * @throws IOException If the next token does not start a value, or an error occurs while reading.
+     */
+    public void skipValue() throws IOException {
+        lexer.skipValue();
+    }
+    
+    /**
+     * Gets the number of characters consumed so far, or of bytes
+     * for a reader opened over a file.
+     * 
+     * @return The position of this reader in the input.
+     */
+    public long getPosition() {
+        return lexer.position();
+    }
+    
+    /**
+     * Closes the underlying stream.
+     * 
+     * @throws IOException If an error occurs while closing.
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -1,60 +1,115 @@
 package com.eps.pson;
 
 import java.io.StringWriter;
+import java.util.Arrays;
 
 /**
  * A custom string writer which allows for "pretty printing" JSON strings.
  * As with {@link StringWriter}, closing this writer has no effect.
+ * <br>
+ * <br>
+ * Indentation follows the structure reported through {@link StructuredWriter},
+ * so brackets and commas inside strings are left as they are. Each level is
+ * indented by 4 spaces unless set otherwise with {@link #setIndentWidth(int)}.
  * 
  * @since 0.1
  * @author David Vallee
  * @see StringWriter
  */
-public final class JsonWriter extends StringWriter {
+public final class JsonWriter extends StringWriter implements StructuredWriter {
+    // Number of levels of indentation held by an indent table; deeper
+    // levels write the table more than once.
+    static final int INDENT_LEVELS = 16;
+    
     private boolean pretty;
-    private int index;
+    private int depth;
+    private int width;
+    private char[] indent;
+    // Counts of what is written, or null if it is not measured.
+    JsonMetrics.Counts counts;
     
     /**
-     * Initializes a JSON writer which, by default, 
+     * Initializes a JSON writer which, by default,
      * does not "pretty print".
      */
     public JsonWriter() {
         pretty = false;
-        index = 0;
+        depth = 0;
+        setIndentWidth(4);
+    }
+    
+    // Empties this writer and starts over at the top level, for JsonEncoder
+    // to reuse it.
+    void reset() {
+        StringBuffer buffer = getBuffer();
+        buffer.setLength(0);
+        if(buffer.capacity() > Pool.MAX_RETAINED) {
+            buffer.trimToSize();
+        }
+        depth = 0;
+    }
+    
+    // Writes a line break followed by the indentation for the current depth.
+    private void newline() {
+        int spaces = depth * width;
+        int n = Math.min(spaces, indent.length - 1);
+        super.write(indent, 0, n + 1);
+        for(spaces -= n; spaces > 0; spaces -= n) {
+            n = Math.min(spaces, indent.length - 1);
+            super.write(indent, 1, n);
+        }
+    }
+    
+    public void beginObject() {
+        super.write('{');
+        depth++;
+        if(JsonMetrics.ENABLED && counts != null) {
+            counts.open();
+        }
+    }
+    
+    public void endObject(boolean empty) {
+        depth--;
+        if(JsonMetrics.ENABLED && counts != null) {
+            counts.close();
+        }
+        if(pretty && !empty) {
+            newline();
+        }
+        super.write('}');
     }
     
-    private void writeIndentation() {
-        if(!pretty) return;
-        for(int i = 0; i < index; i++) {
-            super.write("    ");
+    public void beginArray() {
+        super.write('[');
+        depth++;
+        if(JsonMetrics.ENABLED && counts != null) {
+            counts.open();
+        }
+    }
+    
+    public void endArray(boolean empty) {
+        depth--;
+        if(JsonMetrics.ENABLED && counts != null) {
+            counts.close();
+        }
+        if(pretty && !empty) {
+            newline();
         }
+        super.write(']');
     }
     
-    public void write(int c) {
+    public void separator(boolean first) {
+        if(!first) {
+            super.write(',');
+        }
         if(pretty) {
-            if(((char)c) == '[' || ((char)c) == '{') {
-                super.write(c);
-                super.write('\n');
-                index++;
-                writeIndentation();
-            } else if (((char)c) == ',') {
-                super.write(c);
-                super.write('\n');
-                writeIndentation();
-            } else if (((char)c) == ']' || ((char)c) == '}') {
-                super.write('\n');
-                index--;
-                writeIndentation();
-                super.write(c);
-            } else {
-                super.write(c);
-            }
-        } else super.write(c);
+            newline();
+        }
     }
     
     /**
      * Sets whether or not "pretty printing" is enabled. If true,
-     * JSON objects (arrays included), are indented to enhance 
+     * JSON objects (arrays included), are indented to enhance
      * readability.
      * 
      * @param prettyEnabled Enables "pretty printing" if true.
@@ -73,4 +128,38 @@ public final class JsonWriter extends StringWriter {
     public boolean isPrettyPrintingEnabled() {
         return pretty;
     }
+    
+    /**
+     * Sets the number of spaces each level is indented by
+     * while "pretty printing".
+     * 
+     * @param width The number of spaces per level.
+     * @return This JSON writer.
+     * @throws IllegalArgumentException If the width is negative.
+     */
+    public JsonWriter setIndentWidth(int width) {
+        if(width < 0) {
+            throw new IllegalArgumentException("width");
+        }
+        this.width = width;
+        this.indent = indentTable(width);
+        return this;
+    }
+    
+    /**
+     * Gets the number of spaces each level is indented by.
+     * 
+     * @return The number of spaces per level.
+     */
+    public int getIndentWidth() {
+        return width;
+    }
+    
+    // A line break followed by the spaces for INDENT_LEVELS levels.
+    static char[] indentTable(int width) {
+        char[] table = new char[1 + Math.max(1, width * INDENT_LEVELS)];
+        Arrays.fill(table, ' ');
+        table[0] = '\n';
+        return table;
+    }
 }
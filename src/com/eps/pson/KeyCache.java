@@ -0,0 +1,127 @@
+package com.eps.pson;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A bounded cache of object keys, so that documents which repeat the same
+ * keys many times over, such as large arrays of similar objects, decode every
+ * occurrence of a key to one shared String. Keys are looked up by their
+ * characters in the input, so no String is created when a key is found.
+ * <br>
+ * <br>
+ * The cache holds a fixed number of keys; when two keys compete for the same
+ * place, the most recent one is kept. Keys longer than 64 characters, and
+ * keys holding escapes or, in UTF-8 input, characters outside ASCII, are
+ * decoded as usual without the cache. A cache may be shared by any number
+ * of parses, including ones running in other threads at the same time.
+ * <pre>
+ * KeyCache keys = new KeyCache();
+ * JsonArray first = (JsonArray)JsonObject.decode(json, keys);
+ * JsonArray second = (JsonArray)JsonObject.decode(bytes, 0, bytes.length, keys);
+ * </pre>
+ * 
+ * @since 0.2
+ * @author David Vallee
+ */
+public final class KeyCache {
+    static final int MAX_KEY_LENGTH = 64;
+    
+    // Slots are written without locking: String is immutable, so a thread
+    // racing with a write sees either the old key, the new key or null, and
+    // every key found is compared with the input before it is used.
+    private final String[] keys;
+    private final int mask;
+    
+    /**
+     * Initializes a cache holding up to 512 keys.
+     */
+    public KeyCache() {
+        this(512);
+    }
+    
+    /**
+     * Initializes a cache holding up to the given number of keys,
+     * rounded up to a power of two.
+     * 
+     * @param capacity The number of keys the cache may hold.
+     * @throws IllegalArgumentException If the capacity is not positive,
+     * or exceeds 2<sup>30</sup>.
+     */
+    public KeyCache(int capacity) {
+        if(capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) {
+            size <<= 1;
+        }
+        this.keys = new String[size];
+        this.mask = size - 1;
+    }
+    
+    // Spreads the String.hashCode() of a key over the slots.
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+    
+    // Returns the shared key for the given characters.
+    String get(char[] buf, int start, int end) {
+        int length = end - start;
+        if(length > MAX_KEY_LENGTH) {
+            return new String(buf, start, length);
+        }
+        int hash = 0;
+        for(int i = start; i < end; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        int slot = slot(hash);
+        String key = keys[slot];
+        if(key != null && key.length() == length) {
+            int k = 0;
+            while(k < length && key.charAt(k) == buf[start + k]) {
+                k++;
+            }
+            if(k == length) {
+                return key;
+            }
+        }
+        key = new String(buf, start, length);
+        keys[slot] = key;
+        return key;
+    }
+    
+    // Returns the shared key for the given range of bytes, which must all
+    // be ASCII.
+    String get(ByteBuffer buf, int start, int end) {
+        int length = end - start;
+        if(length > MAX_KEY_LENGTH) {
+            return ascii(buf, start, end);
+        }
+        int hash = 0;
+        for(int i = start; i < end; i++) {
+            hash = 31 * hash + buf.get(i);
+        }
+        int slot = slot(hash);
+        String key = keys[slot];
+        if(key != null && key.length() == length) {
+            int k = 0;
+            while(k < length && key.charAt(k) == buf.get(start + k)) {
+                k++;
+            }
+            if(k == length) {
+                return key;
+            }
+        }
+        key = ascii(buf, start, end);
+        keys[slot] = key;
+        return key;
+    }
+    
+    private static String ascii(ByteBuffer buf, int start, int end) {
+        char[] chars = new char[end - start];
+        for(int i = start; i < end; i++) {
+            chars[i - start] = (char)buf.get(i);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,174 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+// Internal
+// Structural index behind lazily decoded documents. A single pass over the
+// input validates it and records a tape of two ints per value: the position
+// of its first character, and the index of the first value after it, so the
+// children of a container are found by hopping over their subtrees. In an
+// object, each key takes a slot of its own just before its value. Nothing
+// else is built until a LazyJsonObject or LazyJsonArray is asked for one of
+// its values, which is then decoded by seeking the lexer back to it.
+//
+// The input must stay in memory and unchanged while any value refers to it.
+final class LazyIndex {
+    // Placeholder for values which have not been decoded yet.
+    static final Object UNDECODED = new Object();
+    
+    private final JsonLexer lexer;
+    private int[] tape = new int[64];
+    private int count;
+    
+    private LazyIndex(JsonLexer lexer) {
+        this.lexer = lexer;
+    }
+    
+    static Object decode(JsonLexer lexer) throws IOException {
+        if(lexer.peek() == TokenType.NONE) {
+            return null;
+        }
+        LazyIndex index = new LazyIndex(lexer);
+        index.record();
+        index.tape = Arrays.copyOf(index.tape, index.count << 1);
+        return index.decode(0);
+    }
+    
+    // Adds the value under the cursor, and everything nested in it, to the tape.
+    private void record() throws IOException {
+        final JsonLexer lexer = this.lexer;
+        int node = add();
+        switch(lexer.peek()) {
+            case BRACE_OPEN: {
+                lexer.next();
+                if(lexer.peek() == TokenType.BRACE_CLOSE) {
+                    lexer.next();
+                    break;
+                }
+                while(true) {
+                    if(lexer.peek() != TokenType.STRING) {
+                        throw lexer.unexpected("string");
+                    }
+                    // The key's slot is added before the tape is indexed, as
+                    // adding it may grow the tape.
+                    int key = add();
+                    tape[(key << 1) + 1] = count;
+                    lexer.skip();
+                    if(lexer.peek() != TokenType.COLON) {
+                        throw lexer.unexpected(TokenType.COLON.name());
+                    }
+                    lexer.next();
+                    record();
+                    TokenType token = lexer.peek();
+                    if(token != TokenType.COMMA && token != TokenType.BRACE_CLOSE) {
+                        throw lexer.unexpected("',' or '}'");
+                    }
+                    lexer.next();
+                    if(token == TokenType.BRACE_CLOSE) {
+                        break;
+                    }
+                }
+                break;
+            }
+            case SQUARE_OPEN: {
+                lexer.next();
+                if(lexer.peek() == TokenType.SQUARE_CLOSE) {
+                    lexer.next();
+                    break;
+                }
+                while(true) {
+                    record();
+                    TokenType token = lexer.peek();
+                    if(token != TokenType.COMMA && token != TokenType.SQUARE_CLOSE) {
+                        throw lexer.unexpected("',' or ']'");
+                    }
+                    lexer.next();
+                    if(token == TokenType.SQUARE_CLOSE) {
+                        break;
+                    }
+                }
+                break;
+            }
+            case STRING:
+            case NUMBER:
+            case TRUE:
+            case FALSE:
+            case NULL:
+                lexer.skip();
+                break;
+            default: throw lexer.unexpected("value");
+        }
+        tape[(node << 1) + 1] = count;
+    }
+    
+    // Appends a node at the cursor's position and returns its index.
+    private int add() {
+        if(count << 1 == tape.length) {
+            tape = Arrays.copyOf(tape, tape.length << 1);
+        }
+        int node = count++;
+        tape[node << 1] = (int)lexer.position();
+        return node;
+    }
+    
+    // Index of the first node after the given one and its subtree.
+    private int end(int node) {
+        return tape[(node << 1) + 1];
+    }
+    
+    // Lists the nodes of a container's elements, or of an object's keys,
+    // whose values follow them.
+    int[] children(int node, boolean object) {
+        int end = end(node);
+        int n = 0;
+        for(int child = node + 1; child < end; child = end(object ? child + 1 : child)) {
+            n++;
+        }
+        int[] children = new int[n];
+        int child = node + 1;
+        for(int k = 0; k < n; k++) {
+            children[k] = child;
+            child = end(object ? child + 1 : child);
+        }
+        return children;
+    }
+    
+    // Returns the value of the given node: containers are returned as lazy
+    // views onto the tape, and anything else is decoded in full.
+    synchronized Object decode(int node) {
+        final JsonLexer lexer = this.lexer;
+        lexer.reset(tape[node << 1]);
+        try {
+            switch(lexer.peek()) {
+                case BRACE_OPEN: return new LazyJsonObject(this, children(node, true));
+                case SQUARE_OPEN: return new LazyJsonArray(this, children(node, false));
+                case STRING: return lexer.readString();
+                case NUMBER: return lexer.readNumber();
+                case TRUE: return Boolean.TRUE;
+                case FALSE: return Boolean.FALSE;
+                default: return null;
+            }
+        } catch(IOException e) {
+            // The input was validated when the tape was recorded.
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    synchronized boolean keyEquals(int node, String key) {
+        final JsonLexer lexer = this.lexer;
+        lexer.reset(tape[node << 1]);
+        try {
+            return lexer.peek() == TokenType.STRING && lexer.stringEquals(key);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    static Object[] undecoded(int length) {
+        Object[] values = new Object[length];
+        Arrays.fill(values, UNDECODED);
+        return values;
+    }
+}
@@ -0,0 +1,56 @@
+package com.eps.pson;
+
+// Internal
+// Array returned by lazy decoding. Elements are decoded one at a time as
+// they are read by index, and kept for later reads; nested objects and
+// arrays are themselves lazy. Any other operation decodes every element
+// into the list first, see DeferredJsonArray.
+final class LazyJsonArray extends DeferredJsonArray {
+    private static final long serialVersionUID = 1L;
+    
+    private LazyIndex index;
+    private int[] nodes;
+    private Object[] values;
+    
+    LazyJsonArray(LazyIndex index, int[] nodes) {
+        this.index = index;
+        this.nodes = nodes;
+        this.values = LazyIndex.undecoded(nodes.length);
+    }
+    
+    private Object value(int k) {
+        Object value = values[k];
+        if(value == LazyIndex.UNDECODED) {
+            value = values[k] = index.decode(nodes[k]);
+        }
+        return value;
+    }
+    
+    void load() {
+        ensureCapacity(nodes.length);
+        for(int k = 0; k < nodes.length; k++) {
+            store(value(k));
+        }
+        index = null;
+        nodes = null;
+        values = null;
+    }
+    
+    public int size() {
+        return isDeferred() ? nodes.length : super.size();
+    }
+    
+    public boolean isEmpty() {
+        return isDeferred() ? nodes.length == 0 : super.isEmpty();
+    }
+    
+    public Object get(int index) {
+        if(!isDeferred()) {
+            return super.get(index);
+        }
+        if(index < 0 || index >= nodes.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + nodes.length);
+        }
+        return value(index);
+    }
+}
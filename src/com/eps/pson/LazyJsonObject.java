@@ -0,0 +1,77 @@
+package com.eps.pson;
+
+// Internal
+// Object returned by lazy decoding. Lookups compare the wanted key with the
+// keys in the input, and decode only the value found, which is kept for
+// later lookups; nested objects and arrays are themselves lazy. Any other
+// operation decodes every entry into the map first, see DeferredJsonObject.
+final class LazyJsonObject extends DeferredJsonObject {
+    private static final long serialVersionUID = 1L;
+    
+    private LazyIndex index;
+    private int[] keys;
+    private Object[] values;
+    
+    LazyJsonObject(LazyIndex index, int[] keys) {
+        this.index = index;
+        this.keys = keys;
+        this.values = LazyIndex.undecoded(keys.length);
+    }
+    
+    // Returns the entry for the given key, or -1. As when decoding in full,
+    // a repeated key takes its last value.
+    private int find(Object key) {
+        if(!(key instanceof String)) {
+            return -1;
+        }
+        String name = (String)key;
+        final int[] keys = this.keys;
+        for(int k = keys.length - 1; k >= 0; k--) {
+            if(index.keyEquals(keys[k], name)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+    
+    private Object value(int k) {
+        Object value = values[k];
+        if(value == LazyIndex.UNDECODED) {
+            value = values[k] = index.decode(keys[k] + 1);
+        }
+        return value;
+    }
+    
+    void load() {
+        final int[] keys = this.keys;
+        for(int k = 0; k < keys.length; k++) {
+            store(index.decode(keys[k]), value(k));
+        }
+        index = null;
+        this.keys = null;
+        values = null;
+    }
+    
+    public Object get(Object key) {
+        if(!isDeferred()) {
+            return super.get(key);
+        }
+        int k = find(key);
+        return k < 0 ? null : value(k);
+    }
+    
+    public Object getOrDefault(Object key, Object defaultValue) {
+        if(!isDeferred()) {
+            return super.getOrDefault(key, defaultValue);
+        }
+        int k = find(key);
+        return k < 0 ? defaultValue : value(k);
+    }
+    
+    public boolean containsKey(Object key) {
+        if(!isDeferred()) {
+            return super.containsKey(key);
+        }
+        return find(key) >= 0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+// Internal
+// Tokenizer over a memory-mapped file. The file is mapped one window at a
+// time, since a single mapping cannot exceed 2 GB; when the cursor reaches
+// the end of a window, the next window is mapped starting at the current
+// token, so tokens never straddle two mappings. Windows that are no longer
+// referenced are unmapped when they are garbage collected.
+final class MappedLexer extends Utf8Lexer {
+    static final int WINDOW_SIZE = 1 << 30;
+    
+    private final FileChannel channel;
+    // Position in the file the input ends at.
+    private final long size;
+    private final int window;
+    
+    MappedLexer(FileChannel channel) throws IOException {
+        this(channel, WINDOW_SIZE);
+    }
+    
+    MappedLexer(FileChannel channel, int window) throws IOException {
+        this(channel, 0, channel.size(), window);
+    }
+    
+    // Reads the bytes of the file from start up to end, counting positions
+    // from the start of the file.
+    MappedLexer(FileChannel channel, long start, long end, int window) throws IOException {
+        super(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(window, end - start)));
+        this.channel = channel;
+        this.size = end;
+        this.window = window;
+        this.base = start;
+    }
+    
+    boolean fill() throws IOException {
+        long start = base + pos;
+        long end = base + limit;
+        if(end == size) {
+            return false;
+        }
+        long length = Math.max(window, (long)(limit - pos) << 1);
+        length = Math.min(Math.min(length, Integer.MAX_VALUE), size - start);
+        if(length <= limit - pos) {
+            throw new IOException("Token at " + start + " exceeds the largest mappable window");
+        }
+        buf = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        base = start;
+        pos = 0;
+        limit = (int)length;
+        return true;
+    }
+}
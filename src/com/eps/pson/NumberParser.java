@@ -0,0 +1,229 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+// Internal
+// Incremental JSON number decoder. Characters are fed one at a time through
+// accept(), which validates the number grammar and accumulates the digits
+// straight into a long in the same pass; finish() then produces the value.
+// Integers that overflow a long fall back to BigInteger. Decimals use Clinger's
+// fast path when the mantissa and power of ten are both exact doubles, and
+// otherwise defer to Double.parseDouble (or BigDecimal when out of range).
+// Instances are reusable and only allocate on the slow paths.
+final class NumberParser {
+    private static final int S_START = 0;
+    private static final int S_MINUS = 1;
+    private static final int S_ZERO = 2;
+    private static final int S_INT = 3;
+    private static final int S_DOT = 4;
+    private static final int S_FRAC = 5;
+    private static final int S_EXP = 6;
+    private static final int S_EXP_SIGN = 7;
+    private static final int S_EXP_DIGITS = 8;
+    private static final int S_ERROR = 9;
+    
+    // Largest integer below which every long converts to a double exactly.
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_EXACT_POW10 = 22;
+    private static final int MAX_EXPONENT = 100000;
+    private static final double[] POW10 = new double[MAX_EXACT_POW10 + 1];
+    
+    static {
+        double p = 1.0;
+        for(int i = 0; i < POW10.length; i++) {
+            POW10[i] = p;
+            p *= 10.0;
+        }
+    }
+    
+    private int state;
+    private boolean negative;
+    private long mantissa;
+    private boolean overflow;
+    private int scale;
+    private int exponent;
+    private boolean exponentNegative;
+    private boolean decimal;
+    private char[] text = new char[32];
+    private int length;
+    
+    void reset() {
+        state = S_START;
+        negative = false;
+        mantissa = 0;
+        overflow = false;
+        scale = 0;
+        exponent = 0;
+        exponentNegative = false;
+        decimal = false;
+        length = 0;
+    }
+    
+    // Returns true if the character belongs to the number and was consumed,
+    // false if it terminates the number (or breaks its grammar, in which case
+    // finish() reports the error).
+    boolean accept(int c) {
+        switch(state) {
+            case S_START:
+                if(c == '-') {
+                    negative = true;
+                    return append(S_MINUS, c);
+                }
+                // fall through
+            case S_MINUS:
+                if(c == '0') {
+                    return append(S_ZERO, c);
+                } else if(c >= '1' && c <= '9') {
+                    mantissa = c - '0';
+                    return append(S_INT, c);
+                }
+                return fail();
+            case S_ZERO:
+                if(c >= '0' && c <= '9') {
+                    return fail();
+                }
+                return fraction(c);
+            case S_INT:
+                if(c >= '0' && c <= '9') {
+                    digit(c);
+                    return append(S_INT, c);
+                }
+                return fraction(c);
+            case S_DOT:
+                if(c >= '0' && c <= '9') {
+                    digit(c);
+                    scale++;
+                    return append(S_FRAC, c);
+                }
+                return fail();
+            case S_FRAC:
+                if(c >= '0' && c <= '9') {
+                    if(!overflow) {
+                        digit(c);
+                        scale++;
+                    }
+                    return append(S_FRAC, c);
+                } else if(c == 'e' || c == 'E') {
+                    decimal = true;
+                    return append(S_EXP, c);
+                }
+                return false;
+            case S_EXP:
+                if(c == '-' || c == '+') {
+                    exponentNegative = c == '-';
+                    return append(S_EXP_SIGN, c);
+                }
+                // fall through
+            case S_EXP_SIGN:
+            case S_EXP_DIGITS:
+                if(c >= '0' && c <= '9') {
+                    if(exponent < MAX_EXPONENT) {
+                        exponent = exponent * 10 + (c - '0');
+                    }
+                    return append(S_EXP_DIGITS, c);
+                } else if(state == S_EXP_DIGITS) {
+                    return false;
+                }
+                return fail();
+            default:
+                return false;
+        }
+    }
+    
+    private boolean fraction(int c) {
+        if(c == '.') {
+            decimal = true;
+            return append(S_DOT, c);
+        } else if(c == 'e' || c == 'E') {
+            decimal = true;
+            return append(S_EXP, c);
+        }
+        return false;
+    }
+    
+    private void digit(int c) {
+        int d = c - '0';
+        if(overflow || mantissa < 0) {
+            overflow = true;
+        } else if(mantissa <= (Long.MAX_VALUE - d) / 10) {
+            mantissa = mantissa * 10 + d;
+        } else if(negative && mantissa == Long.MAX_VALUE / 10 && d == 8) {
+            // The magnitude of Long.MIN_VALUE wraps to Long.MIN_VALUE itself,
+            // which longValue() negates back; any further digit overflows.
+            mantissa = Long.MIN_VALUE;
+        } else {
+            overflow = true;
+        }
+    }
+    
+    private boolean append(int next, int c) {
+        if(length == text.length) {
+            char[] grown = new char[length << 1];
+            System.arraycopy(text, 0, grown, 0, length);
+            text = grown;
+        }
+        text[length++] = (char)c;
+        state = next;
+        return true;
+    }
+    
+    private boolean fail() {
+        state = S_ERROR;
+        return false;
+    }
+    
+    // Whether the characters accepted so far form a complete number.
+    boolean isComplete() {
+        return state == S_ZERO || state == S_INT || state == S_FRAC || state == S_EXP_DIGITS;
+    }
+    
+    // Whether the number is an integer that fits a long, see longValue().
+    boolean isLong() {
+        return !decimal && !overflow;
+    }
+    
+    // Whether the number has a fraction or exponent, see doubleValue().
+    boolean isDecimal() {
+        return decimal;
+    }
+    
+    long longValue() {
+        return negative ? -mantissa : mantissa;
+    }
+    
+    double doubleValue() {
+        if(!overflow) {
+            int exp10 = (exponentNegative ? -exponent : exponent) - scale;
+            if(mantissa >= 0 && mantissa <= MAX_EXACT_MANTISSA && exp10 >= -MAX_EXACT_POW10 && exp10 <= MAX_EXACT_POW10) {
+                double value = (double)mantissa;
+                value = exp10 < 0 ? value / POW10[-exp10] : value * POW10[exp10];
+                return negative ? -value : value;
+            }
+        }
+        return Double.parseDouble(new String(text, 0, length));
+    }
+    
+    void check() throws IOException {
+        if(!isComplete()) {
+            throw new IOException("Malformed number " + new String(text, 0, length));
+        }
+    }
+    
+    Number finish() throws IOException {
+        check();
+        if(!decimal) {
+            if(!overflow) {
+                return Long.valueOf(longValue());
+            }
+            BigInteger value = new BigInteger(new String(text, 0, length));
+            return value.bitLength() < 64 ? (Number)Long.valueOf(value.longValue()) : value;
+        }
+        double value = doubleValue();
+        if(Double.isInfinite(value)) {
+            return new BigDecimal(new String(text, 0, length));
+        }
+        return Double.valueOf(value);
+    }
+}
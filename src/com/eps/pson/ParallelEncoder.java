@@ -0,0 +1,155 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Internal
+// Encodes large arrays and objects on several threads. The tree is walked as
+// JsonObject.encode() would walk it, but the elements of any array or object
+// holding more than SLICE of them are cut into slices, each encoded on a
+// fork-join pool into an in-memory writer forked from the output, which
+// carries over its layout and depth so that indentation comes out the same.
+// The slices are then appended to the output in order, a few per thread at
+// a time so that memory use stays bounded, and the output is byte for byte
+// what sequential encoding writes.
+//
+// Only plain maps and lists, JsonObject and JsonArray themselves included,
+// are walked this way; other JsonSerializable types write themselves. With
+// a single thread in the pool, the value is simply encoded in place.
+final class ParallelEncoder {
+    // Elements per slice; larger arrays and objects are cut into slices.
+    static final int SLICE = 1024;
+    // Slices encoded per thread before they are appended to the output.
+    private static final int SLICES_PER_THREAD = 2;
+    
+    private ParallelEncoder() {
+    }
+    
+    static void encode(Utf8JsonWriter out, Object value) throws IOException {
+        if(parallelism() < 2) {
+            JsonObject.encode(out, value);
+            return;
+        }
+        RecursiveAction task = new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+            
+            protected void compute() {
+                try {
+                    write(out, value);
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        try {
+            if(ForkJoinTask.inForkJoinPool()) {
+                task.invoke();
+            } else {
+                ForkJoinPool.commonPool().invoke(task);
+            }
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    // Number of threads of the pool tasks run in. Tasks invoked on the
+    // common pool may also run in the invoking thread, outside the pool.
+    private static int parallelism() {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+    }
+    
+    // Writes the given value, as JsonObject.encode() would.
+    static void write(Utf8JsonWriter out, Object value) throws IOException {
+        if(value instanceof Map && isPlain(value, JsonObject.class)) {
+            Object[] entries = ((Map<?, ?>)value).entrySet().toArray();
+            out.beginObject();
+            write(out, entries, true);
+            out.endObject(entries.length == 0);
+        } else if(value instanceof List && isPlain(value, JsonArray.class)) {
+            Object[] elements = ((List<?>)value).toArray();
+            out.beginArray();
+            write(out, elements, false);
+            out.endArray(elements.length == 0);
+        } else {
+            JsonObject.encode(out, value);
+        }
+    }
+    
+    // Whether the value is encoded through JsonObject.write() or
+    // JsonArray.write() rather than a writeJson() of its own. Decoded objects
+    // write their entries as any other map would.
+    private static boolean isPlain(Object value, Class<?> type) {
+        return !(value instanceof JsonSerializable) || value.getClass() == type
+                || value instanceof CompactJsonObject;
+    }
+    
+    // Writes the elements of an array, or the entries of an object, slicing
+    // them across the pool if there are enough of them.
+    private static void write(Utf8JsonWriter out, Object[] items, boolean entries) throws IOException {
+        if(items.length <= SLICE) {
+            write(out, items, entries, 0, items.length);
+            return;
+        }
+        int wave = parallelism() * SLICES_PER_THREAD;
+        for(int from = 0; from < items.length; from += wave * SLICE) {
+            int slices = Math.min(wave, (items.length - from + SLICE - 1) / SLICE);
+            Slice[] tasks = new Slice[slices];
+            for(int k = 0; k < slices; k++) {
+                int start = from + k * SLICE;
+                tasks[k] = new Slice(out.fork(), items, entries, start, Math.min(start + SLICE, items.length));
+            }
+            ForkJoinTask.invokeAll(tasks);
+            for(Slice task : tasks) {
+                out.append(task.out);
+            }
+        }
+    }
+    
+    private static void write(Utf8JsonWriter out, Object[] items, boolean entries, int from, int to)
+            throws IOException {
+        for(int k = from; k < to; k++) {
+            out.separator(k == 0);
+            if(entries) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>)items[k];
+                JsonObject.writeString(out, String.valueOf(entry.getKey()));
+                out.writeByte(':');
+                write(out, entry.getValue());
+            } else {
+                write(out, items[k]);
+            }
+        }
+    }
+    
+    // Encodes one slice of an array or object into a writer of its own.
+    private static final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        final Utf8JsonWriter out;
+        private final Object[] items;
+        private final boolean entries;
+        private final int from;
+        private final int to;
+        
+        Slice(Utf8JsonWriter out, Object[] items, boolean entries, int from, int to) {
+            this.out = out;
+            this.items = items;
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+        
+        protected void compute() {
+            try {
+                write(out, items, entries, from, to);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Internal
+// Decodes a large top-level array on several threads. A pre-scan walks the
+// input once, tracking only strings and nesting depth, and cuts the array at
+// top-level commas into chunks of roughly equal size. Each chunk is then
+// decoded by its own lexer and parser on a fork-join pool, and the chunks are
+// joined in document order. The pre-scan does not validate anything: the
+// chunk parsers do, and the error of the first failing chunk is reported.
+// Input which is small, or is not an array the pre-scan can split, and any
+// input when the pool has a single thread, is decoded on the calling thread.
+final class ParallelParser {
+    // Inputs smaller than this are not worth splitting.
+    static final int THRESHOLD = 1 << 20;
+    // Smallest chunk handed to a thread.
+    static final int MIN_CHUNK = 1 << 16;
+    // Chunks per thread, so that threads finishing early can take on more.
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    private ParallelParser() {
+    }
+    
+    static Object decode(char[] json, int offset, int length) throws IOException {
+        int end = offset + length;
+        int chunk = chunkSize(length);
+        int[] cuts = chunk < 0 ? null : split(json, offset, end, chunk);
+        if(cuts == null) {
+            return JsonParser.decode(json, offset, length, null);
+        }
+        JsonLexer[] lexers = new JsonLexer[cuts.length - 1];
+        for(int k = 0; k < lexers.length; k++) {
+            int start = cuts[k] + 1;
+            int stop = k == lexers.length - 1 ? cuts[k + 1] + 1 : cuts[k + 1];
+            lexers[k] = new CharLexer(json, start, stop - start);
+        }
+        return decode(lexers);
+    }
+    
+    static Object decode(ByteBuffer json) throws IOException {
+        int origin = json.position();
+        int length = json.remaining();
+        int chunk = chunkSize(length);
+        int[] cuts = chunk < 0 ? null : split(json, origin, json.limit(), chunk);
+        if(cuts == null) {
+            return JsonParser.decode(json, null);
+        }
+        JsonLexer[] lexers = new JsonLexer[cuts.length - 1];
+        for(int k = 0; k < lexers.length; k++) {
+            int start = cuts[k] + 1;
+            int stop = k == lexers.length - 1 ? cuts[k + 1] + 1 : cuts[k + 1];
+            ByteBuffer slice = json.duplicate();
+            slice.limit(stop).position(start);
+            Utf8Lexer lexer = new Utf8Lexer(slice);
+            // Count positions from the start of the document, not the chunk.
+            lexer.base = -origin;
+            lexers[k] = lexer;
+        }
+        return decode(lexers);
+    }
+    
+    private static Object decode(JsonLexer[] lexers) throws IOException {
+        JsonArray[] results = new JsonArray[lexers.length];
+        IOException[] errors = new IOException[lexers.length];
+        Chunks task = new Chunks(lexers, results, errors, 0, lexers.length);
+        if(ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        int size = 0;
+        for(int k = 0; k < results.length; k++) {
+            if(errors[k] != null) {
+                throw errors[k];
+            }
+            size += results[k].size();
+        }
+        JsonArray array = new JsonArray(size);
+        for(JsonArray result : results) {
+            array.addAll(result);
+        }
+        return array;
+    }
+    
+    // Returns the size to cut the input into chunks of, or -1 if it should
+    // be decoded on the calling thread.
+    private static int chunkSize(int length) {
+        ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        int threads = pool.getParallelism();
+        if(length < THRESHOLD || threads < 2) {
+            return -1;
+        }
+        return Math.max(MIN_CHUNK, length / (threads * CHUNKS_PER_THREAD));
+    }
+    
+    // Returns the index of the array's opening bracket, of each comma the
+    // array is cut at, and of its closing bracket, or null if the input is
+    // not an array which can be cut in more than one chunk.
+    private static int[] split(char[] buf, int start, int end, int chunk) {
+        int i = start;
+        while(i < end && (buf[i] == ' ' || buf[i] == '\n' || buf[i] == '\r' || buf[i] == '\t')) {
+            i++;
+        }
+        if(i == end || buf[i] != '[') {
+            return null;
+        }
+        int[] cuts = new int[16];
+        int n = 0;
+        cuts[n++] = i;
+        int next = i + chunk;
+        int depth = 0;
+        for(i++; i < end; i++) {
+            char c = buf[i];
+            if(c == '"') {
+                for(i++; i < end && buf[i] != '"'; i++) {
+                    if(buf[i] == '\\') {
+                        i++;
+                    }
+                }
+            } else if(c == '[' || c == '{') {
+                depth++;
+            } else if(c == ']' || c == '}') {
+                if(depth == 0) {
+                    if(c != ']' || n == 1) {
+                        return null;
+                    }
+                    return Arrays.copyOf(cut(cuts, n, i), n + 1);
+                }
+                depth--;
+            } else if(c == ',' && depth == 0 && i >= next) {
+                cuts = cut(cuts, n++, i);
+                next = i + chunk;
+            }
+        }
+        return null;
+    }
+    
+    private static int[] split(ByteBuffer buf, int start, int end, int chunk) {
+        int i = start;
+        while(i < end && (buf.get(i) == ' ' || buf.get(i) == '\n' || buf.get(i) == '\r' || buf.get(i) == '\t')) {
+            i++;
+        }
+        if(i == end || buf.get(i) != '[') {
+            return null;
+        }
+        int[] cuts = new int[16];
+        int n = 0;
+        cuts[n++] = i;
+        int next = i + chunk;
+        int depth = 0;
+        for(i++; i < end; i++) {
+            byte b = buf.get(i);
+            if(b == '"') {
+                for(i++; i < end && buf.get(i) != '"'; i++) {
+                    if(buf.get(i) == '\\') {
+                        i++;
+                    }
+                }
+            } else if(b == '[' || b == '{') {
+                depth++;
+            } else if(b == ']' || b == '}') {
+                if(depth == 0) {
+                    if(b != ']' || n == 1) {
+                        return null;
+                    }
+                    return Arrays.copyOf(cut(cuts, n, i), n + 1);
+                }
+                depth--;
+            } else if(b == ',' && depth == 0 && i >= next) {
+                cuts = cut(cuts, n++, i);
+                next = i + chunk;
+            }
+        }
+        return null;
+    }
+    
+    // Stores a cut at index n, growing the array if needed.
+    private static int[] cut(int[] cuts, int n, int index) {
+        if(n == cuts.length) {
+            cuts = Arrays.copyOf(cuts, n << 1);
+        }
+        cuts[n] = index;
+        return cuts;
+    }
+    
+    // Decodes a range of chunks, splitting it in halves until each task holds one.
+    private static final class Chunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final JsonLexer[] lexers;
+        private final JsonArray[] results;
+        private final IOException[] errors;
+        private final int from;
+        private final int to;
+        
+        Chunks(JsonLexer[] lexers, JsonArray[] results, IOException[] errors, int from, int to) {
+            this.lexers = lexers;
+            this.results = results;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+        
+        protected void compute() {
+            if(to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Chunks(lexers, results, errors, from, mid),
+                        new Chunks(lexers, results, errors, mid, to));
+                return;
+            }
+            JsonArray list = new JsonArray();
+            try {
+                new JsonParser(lexers[from]).decodeElements(list, from == lexers.length - 1);
+                results[from] = list;
+            } catch(IOException e) {
+                errors[from] = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.eps.pson;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Internal
+// Bounded, lock-free pool of reusable decoders and encoders, behind the
+// static methods of JsonObject. An instance is taken out of the pool for the
+// length of one call rather than bound to a thread, which suits virtual
+// threads as well: they are too many and too short-lived for thread-locals.
+// Taking from an empty pool returns null, for the caller to make a new
+// instance, and giving to a full pool drops the instance, so no call waits.
+final class Pool<T> {
+    // Buffers grown past this many elements by an unusually large document
+    // are let go once it is done, rather than kept for the next one. Kept
+    // small, as pooled instances outlive the documents they held.
+    static final int MAX_RETAINED = 1 << 16;
+    // Most instances kept, however many processors there are.
+    private static final int MAX_SIZE = 64;
+    
+    private final AtomicReferenceArray<T> slots;
+    
+    Pool() {
+        int size = Math.min(MAX_SIZE, Runtime.getRuntime().availableProcessors() * 2);
+        this.slots = new AtomicReferenceArray<T>(size);
+    }
+    
+    T take() {
+        final AtomicReferenceArray<T> slots = this.slots;
+        int n = slots.length();
+        int start = start(n);
+        for(int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            T item = slots.get(i);
+            if(item != null && slots.compareAndSet(i, item, null)) {
+                return item;
+            }
+        }
+        return null;
+    }
+    
+    void give(T item) {
+        final AtomicReferenceArray<T> slots = this.slots;
+        int n = slots.length();
+        int start = start(n);
+        for(int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            if(slots.get(i) == null && slots.compareAndSet(i, null, item)) {
+                return;
+            }
+        }
+    }
+    
+    // Spreads threads over the slots, so that they seldom contend for one.
+    private static int start(int n) {
+        long id = Thread.currentThread().getId();
+        return (int)((id ^ (id >>> 16)) % n);
+    }
+}
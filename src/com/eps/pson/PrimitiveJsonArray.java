@@ -0,0 +1,318 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+// Internal
+// A JSON array of numbers held in a primitive array until it is changed.
+// Reading it, whether by index, by iterating or streaming over it, by
+// searching it or by comparing it, boxes only the element being read, so
+// that the elements are boxed into the list for good only once the array
+// is changed. Subclasses hold the primitive array and box its elements.
+abstract class PrimitiveJsonArray extends DeferredJsonArray {
+    // Number of values in the primitive array.
+    abstract int length();
+    
+    // Boxes the value at the given index of the primitive array.
+    abstract Object element(int k);
+    
+    // Writes the value at the given index of the primitive array.
+    abstract void writeElement(Writer out, int k) throws IOException;
+    
+    // Whether the given object equals the boxed value at the given index.
+    abstract boolean matches(int k, Object o);
+    
+    // Hash code of the boxed value at the given index.
+    abstract int hashAt(int k);
+    
+    // Lets go of the primitive array, once its values are in the list.
+    abstract void release();
+    
+    // Boxing the elements is not a change to the list, so iterators over
+    // it are not failed by it.
+    final void load() {
+        int mods = modCount;
+        int length = length();
+        ensureCapacity(length);
+        for(int k = 0; k < length; k++) {
+            store(element(k));
+        }
+        release();
+        modCount = mods;
+    }
+    
+    final void check(int index) {
+        if(index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length());
+        }
+    }
+    
+    public int size() {
+        return isDeferred() ? length() : super.size();
+    }
+    
+    public boolean isEmpty() {
+        return isDeferred() ? length() == 0 : super.isEmpty();
+    }
+    
+    public Object get(int index) {
+        if(!isDeferred()) {
+            return super.get(index);
+        }
+        check(index);
+        return element(index);
+    }
+    
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+    
+    public int indexOf(Object o) {
+        if(!isDeferred()) {
+            return super.indexOf(o);
+        }
+        for(int k = 0, length = length(); k < length; k++) {
+            if(matches(k, o)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+    
+    public int lastIndexOf(Object o) {
+        if(!isDeferred()) {
+            return super.lastIndexOf(o);
+        }
+        for(int k = length() - 1; k >= 0; k--) {
+            if(matches(k, o)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+    
+    public Object[] toArray() {
+        if(!isDeferred()) {
+            return super.toArray();
+        }
+        Object[] array = new Object[length()];
+        for(int k = 0; k < array.length; k++) {
+            array[k] = element(k);
+        }
+        return array;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if(!isDeferred()) {
+            return super.toArray(a);
+        }
+        int length = length();
+        if(a.length < length) {
+            return (T[])Arrays.copyOf(toArray(), length, a.getClass());
+        }
+        for(int k = 0; k < length; k++) {
+            a[k] = (T)element(k);
+        }
+        if(a.length > length) {
+            a[length] = null;
+        }
+        return a;
+    }
+    
+    public Iterator<Object> iterator() {
+        return isDeferred() ? new Cursor(0) : super.iterator();
+    }
+    
+    public ListIterator<Object> listIterator() {
+        return isDeferred() ? new Cursor(0) : super.listIterator();
+    }
+    
+    public ListIterator<Object> listIterator(int index) {
+        if(!isDeferred()) {
+            return super.listIterator(index);
+        }
+        if(index < 0 || index > length()) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return new Cursor(index);
+    }
+    
+    public void forEach(Consumer<? super Object> action) {
+        if(!isDeferred()) {
+            super.forEach(action);
+            return;
+        }
+        if(action == null) {
+            throw new NullPointerException("action");
+        }
+        final int mods = modCount;
+        final int length = length();
+        for(int k = 0; k < length && modCount == mods; k++) {
+            action.accept(get(k));
+        }
+        if(modCount != mods) {
+            throw new ConcurrentModificationException();
+        }
+    }
+    
+    public Spliterator<Object> spliterator() {
+        if(!isDeferred()) {
+            return super.spliterator();
+        }
+        return Spliterators.spliterator(this, Spliterator.ORDERED);
+    }
+    
+    public boolean equals(Object o) {
+        if(!isDeferred()) {
+            return super.equals(o);
+        }
+        if(o == this) {
+            return true;
+        } else if(!(o instanceof List)) {
+            return false;
+        }
+        List<?> other = (List<?>)o;
+        int length = length();
+        if(other.size() != length) {
+            return false;
+        }
+        Iterator<?> iter = other.iterator();
+        for(int k = 0; k < length; k++) {
+            if(!iter.hasNext() || !matches(k, iter.next())) {
+                return false;
+            }
+        }
+        return !iter.hasNext();
+    }
+    
+    public int hashCode() {
+        if(!isDeferred()) {
+            return super.hashCode();
+        }
+        int hash = 1;
+        for(int k = 0, length = length(); k < length; k++) {
+            hash = 31 * hash + hashAt(k);
+        }
+        return hash;
+    }
+    
+    public void writeJson(Writer out) throws IOException {
+        if(!isDeferred()) {
+            super.writeJson(out);
+            return;
+        }
+        if(out == null) {
+            throw new NullPointerException("out");
+        }
+        int length = length();
+        StructuredWriter layout = out instanceof StructuredWriter ? (StructuredWriter)out : null;
+        if(layout != null) {
+            layout.beginArray();
+        } else {
+            out.write('[');
+        }
+        for(int k = 0; k < length; k++) {
+            if(layout != null) {
+                layout.separator(k == 0);
+            } else if(k > 0) {
+                out.write(',');
+            }
+            writeElement(out, k);
+        }
+        if(layout != null) {
+            layout.endArray(length == 0);
+        } else {
+            out.write(']');
+        }
+    }
+    
+    // Iterates over the elements by index, reading through get() so that it
+    // carries on over the list if the array is boxed while it runs, and
+    // changing the array through the list's own methods.
+    private final class Cursor implements ListIterator<Object> {
+        private int cursor;
+        private int last = -1;
+        private int expected = modCount;
+        
+        Cursor(int index) {
+            this.cursor = index;
+        }
+        
+        private void check() {
+            if(modCount != expected) {
+                throw new ConcurrentModificationException();
+            }
+        }
+        
+        public boolean hasNext() {
+            return cursor < size();
+        }
+        
+        public Object next() {
+            check();
+            if(cursor >= size()) {
+                throw new NoSuchElementException();
+            }
+            last = cursor;
+            return get(cursor++);
+        }
+        
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+        
+        public Object previous() {
+            check();
+            if(cursor <= 0) {
+                throw new NoSuchElementException();
+            }
+            last = --cursor;
+            return get(cursor);
+        }
+        
+        public int nextIndex() {
+            return cursor;
+        }
+        
+        public int previousIndex() {
+            return cursor - 1;
+        }
+        
+        public void remove() {
+            if(last < 0) {
+                throw new IllegalStateException();
+            }
+            check();
+            PrimitiveJsonArray.this.remove(last);
+            cursor = last;
+            last = -1;
+            expected = modCount;
+        }
+        
+        public void set(Object e) {
+            if(last < 0) {
+                throw new IllegalStateException();
+            }
+            check();
+            PrimitiveJsonArray.this.set(last, e);
+            expected = modCount;
+        }
+        
+        public void add(Object e) {
+            check();
+            PrimitiveJsonArray.this.add(cursor++, e);
+            last = -1;
+            expected = modCount;
+        }
+    }
+}
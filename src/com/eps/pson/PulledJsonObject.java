@@ -0,0 +1,65 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+
+// Internal
+// A JSON object whose entries are pulled from an iterator as it is written,
+// each only once the one before it is, as JsonArray.writeLazy() does for
+// arrays. An iterator of entries cannot be told from one of elements, so
+// these are made by JsonObject.lazyObject() rather than found by type. The
+// entries can be written only once.
+final class PulledJsonObject implements JsonSerializable {
+    private Iterator<? extends Map.Entry<?, ?>> entries;
+    
+    PulledJsonObject(Iterator<? extends Map.Entry<?, ?>> entries) {
+        this.entries = entries;
+    }
+    
+    // Returns the iterator over the entries, which it lets go of.
+    Iterator<? extends Map.Entry<?, ?>> take() {
+        Iterator<? extends Map.Entry<?, ?>> iter = entries;
+        if(iter == null) {
+            throw new IllegalStateException("Entries were already written");
+        }
+        entries = null;
+        return iter;
+    }
+    
+    public void writeJson(Writer out) throws IOException {
+        if(out == null) {
+            throw new NullPointerException("out");
+        }
+        Iterator<? extends Map.Entry<?, ?>> iter = take();
+        boolean flush = out instanceof Utf8JsonWriter;
+        StructuredWriter layout = out instanceof StructuredWriter ? (StructuredWriter)out : null;
+        if(layout != null) {
+            layout.beginObject();
+        } else {
+            out.write('{');
+        }
+        boolean first = true;
+        while(iter.hasNext()) {
+            if(layout != null) {
+                layout.separator(first);
+            } else if(!first) {
+                out.write(',');
+            }
+            first = false;
+            Map.Entry<?, ?> entry = iter.next();
+            JsonObject.writeString(out, String.valueOf(entry.getKey()));
+            out.write(':');
+            JsonObject.encode(out, entry.getValue());
+            if(flush) {
+                ((Utf8JsonWriter)out).flushDrained();
+            }
+        }
+        if(layout != null) {
+            layout.endObject(first);
+        } else {
+            out.write('}');
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.eps.pson;
+
+import java.io.IOException;
+
+/**
+ * Implemented by writers which lay out the structure of JSON themselves,
+ * such as {@link JsonWriter} and {@link Utf8JsonWriter}. Rather than writing
+ * brackets and commas as characters, {@link JsonObject} and {@link JsonArray}
+ * report where objects and arrays begin and end and where elements are
+ * separated, which lets the writer indent the output without inspecting it.
+ * {@link JsonSerializable} types may do the same to be pretty printed.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ */
+public interface StructuredWriter {
+    
+    /**
+     * Writes the start of an object.
+     * 
+     * @throws IOException If an error occurs in writing.
+     */
+    void beginObject() throws IOException;
+    
+    /**
+     * Writes the end of an object.
+     * 
+     * @param empty True if the object had no entries.
+     * @throws IOException If an error occurs in writing.
+     */
+    void endObject(boolean empty) throws IOException;
+    
+    /**
+     * Writes the start of an array.
+     * 
+     * @throws IOException If an error occurs in writing.
+     */
+    void beginArray() throws IOException;
+    
+    /**
+     * Writes the end of an array.
+     * 
+     * @param empty True if the array had no elements.
+     * @throws IOException If an error occurs in writing.
+     */
+    void endArray(boolean empty) throws IOException;
+    
+    /**
+     * Writes whatever precedes an element of an array, or an entry of
+     * an object: a comma unless it is the first, and any indentation.
+     * 
+     * @param first True if this is the first element.
+     * @throws IOException If an error occurs in writing.
+     */
+    void separator(boolean first) throws IOException;
+}
@@ -1,19 +1,36 @@
 package com.eps.pson;
 
-// Internal
-// Indicates the type of a supported JSON token.
-enum TokenType {
+/**
+ * Indicates the type of a JSON token, as reported by {@link JsonReader}.
+ * 
+ * @since 0.1
+ * @author David Vallee
+ */
+public enum TokenType {
+    /** The end of the input, or a character that starts no token. */
     NONE,
+    /** Reserved. */
     VALUE,
+    /** The start of an object, <code>{</code>. */
     BRACE_OPEN,
+    /** The end of an object, <code>}</code>. */
     BRACE_CLOSE,
+    /** The start of an array, <code>[</code>. */
     SQUARE_OPEN,
+    /** The end of an array, <code>]</code>. */
     SQUARE_CLOSE,
+    /** The separator between an object's key and its value. */
     COLON,
+    /** The separator between elements of an array or object. */
     COMMA,
+    /** A string, which may be a value or an object's key. */
     STRING,
+    /** A number. */
     NUMBER,
+    /** The literal <code>true</code>. */
     TRUE,
+    /** The literal <code>false</code>. */
     FALSE,
+    /** The literal <code>null</code>. */
     NULL;
 }
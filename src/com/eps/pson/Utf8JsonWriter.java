@@ -0,0 +1,610 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * A writer which encodes JSON as UTF-8 straight into a reusable byte buffer,
+ * flushing it to an {@link OutputStream} or {@link WritableByteChannel} as it
+ * fills up. Without a destination, the buffer grows to hold the whole output,
+ * which may then be taken with {@link #toByteArray()}.
+ * <br>
+ * <br>
+ * Strings are escaped and encoded in a single pass, and numbers are formatted
+ * directly into the buffer, so encoding does not create intermediate strings.
+ * As this is a {@link Writer}, {@link JsonSerializable} types write to it
+ * unchanged; characters written through the {@link Writer} methods are simply
+ * encoded as UTF-8. Unlike {@link java.io.StringWriter}, this writer is not
+ * synchronized.
+ * 
+ * @since 0.2
+ * @author David Vallee
+ * @see JsonObject#encode(OutputStream, Object)
+ */
+public final class Utf8JsonWriter extends Writer implements StructuredWriter {
+    private static final int BUFFER_SIZE = 8192;
+    // Largest number of bytes a single char can be written as, "\\uXXXX".
+    private static final int MAX_CHAR_BYTES = 6;
+    private static final byte[] HEX = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+    private static final long[] POW10 = new long[19];
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    
+    static {
+        long p = 1;
+        for(int i = 0; i < POW10.length; i++) {
+            POW10[i] = p;
+            p *= 10;
+        }
+    }
+    
+    private OutputStream out;
+    private WritableByteChannel channel;
+    private byte[] buf;
+    private int count;
+    private char pendingSurrogate;
+    private boolean pretty;
+    private int depth;
+    private int width = 4;
+    private byte[] indent = indentTable(4);
+    // Whether the buffer was written to the stream since it was last flushed.
+    private boolean drained;
+    // Number of bytes written to the destination so far.
+    private long written;
+    // Counts of what is written, or null if it is not measured.
+    JsonMetrics.Counts counts;
+    
+    /**
+     * Initializes a writer which keeps its output in memory.
+     */
+    public Utf8JsonWriter() {
+        this.out = null;
+        this.channel = null;
+        this.buf = new byte[BUFFER_SIZE];
+    }
+    
+    /**
+     * Initializes a writer which flushes its output to the given stream.
+     * 
+     * @param out The stream the encoded JSON is written to.
+     * @throws NullPointerException If the stream is null.
+     */
+    public Utf8JsonWriter(OutputStream out) {
+        if(out == null) {
+            throw new NullPointerException("out");
+        }
+        this.out = out;
+        this.channel = null;
+        this.buf = new byte[BUFFER_SIZE];
+    }
+    
+    /**
+     * Initializes a writer which flushes its output to the given channel.
+     * 
+     * @param channel The channel the encoded JSON is written to.
+     * @throws NullPointerException If the channel is null.
+     */
+    public Utf8JsonWriter(WritableByteChannel channel) {
+        if(channel == null) {
+            throw new NullPointerException("channel");
+        }
+        this.out = null;
+        this.channel = channel;
+        this.buf = new byte[BUFFER_SIZE];
+    }
+    
+    /**
+     * Encodes the given value, as with {@link JsonObject#encode(Writer, Object)}.
+     * 
+     * @param value The value to be encoded.
+     * @return This writer.
+     * @throws IOException If an error occurs while writing.
+     */
+    public Utf8JsonWriter writeValue(Object value) throws IOException {
+        JsonObject.encode(this, value);
+        return this;
+    }
+    
+    /**
+     * Encodes the given value as with {@link #writeValue(Object)}, encoding
+     * the elements of large arrays and objects on several threads. Slices of
+     * such arrays and objects are encoded into separate buffers on a
+     * fork-join pool and then written in order, so the output is the same as
+     * from {@link #writeValue(Object)}, pretty printing included. The pool
+     * is the one the calling thread runs in, if any, or the common pool
+     * otherwise; if it has a single thread, the value is encoded as usual.
+     * <br>
+     * <br>
+     * Only {@link JsonObject}, {@link JsonArray}, and maps and lists which
+     * are not {@link JsonSerializable}, are split; other values are written
+     * as usual. The values must not be changed while they are encoded.
+     * 
+     * @param value The value to be encoded.
+     * @return This writer.
+     * @throws IOException If an error occurs while writing.
+     * @see JsonObject#encodeParallel(OutputStream, Object)
+     */
+    public Utf8JsonWriter writeValueParallel(Object value) throws IOException {
+        ParallelEncoder.encode(this, value);
+        return this;
+    }
+    
+    // Creates an in-memory writer with this writer's layout and depth, for
+    // encoding part of its output on another thread.
+    Utf8JsonWriter fork() {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.pretty = pretty;
+        writer.width = width;
+        writer.indent = indent;
+        writer.depth = depth;
+        return writer;
+    }
+    
+    // Writes everything held by a writer created with fork().
+    void append(Utf8JsonWriter writer) throws IOException {
+        writeBytes(writer.buf, 0, writer.count);
+    }
+    
+    // Empties the buffer and starts over at the top level, writing to the
+    // given destination, or to memory if there is none. Lets JsonEncoder
+    // keep one buffer for every value it encodes.
+    void reset(OutputStream out, WritableByteChannel channel) {
+        this.out = out;
+        this.channel = channel;
+        count = 0;
+        depth = 0;
+        written = 0;
+        pendingSurrogate = 0;
+        if(buf.length > Pool.MAX_RETAINED) {
+            buf = new byte[BUFFER_SIZE];
+        }
+    }
+    
+    // Whether the output is kept in memory rather than flushed, so that what
+    // was written after a given size() may be copied back out with copy().
+    boolean inMemory() {
+        return out == null && channel == null;
+    }
+    
+    // Copies the bytes written to an in-memory writer since the given size().
+    byte[] copy(int from) {
+        return Arrays.copyOfRange(buf, from, count);
+    }
+    
+    // Makes room for at least the given number of bytes, draining the buffer
+    // to the destination or growing it if there is none.
+    private void ensure(int length) throws IOException {
+        if(buf.length - count >= length) {
+            return;
+        }
+        if(out != null || channel != null) {
+            drain();
+        }
+        if(buf.length - count < length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + length));
+        }
+    }
+    
+    private void drain() throws IOException {
+        if(count == 0) {
+            return;
+        }
+        if(out != null) {
+            out.write(buf, 0, count);
+        } else if(channel != null) {
+            ByteBuffer bytes = ByteBuffer.wrap(buf, 0, count);
+            while(bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } else {
+            return;
+        }
+        written += count;
+        count = 0;
+        drained = true;
+    }
+    
+    // Number of bytes written since the last reset(), to the destination
+    // and to the buffer.
+    long position() {
+        return written + count;
+    }
+    
+    // Flushes the stream if a buffer's worth was written to it since the
+    // last flush, so that output pulled from a lazy source goes out in
+    // chunks of about the buffer's size rather than all at the end.
+    void flushDrained() throws IOException {
+        if(drained) {
+            drained = false;
+            if(out != null) {
+                out.flush();
+            }
+        }
+    }
+    
+    void writeByte(int b) throws IOException {
+        if(count == buf.length) {
+            ensure(1);
+        }
+        buf[count++] = (byte)b;
+    }
+    
+    // Writes a string known to hold only ASCII characters.
+    void writeAscii(String value) throws IOException {
+        int len = value.length();
+        ensure(len);
+        final byte[] buf = this.buf;
+        int n = count;
+        for(int i = 0; i < len; i++) {
+            buf[n++] = (byte)value.charAt(i);
+        }
+        count = n;
+    }
+    
+    void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if(length > buf.length - count && (out != null || channel != null)) {
+            drain();
+            if(length > buf.length) {
+                written += length;
+                if(out != null) {
+                    out.write(bytes, offset, length);
+                } else {
+                    ByteBuffer source = ByteBuffer.wrap(bytes, offset, length);
+                    while(source.hasRemaining()) {
+                        channel.write(source);
+                    }
+                }
+                return;
+            }
+        }
+        ensure(length);
+        System.arraycopy(bytes, offset, buf, count, length);
+        count += length;
+    }
+    
+    // Writes the given string as a quoted, escaped JSON string.
+    void writeQuoted(String value) throws IOException {
+        writeByte('\"');
+        final int len = value.length();
+        for(int i = 0; i < len; i++) {
+            if(buf.length - count < MAX_CHAR_BYTES) {
+                ensure(MAX_CHAR_BYTES);
+            }
+            final byte[] buf = this.buf;
+            char ch = value.charAt(i);
+            if(ch < 0x80) {
+                char escape = JsonObject.ESCAPES[ch];
+                if(escape == 0) {
+                    buf[count++] = (byte)ch;
+                } else {
+                    writeEscape(escape, ch);
+                }
+            } else if(ch < 0x800) {
+                if(ch <= '\u009F') {
+                    writeEscape('u', ch);
+                } else {
+                    buf[count++] = (byte)(0xC0 | (ch >> 6));
+                    buf[count++] = (byte)(0x80 | (ch & 0x3F));
+                }
+            } else if(Character.isSurrogate(ch)) {
+                if(Character.isHighSurrogate(ch) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    writeCodePoint(Character.toCodePoint(ch, value.charAt(++i)));
+                } else {
+                    buf[count++] = '?';
+                }
+            } else if(ch >= '\u2000' && ch <= '\u20FF') {
+                writeEscape('u', ch);
+            } else {
+                buf[count++] = (byte)(0xE0 | (ch >> 12));
+                buf[count++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+                buf[count++] = (byte)(0x80 | (ch & 0x3F));
+            }
+        }
+        writeByte('\"');
+    }
+    
+    // Requires room for MAX_CHAR_BYTES bytes.
+    private void writeEscape(char escape, char ch) {
+        final byte[] buf = this.buf;
+        buf[count++] = '\\';
+        buf[count++] = (byte)escape;
+        if(escape == 'u') {
+            buf[count++] = HEX[(ch >> 12) & 0xF];
+            buf[count++] = HEX[(ch >> 8) & 0xF];
+            buf[count++] = HEX[(ch >> 4) & 0xF];
+            buf[count++] = HEX[ch & 0xF];
+        }
+    }
+    
+    // Requires room for four bytes.
+    private void writeCodePoint(int cp) {
+        final byte[] buf = this.buf;
+        buf[count++] = (byte)(0xF0 | (cp >> 18));
+        buf[count++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+        buf[count++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+        buf[count++] = (byte)(0x80 | (cp & 0x3F));
+    }
+    
+    void writeLong(long value) throws IOException {
+        if(value == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+        ensure(20);
+        if(value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        while(digits < POW10.length && value >= POW10[digits]) {
+            digits++;
+        }
+        writeDigits(value, digits);
+    }
+    
+    // Writes exactly the given number of digits of a non-negative value,
+    // padding with leading zeros. Requires room for them.
+    private void writeDigits(long value, int digits) {
+        final byte[] buf = this.buf;
+        int i = count + digits;
+        count = i;
+        for(int k = 0; k < digits; k++) {
+            buf[--i] = (byte)('0' + (int)(value % 10));
+            value /= 10;
+        }
+    }
+    
+    // Writes a finite double in its shortest plain decimal form where
+    // that form is exact and small, falling back to Double.toString.
+    void writeDouble(double value) throws IOException {
+        double abs = Math.abs(value);
+        if(abs >= 1e-3 && abs < 1e7) {
+            for(int k = 0; k < POW10.length; k++) {
+                double scaled = abs * POW10[k];
+                if(scaled >= MAX_EXACT_MANTISSA) {
+                    break;
+                }
+                long mantissa = Math.round(scaled);
+                if(mantissa / (double)POW10[k] == abs) {
+                    ensure(40);
+                    if(value < 0) {
+                        buf[count++] = '-';
+                    }
+                    writeLong(mantissa / POW10[k]);
+                    buf[count++] = '.';
+                    if(k == 0) {
+                        buf[count++] = '0';
+                    } else {
+                        writeDigits(mantissa % POW10[k], k);
+                    }
+                    return;
+                }
+            }
+        }
+        writeAscii(Double.toString(value));
+    }
+    
+    // Writes a line break followed by the indentation for the current depth.
+    private void newline() throws IOException {
+        int spaces = depth * width;
+        int n = Math.min(spaces, indent.length - 1);
+        writeBytes(indent, 0, n + 1);
+        for(spaces -= n; spaces > 0; spaces -= n) {
+            n = Math.min(spaces, indent.length - 1);
+            writeBytes(indent, 1, n);
+        }
+    }
+    
+    public void beginObject() throws IOException {
+        writeByte('{');
+        depth++;
+        if(JsonMetrics.ENABLED && counts != null) {
+            counts.open();
+        }
+    }
+    
+    public void endObject(boolean empty) throws IOException {
+        depth--;
+        if(JsonMetrics.ENABLED && counts != null) {
+            counts.close();
+        }
+        if(pretty && !empty) {
+            newline();
+        }
+        writeByte('}');
+    }
+    
+    public void beginArray() throws IOException {
+        writeByte('[');
+        depth++;
+        if(JsonMetrics.ENABLED && counts != null) {
+            counts.open();
+        }
+    }
+    
+    public void endArray(boolean empty) throws IOException {
+        depth--;
+        if(JsonMetrics.ENABLED && counts != null) {
+            counts.close();
+        }
+        if(pretty && !empty) {
+            newline();
+        }
+        writeByte(']');
+    }
+    
+    public void separator(boolean first) throws IOException {
+        if(!first) {
+            writeByte(',');
+        }
+        if(pretty) {
+            newline();
+        }
+    }
+    
+    /**
+     * Sets whether or not "pretty printing" is enabled, as with
+     * {@link JsonWriter#setPrettyPrinting(boolean)}.
+     * 
+     * @param prettyEnabled Enables "pretty printing" if true.
+     * @return This writer.
+     */
+    public Utf8JsonWriter setPrettyPrinting(boolean prettyEnabled) {
+        this.pretty = prettyEnabled;
+        return this;
+    }
+    
+    /**
+     * Gets whether or not "pretty printing" is enabled.
+     * 
+     * @return True if "pretty printing" is enabled.
+     */
+    public boolean isPrettyPrintingEnabled() {
+        return pretty;
+    }
+    
+    /**
+     * Sets the number of spaces each level is indented by
+     * while "pretty printing".
+     * 
+     * @param width The number of spaces per level.
+     * @return This writer.
+     * @throws IllegalArgumentException If the width is negative.
+     */
+    public Utf8JsonWriter setIndentWidth(int width) {
+        if(width < 0) {
+            throw new IllegalArgumentException("width");
+        }
+        this.width = width;
+        this.indent = indentTable(width);
+        return this;
+    }
+    
+    /**
+     * Gets the number of spaces each level is indented by.
+     * 
+     * @return The number of spaces per level.
+     */
+    public int getIndentWidth() {
+        return width;
+    }
+    
+    private static byte[] indentTable(int width) {
+        char[] table = JsonWriter.indentTable(width);
+        byte[] bytes = new byte[table.length];
+        for(int i = 0; i < table.length; i++) {
+            bytes[i] = (byte)table[i];
+        }
+        return bytes;
+    }
+    
+    public void write(int c) throws IOException {
+        if(buf.length - count < 4) {
+            ensure(4);
+        }
+        writeChar((char)c);
+    }
+    
+    // Encodes a single char as UTF-8, pairing surrogates across calls.
+    // Requires room for four bytes.
+    private void writeChar(char ch) {
+        final byte[] buf = this.buf;
+        if(pendingSurrogate != 0) {
+            char high = pendingSurrogate;
+            pendingSurrogate = 0;
+            if(Character.isLowSurrogate(ch)) {
+                writeCodePoint(Character.toCodePoint(high, ch));
+                return;
+            }
+            buf[count++] = '?';
+        }
+        if(ch < 0x80) {
+            buf[count++] = (byte)ch;
+        } else if(ch < 0x800) {
+            buf[count++] = (byte)(0xC0 | (ch >> 6));
+            buf[count++] = (byte)(0x80 | (ch & 0x3F));
+        } else if(Character.isHighSurrogate(ch)) {
+            pendingSurrogate = ch;
+        } else if(Character.isLowSurrogate(ch)) {
+            buf[count++] = '?';
+        } else {
+            buf[count++] = (byte)(0xE0 | (ch >> 12));
+            buf[count++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+            buf[count++] = (byte)(0x80 | (ch & 0x3F));
+        }
+    }
+    
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for(int i = off; i < off + len; i++) {
+            if(buf.length - count < 4) {
+                ensure(4);
+            }
+            writeChar(cbuf[i]);
+        }
+    }
+    
+    public void write(String str, int off, int len) throws IOException {
+        for(int i = off; i < off + len; i++) {
+            if(buf.length - count < 4) {
+                ensure(4);
+            }
+            writeChar(str.charAt(i));
+        }
+    }
+    
+    public void write(String str) throws IOException {
+        write(str, 0, str.length());
+    }
+    
+    /**
+     * Writes any buffered bytes to the destination and flushes it.
+     * Has no effect on a writer which keeps its output in memory.
+     * 
+     * @throws IOException If an error occurs while writing.
+     */
+    public void flush() throws IOException {
+        drain();
+        drained = false;
+        if(out != null) {
+            out.flush();
+        }
+    }
+    
+    /**
+     * Flushes this writer, then closes the destination.
+     * 
+     * @throws IOException If an error occurs while writing or closing.
+     */
+    public void close() throws IOException {
+        flush();
+        if(out != null) {
+            out.close();
+        } else if(channel != null) {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Gets the number of bytes currently held in the buffer.
+     * 
+     * @return The number of buffered bytes.
+     */
+    public int size() {
+        return count;
+    }
+    
+    /**
+     * Copies the bytes currently held in the buffer. For a writer which keeps
+     * its output in memory, this is the whole output.
+     * 
+     * @return The buffered UTF-8 encoded bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+}
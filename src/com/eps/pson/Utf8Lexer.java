@@ -0,0 +1,399 @@
+package com.eps.pson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Internal
+// Tokenizer over UTF-8 encoded bytes, read in place from a heap or direct
+// ByteBuffer through absolute gets, so neither the buffer's position nor its
+// contents are copied. Only keys and string values become Strings: runs of
+// plain ASCII are converted in one step, and anything with escapes or
+// multi-byte sequences is decoded into a reused scratch array.
+//
+// As with CharLexer, subclasses which refill the buffer must keep everything
+// from the start of the current token, see fill().
+class Utf8Lexer extends JsonLexer {
+    private static final char REPLACEMENT = '\uFFFD';
+    
+    ByteBuffer buf;
+    int pos;
+    int limit;
+    // Offset of buf's index 0 in the input, so that position() counts from
+    // the start of the document.
+    long base;
+    private char[] chars = new char[SCRATCH_SIZE];
+    
+    Utf8Lexer(ByteBuffer buf) {
+        this.buf = buf;
+        this.pos = buf.position();
+        this.limit = buf.limit();
+        this.base = -pos;
+    }
+    
+    // Starts over on the given input, keeping the scratch space.
+    void wrap(ByteBuffer buf) {
+        clear();
+        this.buf = buf;
+        this.pos = buf.position();
+        this.limit = buf.limit();
+        this.base = -pos;
+        if(chars.length > Pool.MAX_RETAINED) {
+            chars = new char[SCRATCH_SIZE];
+        }
+    }
+    
+    // Clears the scratch space of the strings decoded since the last call.
+    void scrub() {
+        chars = scrub(chars);
+    }
+    
+    long position() {
+        return base + pos;
+    }
+    
+    void seek(long position) {
+        pos = (int)(position - base);
+    }
+    
+    boolean skipLineBreak() {
+        if(pos < limit && buf.get(pos) == '\n') {
+            pos++;
+            clear();
+            return true;
+        }
+        return false;
+    }
+    
+    String current() {
+        return pos < limit ? String.valueOf((char)(buf.get(pos) & 0xFF)) : null;
+    }
+    
+    // Makes more input available, keeping every byte from pos onward; pos and
+    // limit may be moved to a new buffer. Returns false once the input is
+    // exhausted.
+    boolean fill() throws IOException {
+        return false;
+    }
+    
+    void advance(int length) {
+        pos += length;
+    }
+    
+    TokenType scan() throws IOException {
+        int i = pos;
+        byte b;
+        while(true) {
+            final ByteBuffer buf = this.buf;
+            for(; i < limit; i++) {
+                b = buf.get(i);
+                if(b != ' ' && (b != '\n' || lines) && b != '\r' && b != '\t') {
+                    break;
+                }
+            }
+            pos = i;
+            if(i < limit) {
+                break;
+            }
+            if(!fill()) {
+                return TokenType.NONE;
+            }
+            i = pos;
+        }
+        switch(buf.get(i)) {
+            case '{': return TokenType.BRACE_OPEN;
+            case '}': return TokenType.BRACE_CLOSE;
+            case '[': return TokenType.SQUARE_OPEN;
+            case ']': return TokenType.SQUARE_CLOSE;
+            case ',': return TokenType.COMMA;
+            case ':': return TokenType.COLON;
+            case '"': return TokenType.STRING;
+            case '0': case '1': case '2': case '3': case '4':
+            case '5': case '6': case '7': case '8': case '9':
+            case '-': return TokenType.NUMBER;
+            case 't': return matches("true") ? TokenType.TRUE : TokenType.NONE;
+            case 'f': return matches("false") ? TokenType.FALSE : TokenType.NONE;
+            case 'n': return matches("null") ? TokenType.NULL : TokenType.NONE;
+        }
+        return TokenType.NONE;
+    }
+    
+    private boolean matches(String literal) throws IOException {
+        int len = literal.length();
+        while(limit - pos < len) {
+            if(!fill()) {
+                return false;
+            }
+        }
+        for(int k = 1; k < len; k++) {
+            if(buf.get(pos + k) != literal.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    String decodeString() throws IOException {
+        int i = pos + 1;
+        while(true) {
+            final ByteBuffer buf = this.buf;
+            for(; i < limit; i++) {
+                byte b = buf.get(i);
+                if(b == '"') {
+                    String s = ascii(pos + 1, i);
+                    pos = i + 1;
+                    return s;
+                } else if(b == '\\' || b < 0) {
+                    return decodeEscaped(i);
+                }
+            }
+            int offset = i - pos;
+            if(!fill()) {
+                pos = limit;
+                throw new IOException("String parsing incomplete");
+            }
+            i = pos + offset;
+        }
+    }
+    
+    String decodeKey(KeyCache keys) throws IOException {
+        final ByteBuffer buf = this.buf;
+        for(int i = pos + 1; i < limit; i++) {
+            byte b = buf.get(i);
+            if(b == '"') {
+                String s = keys.get(buf, pos + 1, i);
+                pos = i + 1;
+                return s;
+            } else if(b == '\\' || b < 0) {
+                break;
+            }
+        }
+        return decodeString();
+    }
+    
+    // Builds a string from a range holding only ASCII bytes.
+    private String ascii(int start, int end) {
+        final ByteBuffer buf = this.buf;
+        if(buf.hasArray()) {
+            return new String(buf.array(), buf.arrayOffset() + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+        char[] chars = scratch(end - start);
+        for(int i = start; i < end; i++) {
+            chars[i - start] = (char)buf.get(i);
+        }
+        return new String(chars, 0, end - start);
+    }
+    
+    private char[] scratch(int size) {
+        char[] chars = this.chars;
+        if(chars.length < size) {
+            chars = this.chars = new char[Math.max(size, chars.length << 1)];
+        }
+        return chars;
+    }
+    
+    private char[] grow(int size) {
+        return chars = Arrays.copyOf(chars, Math.max(size, chars.length << 1));
+    }
+    
+    // Slow path for strings with escapes or multi-byte sequences, continuing
+    // from index i after the plain ASCII prefix.
+    private String decodeEscaped(int i) throws IOException {
+        int start = pos + 1;
+        int n = i - start;
+        char[] chars = scratch(n + 16);
+        for(int k = 0; k < n; k++) {
+            chars[k] = (char)buf.get(start + k);
+        }
+        boolean more = true;
+        while(true) {
+            final ByteBuffer buf = this.buf;
+            while(i < limit) {
+                if(chars.length - n < 2) {
+                    chars = grow(n + 2);
+                }
+                int b = buf.get(i);
+                if(b == '"') {
+                    pos = i + 1;
+                    return new String(chars, 0, n);
+                } else if(b == '\\') {
+                    if(i + 1 == limit) {
+                        break;
+                    }
+                    b = buf.get(i + 1);
+                    if(b == 'u') {
+                        int u = unicode(i);
+                        if(u < 0) {
+                            break;
+                        }
+                        chars[n++] = (char)u;
+                        i += 6;
+                        continue;
+                    }
+                    switch(b) {
+                        case 'b': chars[n++] = '\b'; break;
+                        case 'f': chars[n++] = '\f'; break;
+                        case 'n': chars[n++] = '\n'; break;
+                        case 'r': chars[n++] = '\r'; break;
+                        case 't': chars[n++] = '\t'; break;
+                        default: chars[n++] = (char)(b & 0xFF); break;
+                    }
+                    i += 2;
+                } else if(b >= 0) {
+                    chars[n++] = (char)b;
+                    i++;
+                } else {
+                    int length = b >= -16 ? 4 : b >= -32 ? 3 : 2;
+                    int cp = sequence(b, i, length);
+                    if(cp == -2 && more) {
+                        break;
+                    }
+                    if(cp < 0) {
+                        chars[n++] = REPLACEMENT;
+                        i++;
+                    } else if(cp >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                        chars[n++] = Character.highSurrogate(cp);
+                        chars[n++] = Character.lowSurrogate(cp);
+                        i += length;
+                    } else {
+                        chars[n++] = (char)cp;
+                        i += length;
+                    }
+                }
+            }
+            int offset = i - pos;
+            if(!fill()) {
+                if(more && i < limit && buf.get(i) != '\\') {
+                    // A truncated sequence; decode what is left as malformed.
+                    more = false;
+                    continue;
+                }
+                pos = limit;
+                throw new IOException("String parsing incomplete");
+            }
+            i = pos + offset;
+        }
+    }
+    
+    // Decodes the \\u escape whose backslash is at index i, or returns -1
+    // if the buffer ends before its last hex digit. Surrogate pairs need no
+    // joining, as each half is a char of its own.
+    private int unicode(int i) throws IOException {
+        final ByteBuffer buf = this.buf;
+        int c = 0;
+        for(int k = i + 2; k < i + 6; k++) {
+            if(k == limit) {
+                return -1;
+            }
+            int digit = hexDigit(buf.get(k));
+            if(digit < 0) {
+                throw invalidEscape(base + i);
+            }
+            c = (c << 4) | digit;
+        }
+        return c;
+    }
+    
+    // Decodes the multi-byte sequence at index i, returning its code point,
+    // -1 if it is malformed, or -2 if it is cut off by the end of the buffer.
+    private int sequence(int b, int i, int length) {
+        int cp;
+        int min;
+        if(b >= -62 && b < -32) {
+            cp = b & 0x1F;
+            min = 0x80;
+        } else if(b >= -32 && b < -16) {
+            cp = b & 0x0F;
+            min = 0x800;
+        } else if(b >= -16 && b < -11) {
+            cp = b & 0x07;
+            min = Character.MIN_SUPPLEMENTARY_CODE_POINT;
+        } else {
+            return -1;
+        }
+        for(int k = 1; k < length; k++) {
+            if(i + k >= limit) {
+                return -2;
+            }
+            int c = buf.get(i + k);
+            if((c & 0xC0) != 0x80) {
+                return -1;
+            }
+            cp = (cp << 6) | (c & 0x3F);
+        }
+        if(cp < min || cp > Character.MAX_CODE_POINT
+                || (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE)) {
+            return -1;
+        }
+        return cp;
+    }
+    
+    boolean stringEquals(String value) throws IOException {
+        final ByteBuffer buf = this.buf;
+        int i = pos + 1;
+        int end = i + value.length();
+        if(end >= limit) {
+            return super.stringEquals(value);
+        }
+        for(int k = 0; i < end; i++, k++) {
+            byte b = buf.get(i);
+            if(b == '\\' || b < 0) {
+                return super.stringEquals(value);
+            }
+            if(b != value.charAt(k) || b == '"') {
+                return false;
+            }
+        }
+        return buf.get(end) == '"';
+    }
+    
+    void skipString() throws IOException {
+        int i = pos + 1;
+        while(true) {
+            final ByteBuffer buf = this.buf;
+            for(; i < limit; i++) {
+                byte b = buf.get(i);
+                if(b == '"') {
+                    pos = i + 1;
+                    return;
+                } else if(b == '\\') {
+                    if(i + 1 == limit) {
+                        break;
+                    }
+                    if(buf.get(i + 1) == 'u') {
+                        // Escapes are checked as when decoding, so that
+                        // skipped strings fail on the same input.
+                        if(unicode(i) < 0) {
+                            break;
+                        }
+                        i += 5;
+                    } else {
+                        i++;
+                    }
+                }
+            }
+            int offset = i - pos;
+            if(!fill()) {
+                pos = limit;
+                throw new IOException("String parsing incomplete");
+            }
+            i = pos + offset;
+        }
+    }
+    
+    void scanNumber(NumberParser number) throws IOException {
+        int i = pos;
+        while(true) {
+            final ByteBuffer buf = this.buf;
+            while(i < limit && number.accept(buf.get(i))) {
+                i++;
+            }
+            pos = i;
+            if(i < limit || !fill()) {
+                return;
+            }
+            i = pos;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.eps.pson;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Internal
+// Listener behind JsonMetrics.flightRecorder(), built for Java 11 into the
+// versioned part of the jar, as the Java 8 API has no jdk.jfr. Each document
+// is committed as an event of its own, once recording is enabled for it.
+final class FlightRecorderListener implements JsonMetrics.Listener {
+    public void decoded(long input, long tokens, int depth, long strings, long numbers, long nanos) {
+        DecodeEvent event = new DecodeEvent();
+        if(event.isEnabled()) {
+            event.input = input;
+            event.tokens = tokens;
+            event.depth = depth;
+            event.strings = strings;
+            event.numbers = numbers;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+    
+    public void encoded(long output, long tokens, int depth, long strings, long numbers, long nanos) {
+        EncodeEvent event = new EncodeEvent();
+        if(event.isEnabled()) {
+            event.output = output;
+            event.tokens = tokens;
+            event.depth = depth;
+            event.strings = strings;
+            event.numbers = numbers;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+    
+    @Name("com.eps.pson.Decode")
+    @Label("JSON Decode")
+    @Description("A JSON document decoded by a JsonDecoder")
+    @Category("JSON")
+    @StackTrace(false)
+    static final class DecodeEvent extends Event {
+        @Label("Input")
+        @DataAmount
+        long input;
+        
+        @Label("Tokens")
+        long tokens;
+        
+        @Label("Depth")
+        int depth;
+        
+        @Label("Strings")
+        long strings;
+        
+        @Label("Numbers")
+        long numbers;
+        
+        @Label("Decode Time")
+        @Timespan
+        long nanos;
+    }
+    
+    @Name("com.eps.pson.Encode")
+    @Label("JSON Encode")
+    @Description("A value encoded to JSON by a JsonEncoder")
+    @Category("JSON")
+    @StackTrace(false)
+    static final class EncodeEvent extends Event {
+        @Label("Output")
+        @DataAmount
+        long output;
+        
+        @Label("Tokens")
+        long tokens;
+        
+        @Label("Depth")
+        int depth;
+        
+        @Label("Strings")
+        long strings;
+        
+        @Label("Numbers")
+        long numbers;
+        
+        @Label("Encode Time")
+        @Timespan
+        long nanos;
+    }
+}
@@ -0,0 +1,81 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class BindingTest {
+    public enum Color {
+        RED, GREEN;
+        
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+    
+    public static class Numbers {
+        public int[] ints;
+        public Integer[] boxed;
+    }
+    
+    public static class Keyed {
+        public Map<Integer, String> byInt;
+        public Map<Long, Long> byLong;
+        public Map<Color, Integer> byColor;
+        public Map<Object, Object> byAny;
+    }
+    
+    public static class Unkeyed {
+        public Map<Double, String> byDouble;
+    }
+    
+    @Test
+    public void nullInPrimitiveArray() throws Exception {
+        Numbers numbers = JsonObject.decode("{\"boxed\":[1,null],\"ints\":[1,2]}", Numbers.class);
+        assertArrayEquals(new Integer[] {1, null}, numbers.boxed);
+        assertArrayEquals(new int[] {1, 2}, numbers.ints);
+        try {
+            JsonObject.decode("{\"ints\":[1,null]}", Numbers.class);
+            fail();
+        } catch(IOException e) {
+            assertEquals("Expected int, got null at 11", e.getMessage());
+        }
+    }
+    
+    @Test
+    public void convertKeys() throws Exception {
+        String json = "{\"byInt\":{\"1\":\"one\",\"-2\":\"minus two\"},\"byLong\":{\"9223372036854775807\":1},"
+                + "\"byColor\":{\"GREEN\":2},\"byAny\":{\"3\":3}}";
+        Keyed keyed = JsonObject.decode(json, Keyed.class);
+        assertEquals("one", keyed.byInt.get(1));
+        assertEquals("minus two", keyed.byInt.get(-2));
+        assertEquals(Long.valueOf(1), keyed.byLong.get(Long.MAX_VALUE));
+        assertEquals(Integer.valueOf(2), keyed.byColor.get(Color.GREEN));
+        assertEquals(3L, keyed.byAny.get("3"));
+        assertEquals(json, JsonObject.encode(keyed, Keyed.class));
+        
+        try {
+            JsonObject.decode("{\"byInt\":{\"2147483648\":\"\"}}", Keyed.class);
+            fail();
+        } catch(IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Expected int key, got \"2147483648\""));
+        }
+        try {
+            JsonObject.decode("{\"byColor\":{\"red\":1}}", Keyed.class);
+            fail();
+        } catch(IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("No constant red"));
+        }
+        try {
+            JsonObject.decode("{\"byDouble\":{}}", Unkeyed.class);
+            fail();
+        } catch(IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+public class CachedArrayTest {
+    @Test
+    public void removeEndsClearsEncoding() throws Exception {
+        CachedJsonObject root = (CachedJsonObject)JsonObject.cached(JsonObject.decode("{\"a\":[1,[2,3],4]}"));
+        CachedJsonArray a = (CachedJsonArray)root.get("a");
+        CachedJsonArray inner = (CachedJsonArray)a.get(1);
+        assertEquals("{\"a\":[1,[2,3],4]}", root.toString());
+        assertEquals(4L, a.removeLast());
+        assertEquals("{\"a\":[1,[2,3]]}", root.toString());
+        assertEquals(1L, a.removeFirst());
+        assertEquals("{\"a\":[[2,3]]}", root.toString());
+        assertEquals(inner, a.removeFirst());
+        inner.add(5L);
+        assertEquals("{\"a\":[]}", root.toString());
+        try {
+            a.removeLast();
+            fail();
+        } catch(NoSuchElementException expected) {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CborTest {
+    private static Object roundTrip(Object value) throws IOException {
+        byte[] cbor = JsonObject.encodeCbor(value);
+        return JsonObject.decodeCbor(cbor, 0, cbor.length);
+    }
+    
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for(int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte)Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+    
+    private static Object decode(String hex) throws IOException {
+        byte[] cbor = hex(hex);
+        return JsonObject.decodeCbor(cbor, 0, cbor.length);
+    }
+    
+    @Test
+    public void integers() throws Exception {
+        long[] values = {0, 1, 23, 24, 255, 256, 65535, 65536, 0xFFFFFFFFL, 0x100000000L, Long.MAX_VALUE,
+            -1, -24, -25, -256, -257, -65537, Long.MIN_VALUE};
+        for(long value : values) {
+            assertEquals(value, roundTrip(value));
+        }
+        assertEquals(7L, roundTrip(7));
+        assertEquals(5L, roundTrip(BigInteger.valueOf(5)));
+        BigInteger[] bignums = {BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE), BigInteger.ONE.shiftLeft(64),
+            BigInteger.ONE.shiftLeft(64).negate(), BigInteger.ONE.shiftLeft(64).negate().subtract(BigInteger.ONE),
+            BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE),
+            new BigInteger("-123456789012345678901234567890")};
+        for(BigInteger value : bignums) {
+            assertEquals(value, roundTrip(value));
+        }
+    }
+    
+    @Test
+    public void floats() throws Exception {
+        double[] values = {0.0, -0.0, 1.5, 0.1, -4.0, 65504.0, 1.0e300, Double.MIN_VALUE, Double.MAX_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for(double value : values) {
+            Object decoded = roundTrip(value);
+            assertTrue(decoded instanceof Double);
+            // Compares bits, so that NaN and -0.0 are checked too.
+            assertEquals(Double.valueOf(value), decoded);
+        }
+        assertEquals(1.5, roundTrip(1.5f));
+        // Floats which a float holds exactly take five bytes.
+        assertEquals(5, JsonObject.encodeCbor(1.5).length);
+        assertEquals(9, JsonObject.encodeCbor(0.1).length);
+        for(String value : new String[] {"273.15", "1E+400", "-0.000001", "5"}) {
+            assertEquals(new BigDecimal(value), roundTrip(new BigDecimal(value)));
+        }
+    }
+    
+    @Test
+    public void containers() throws Exception {
+        Map<String, Object> nested = new LinkedHashMap<String, Object>();
+        nested.put("", "");
+        nested.put("text", "ü水𐅑 \"\\\n");
+        nested.put("longs", Arrays.asList(1L, -2L, Long.MAX_VALUE));
+        nested.put("doubles", Arrays.asList(1.5, Double.NaN));
+        nested.put("mixed", Arrays.asList(1L, 2.5, null, true, false, "x", new BigInteger("18446744073709551616")));
+        nested.put("empty", Arrays.asList(Collections.emptyMap(), Collections.emptyList()));
+        nested.put("deep", Collections.singletonMap("a", Collections.singletonList(Collections.singletonMap("b",
+                Collections.singletonList(Collections.emptyList())))));
+        Object decoded = roundTrip(nested);
+        assertTrue(decoded instanceof JsonObject);
+        assertEquals(nested, decoded);
+        assertEquals(Arrays.asList("", "text", "longs", "doubles", "mixed", "empty", "deep"),
+                Arrays.asList(((Map<?, ?>)decoded).keySet().toArray()));
+        assertTrue(((Map<?, ?>)decoded).get("longs") instanceof JsonLongArray);
+        assertTrue(((Map<?, ?>)decoded).get("doubles") instanceof JsonDoubleArray);
+        
+        byte[] bytes = {0, 1, -1, 127, -128};
+        assertArrayEquals(bytes, (byte[])roundTrip(bytes));
+        assertEquals(null, roundTrip(null));
+        assertEquals(JsonObject.decode("[1,2]"), roundTrip(Arrays.asList(1L, 2L).iterator()));
+    }
+    
+    @Test
+    public void decodeAsJson() throws Exception {
+        String json = "{\"a\":[1,-2.5,1e400,12345678901234567890,\"s\",{\"b\":null}],\"c\":true,\"d\":[]}";
+        Object value = JsonObject.decode(json);
+        assertEquals(value, roundTrip(value));
+        assertEquals(value, roundTrip(JsonObject.cached(value)));
+        // Long enough to be flushed to the stream in several buffers.
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 5000; i++) {
+            text.append("é").append(i);
+        }
+        Object large = Arrays.asList(text.toString(), value, text.toString());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonObject.encodeCbor(out, large);
+        assertArrayEquals(JsonObject.encodeCbor(large), out.toByteArray());
+        assertEquals(large, roundTrip(large));
+    }
+    
+    @Test
+    public void specificationExamples() throws Exception {
+        // From appendix A of RFC 8949.
+        assertEquals(1000000000000L, decode("1b000000e8d4a51000"));
+        assertEquals(new BigInteger("18446744073709551615"), decode("1bffffffffffffffff"));
+        assertEquals(new BigInteger("18446744073709551616"), decode("c249010000000000000000"));
+        assertEquals(new BigInteger("-18446744073709551616"), decode("3bffffffffffffffff"));
+        assertEquals(new BigInteger("-18446744073709551617"), decode("c349010000000000000000"));
+        assertEquals(65504.0, decode("f97bff"));
+        assertEquals(5.960464477539063e-8, decode("f90001"));
+        assertEquals(-4.1, decode("fbc010666666666666"));
+        assertEquals(Double.NaN, decode("f97e00"));
+        assertEquals(Double.NEGATIVE_INFINITY, decode("f9fc00"));
+        assertEquals(Double.POSITIVE_INFINITY, decode("fa7f800000"));
+        assertEquals(null, decode("f7"));
+        assertEquals("𐅑", decode("64f0908591"));
+        assertEquals(1363896240L, decode("c11a514b67b0"));
+        assertEquals(new BigDecimal("273.15"), decode("c48221196ab3"));
+        assertEquals(new BigDecimal("1.5"), decode("c5822003"));
+        assertEquals(new BigDecimal("2E+1"), decode("c4820102"));
+        assertEquals(JsonObject.decode("[1,[2,3],[4,5]]"), decode("9f018202039f0405ffff"));
+        assertEquals(JsonObject.decode("{\"a\":1,\"b\":[2,3]}"), decode("bf61610161629f0203ffff"));
+        assertEquals(JsonObject.decode("[\"a\",{\"b\":\"c\"}]"), decode("826161bf61626163ff"));
+        assertEquals("streaming", decode("7f657374726561646d696e67ff"));
+        assertArrayEquals(hex("0102030405"), (byte[])decode("5f42010243030405ff"));
+    }
+    
+    @Test
+    public void malformed() throws Exception {
+        byte[] cbor = JsonObject.encodeCbor(JsonObject.decode("{\"a\":[1,2.5,\"xyz\",70000,null]}"));
+        // Every prefix ends inside a value.
+        for(int length = 1; length < cbor.length; length++) {
+            try {
+                JsonObject.decodeCbor(cbor, 0, length);
+                fail("Length " + length);
+            } catch(IOException expected) {
+            }
+        }
+        // A reserved head, lengths beyond the input, a chunk of another type
+        // in a text string, a lone break, and tags holding the wrong values.
+        String[] inputs = {"1c", "5b7fffffffffffffff", "9b0000000100000000", "7f01ff", "ff", "c201", "c48201f6"};
+        for(String hex : inputs) {
+            try {
+                decode(hex);
+                fail(hex);
+            } catch(IOException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+public class CompactObjectTest {
+    private static final BiFunction<Object, Object, Object> SUM = new BiFunction<Object, Object, Object>() {
+        public Object apply(Object a, Object b) {
+            return (Long)a + (Long)b;
+        }
+    };
+    
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> decode(String json) throws Exception {
+        Object decoded = JsonObject.decode(json);
+        assertTrue(decoded instanceof CompactJsonObject);
+        return (Map<Object, Object>)decoded;
+    }
+    
+    @Test
+    public void replaceWhileIterating() throws Exception {
+        Map<Object, Object> m = decode("{\"a\":1,\"b\":2,\"c\":3}");
+        int visited = 0;
+        for(Object k : m.keySet()) {
+            m.replace(k, 10L);
+            visited++;
+        }
+        assertEquals(3, visited);
+        assertEquals(Arrays.asList(10L, 10L, 10L), Arrays.asList(m.values().toArray()));
+        
+        for(Object k : m.keySet()) {
+            assertTrue(m.replace(k, 10L, 1L));
+            m.computeIfPresent(k, new BiFunction<Object, Object, Object>() {
+                public Object apply(Object key, Object value) {
+                    return (Long)value + 1;
+                }
+            });
+            m.merge(k, 1L, SUM);
+            m.compute(k, new BiFunction<Object, Object, Object>() {
+                public Object apply(Object key, Object value) {
+                    return (Long)value * 10;
+                }
+            });
+        }
+        assertEquals("{\"a\":30,\"b\":30,\"c\":30}", m.toString());
+    }
+    
+    @Test
+    public void entryAfterMerge() throws Exception {
+        Map<Object, Object> m = decode("{\"a\":1,\"b\":2,\"c\":3}");
+        Map.Entry<Object, Object> a = m.entrySet().iterator().next();
+        m.merge("a", 5L, SUM);
+        m.merge("d", 4L, SUM);
+        assertEquals(6L, a.getValue());
+        m.remove("b");
+        assertEquals(6L, a.getValue());
+        a.setValue(7L);
+        assertEquals(7L, m.get("a"));
+        m.remove("a");
+        assertNull(a.getValue());
+    }
+    
+    @Test
+    public void remapping() throws Exception {
+        Map<Object, Object> m = decode("{\"a\":1,\"b\":null}");
+        Map<Object, Object> expected = new LinkedHashMap<Object, Object>(m);
+        Function<Object, Object> one = new Function<Object, Object>() {
+            public Object apply(Object key) {
+                return 1L;
+            }
+        };
+        BiFunction<Object, Object, Object> none = new BiFunction<Object, Object, Object>() {
+            public Object apply(Object key, Object value) {
+                return null;
+            }
+        };
+        for(Map<Object, Object> map : Arrays.asList(m, expected)) {
+            map.computeIfAbsent("b", one);
+            map.computeIfAbsent("c", one);
+            map.compute("d", none);
+            map.computeIfPresent("a", none);
+            map.merge("c", 2L, SUM);
+            assertFalse(map.remove("c", 4L));
+            map.remove("b", 1L);
+        }
+        assertEquals(expected, m);
+        assertEquals(Arrays.asList("c"), Arrays.asList(m.keySet().toArray()));
+        assertTrue(((CompactJsonObject)m).isDeferred());
+    }
+    
+    @Test
+    public void iterateAfterMaterializing() throws Exception {
+        Map<Object, Object> m = decode("{\"a\":1,\"b\":2,\"c\":3,\"d\":4}");
+        Iterator<Map.Entry<Object, Object>> iter = m.entrySet().iterator();
+        Map.Entry<Object, Object> a = iter.next();
+        iter.next();
+        iter.remove();
+        ((CompactJsonObject)m).clone();
+        assertFalse(((CompactJsonObject)m).isDeferred());
+        assertEquals(1L, a.getValue());
+        a.setValue(5L);
+        assertEquals(5L, m.get("a"));
+        assertTrue(iter.hasNext());
+        assertEquals("c", iter.next().getKey());
+        iter.remove();
+        assertEquals("d", iter.next().getKey());
+        assertFalse(iter.hasNext());
+        assertEquals("{\"a\":5,\"d\":4}", m.toString());
+    }
+    
+    @Test
+    public void failAfterChange() throws Exception {
+        Map<Object, Object> m = decode("{\"a\":1,\"b\":2}");
+        Iterator<Object> iter = m.keySet().iterator();
+        iter.next();
+        m.put("c", 3L);
+        ((CompactJsonObject)m).clone();
+        try {
+            iter.hasNext();
+            fail();
+        } catch(ConcurrentModificationException expected) {
+        }
+    }
+    
+    private static String keys(int count) {
+        StringBuilder json = new StringBuilder("{");
+        for(int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",").append("\"k").append(i).append("\":").append(i);
+        }
+        return json.append('}').toString();
+    }
+    
+    @Test(timeout = 10000)
+    public void removeManyInLinearTime() throws Exception {
+        Map<Object, Object> m = decode(keys(200000));
+        for(int i = 0; i < 200000; i += 2) {
+            assertEquals((long)i, m.remove("k" + i));
+        }
+        m.keySet().removeIf(new Predicate<Object>() {
+            public boolean test(Object key) {
+                return key.toString().endsWith("1");
+            }
+        });
+        assertEquals(80000, m.size());
+        Iterator<Object> iter = m.keySet().iterator();
+        while(iter.hasNext()) {
+            iter.next();
+            iter.remove();
+        }
+        assertTrue(m.isEmpty());
+        assertEquals("{}", m.toString());
+    }
+    
+    @Test
+    public void fillHoles() throws Exception {
+        Map<Object, Object> m = decode(keys(20));
+        Map<Object, Object> expected = new LinkedHashMap<Object, Object>(m);
+        for(Map<Object, Object> map : Arrays.asList(m, expected)) {
+            for(int i = 0; i < 20; i += 3) {
+                map.remove("k" + i);
+            }
+            for(int i = 20; i < 60; i++) {
+                map.put("k" + i, (long)i);
+                map.remove("k" + (i - 10));
+            }
+            map.put("k1", null);
+        }
+        assertEquals(expected, m);
+        assertEquals(JsonObject.encode(expected), m.toString());
+        assertEquals(expected.hashCode(), m.hashCode());
+        assertEquals(Arrays.asList(expected.keySet().toArray()), Arrays.asList(m.keySet().toArray()));
+        assertTrue(m.containsValue(null));
+        assertFalse(m.containsKey("k0"));
+        assertEquals(59L, m.get("k59"));
+        assertTrue(((CompactJsonObject)m).isDeferred());
+    }
+}
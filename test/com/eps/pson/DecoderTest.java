@@ -0,0 +1,54 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class DecoderTest {
+    private static final String SECRET = "s3cret-\u00e9-value";
+    
+    // Whether any char[] field of the object, or of its lexers, still holds the secret.
+    private static boolean holdsSecret(Object object, int depth) throws Exception {
+        for(Class<?> c = object.getClass(); c != Object.class; c = c.getSuperclass()) {
+            for(Field field : c.getDeclaredFields()) {
+                field.setAccessible(true);
+                Object value = field.get(object);
+                if(value instanceof char[] && new String((char[])value).contains(SECRET)) {
+                    return true;
+                } else if(value instanceof JsonLexer && depth > 0 && holdsSecret(value, depth - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    @Test
+    public void holdsNothingOfTheDocument() throws Exception {
+        String json = "{\"password\":\"s3cret-\\u00e9-value\",\"plain\":\"" + SECRET + "\"}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        JsonDecoder decoder = new JsonDecoder();
+        JsonObject decoded = (JsonObject)decoder.decode(json);
+        assertEquals(SECRET, decoded.get("password"));
+        assertFalse(holdsSecret(decoder, 1));
+        decoded = (JsonObject)decoder.decode(bytes, 0, bytes.length);
+        assertEquals(SECRET, decoded.get("password"));
+        assertFalse(holdsSecret(decoder, 1));
+    }
+    
+    @Test
+    public void reusedAfterLargeDocument() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for(int i = 0; i < 20000; i++) {
+            json.append("\"\\u00e9").append(i).append("\",");
+        }
+        json.append("1]");
+        JsonDecoder decoder = new JsonDecoder();
+        assertEquals(20001, ((JsonArray)decoder.decode(json.toString())).size());
+        assertEquals(JsonObject.decode("[\"a\",1]"), decoder.decode("[\"a\",1]"));
+    }
+}
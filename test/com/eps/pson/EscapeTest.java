@@ -0,0 +1,102 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class EscapeTest {
+    public static class Named {
+        public String name;
+    }
+    
+    private interface Decoding {
+        Object decode(String json) throws IOException;
+    }
+    
+    // Every path that skips strings as well as decoding them.
+    private static final Decoding[] SKIPPING = {
+        new Decoding() {
+            public Object decode(String json) throws IOException {
+                return JsonObject.decodeLazy(json);
+            }
+        },
+        new Decoding() {
+            public Object decode(String json) throws IOException {
+                byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+                return JsonObject.decodeLazy(bytes, 0, bytes.length);
+            }
+        },
+        new Decoding() {
+            public Object decode(String json) throws IOException {
+                return JsonProjection.compile("$.name").extract("{\"skipped\":" + json + ",\"name\":\"x\"}");
+            }
+        },
+        new Decoding() {
+            public Object decode(String json) throws IOException {
+                byte[] bytes = ("{\"skipped\":" + json + ",\"name\":\"x\"}").getBytes(StandardCharsets.UTF_8);
+                return JsonProjection.compile("$.name").extract(bytes, 0, bytes.length);
+            }
+        },
+        new Decoding() {
+            public Object decode(String json) throws IOException {
+                return JsonObject.decode("{\"skipped\":" + json + ",\"name\":\"x\"}", Named.class);
+            }
+        },
+    };
+    
+    @Test
+    public void invalidEscapeFailsEveryPath() throws Exception {
+        String[] malformed = {"[\"\\uZZZZ\",1]", "[\"\\u12\"]", "[\"a\\u\"]", "[\"\\u123g\"]"};
+        for(String json : malformed) {
+            try {
+                JsonObject.decode(json);
+                fail(json);
+            } catch(IOException e) {
+                // Expected.
+            }
+            for(int i = 0; i < SKIPPING.length; i++) {
+                try {
+                    SKIPPING[i].decode(json);
+                    fail(json + " through path " + i);
+                } catch(IOException e) {
+                    // Expected.
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void validEscapeIsSkipped() throws Exception {
+        String json = "[\"\\u00e9\\uD83D\\uDE00\\\\u\",1]";
+        for(Decoding decoding : SKIPPING) {
+            decoding.decode(json);
+        }
+        assertEquals(JsonObject.decode(json), JsonObject.decodeLazy(json));
+    }
+    
+    @Test
+    public void escapeAcrossBuffers() throws Exception {
+        // A reader handing out one char at a time splits every escape.
+        Reader slow = new StringReader("[\"\\u00e9\",\"\\uZZZZ\"]") {
+            public int read(char[] buf, int off, int len) throws IOException {
+                return super.read(buf, off, Math.min(len, 1));
+            }
+        };
+        JsonReader reader = new JsonReader(slow);
+        assertEquals(TokenType.SQUARE_OPEN, reader.nextToken());
+        assertEquals("\u00e9", reader.nextString());
+        assertEquals(TokenType.COMMA, reader.nextToken());
+        try {
+            reader.skipValue();
+            fail();
+        } catch(IOException e) {
+            // Expected.
+        }
+    }
+}
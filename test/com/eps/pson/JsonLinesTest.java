@@ -0,0 +1,133 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class JsonLinesTest {
+    private static JsonLinesReader reader(String text) {
+        return new JsonLinesReader(new StringReader(text));
+    }
+    
+    // Reads records until one fails, and returns its error.
+    private static IOException failure(String text) throws IOException {
+        JsonLinesReader reader = reader(text);
+        try {
+            while(reader.hasNext()) {
+                reader.next();
+            }
+        } catch(IOException e) {
+            return e;
+        }
+        throw new AssertionError("No error in " + text);
+    }
+    
+    @Test
+    public void recordsEndTheirLines() throws Exception {
+        JsonLinesReader reader = reader("1\n\n  \r\n{\"a\":2}\r\n \"x\" \n");
+        assertEquals(1L, reader.next());
+        assertEquals(JsonObject.decode("{\"a\":2}"), reader.next());
+        assertEquals("x", reader.next());
+        assertFalse(reader.hasNext());
+        reader = reader("[1,2]");
+        assertEquals(JsonObject.decode("[1,2]"), reader.next());
+        assertFalse(reader.hasNext());
+    }
+    
+    @Test
+    public void malformedLines() throws Exception {
+        assertTrue(failure("{\"a\":1} {\"b\":2}\n").getMessage().endsWith("on line 1"));
+        assertTrue(failure("1\n[1,\n2]\n").getMessage().endsWith("on line 2"));
+        assertTrue(failure("1\n\n2 3\n").getMessage().endsWith("on line 3"));
+        assertTrue(failure("1\n2\ntrue false").getMessage().endsWith("on line 3"));
+    }
+    
+    @Test
+    public void parallelMatchesSequential() throws Exception {
+        Path file = Files.createTempFile("lines", ".jsonl");
+        try {
+            StringBuilder text = new StringBuilder();
+            for(int i = 0; i < 60000; i++) {
+                text.append("{\"id\":").append(i).append(",\"name\":\"record ").append(i).append("\"}\n");
+                if(i % 1000 == 0) {
+                    text.append('\n');
+                }
+            }
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+            List<Object> sequential;
+            try(Stream<Object> records = JsonLinesReader.lines(file)) {
+                sequential = records.collect(Collectors.toList());
+            }
+            try(Stream<Object> records = JsonLinesReader.lines(file)) {
+                assertEquals(sequential, records.parallel().collect(Collectors.toList()));
+            }
+            assertEquals(60000, sequential.size());
+            
+            // A record spanning lines in the second half fails either way,
+            // and reports its line in the whole file.
+            text.append("[1,\n2]\n");
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+            for(boolean parallel : Arrays.asList(false, true)) {
+                try(Stream<Object> records = JsonLinesReader.lines(file)) {
+                    (parallel ? records.parallel() : records).count();
+                    fail();
+                } catch(UncheckedIOException e) {
+                    assertTrue(e.getCause().getMessage(), e.getCause().getMessage().endsWith("on line 60061"));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    @Test(timeout = 10000)
+    public void countLinesBeforeOnce() throws Exception {
+        Path file = Files.createTempFile("lines", ".jsonl");
+        try {
+            StringBuilder text = new StringBuilder();
+            for(int i = 0; i < 300000; i++) {
+                text.append("{\"id\":").append(i).append("}\n");
+            }
+            Files.write(file, text.append("[1,@]\n").toString().getBytes(StandardCharsets.UTF_8));
+            try(Stream<Object> records = JsonLinesReader.lines(file)) {
+                // The second half of the file, whose lines are counted from
+                // the start of the file.
+                Spliterator<Object> half = records.spliterator();
+                assertTrue(half.trySplit() != null);
+                Consumer<Object> none = new Consumer<Object>() {
+                    public void accept(Object record) {
+                    }
+                };
+                // A failing record fails again each time it is read, and
+                // the lines before the range are not counted again.
+                int failures = 0;
+                while(failures < 10000) {
+                    try {
+                        half.tryAdvance(none);
+                    } catch(UncheckedIOException e) {
+                        assertTrue(e.getCause().getMessage(), e.getCause().getMessage().endsWith("on line 300001"));
+                        failures++;
+                    }
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
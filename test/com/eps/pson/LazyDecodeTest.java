@@ -0,0 +1,38 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class LazyDecodeTest {
+    // Builds an array holding one object with the given number of keys.
+    private static String objectOf(int keys) {
+        StringBuilder json = new StringBuilder("[{");
+        for(int i = 0; i < keys; i++) {
+            if(i > 0) {
+                json.append(',');
+            }
+            json.append("\"k").append(i).append("\":").append(i);
+        }
+        return json.append("}]").toString();
+    }
+    
+    @Test
+    public void keysAtEveryTapeSize() throws Exception {
+        for(int keys = 0; keys <= 300; keys++) {
+            String json = objectOf(keys);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            Object expected = JsonObject.decode(json);
+            assertEquals(json, expected, JsonObject.decodeLazy(json));
+            assertEquals(json, expected, JsonObject.decodeLazy(bytes, 0, bytes.length));
+        }
+    }
+    
+    @Test
+    public void keyAtGrowthPoint() throws Exception {
+        JsonArray array = (JsonArray)JsonObject.decodeLazy(objectOf(40));
+        assertEquals(Long.valueOf(39), ((JsonObject)array.get(0)).get("k39"));
+    }
+}
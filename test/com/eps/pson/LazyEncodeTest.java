@@ -0,0 +1,81 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+public class LazyEncodeTest {
+    // Entries "k0" to "k<count - 1>", the odd ones holding a lazy object.
+    private static Iterator<Map.Entry<String, Object>> entries(final int count) {
+        return new Iterator<Map.Entry<String, Object>>() {
+            private int next;
+            
+            public boolean hasNext() {
+                return next < count;
+            }
+            
+            public Map.Entry<String, Object> next() {
+                if(next >= count) {
+                    throw new NoSuchElementException();
+                }
+                Object value = next % 2 == 0 ? (Object)Long.valueOf(next) : JsonObject.lazyObject(entries(1));
+                return new AbstractMap.SimpleEntry<String, Object>("k" + next++, value);
+            }
+        };
+    }
+    
+    // Output stream which counts the times it is flushed.
+    private static final class Bytes extends ByteArrayOutputStream {
+        int flushes;
+        
+        public void flush() {
+            flushes++;
+        }
+    }
+    
+    @Test
+    public void encodeEntriesAsPulled() throws Exception {
+        assertEquals("{\"k0\":0,\"k1\":{\"k0\":0},\"k2\":2}", JsonObject.encode(JsonObject.lazyObject(entries(3))));
+        assertEquals("{}", JsonObject.encode(JsonObject.lazyObject(entries(0))));
+        
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("a", 1L);
+        map.put("b", "two");
+        assertEquals(JsonObject.encodePretty(map), JsonObject.encodePretty(JsonObject.lazyObject(map.entrySet().iterator())));
+        assertEquals(JsonObject.encode(map), JsonObject.encode(JsonObject.lazyObject(map.entrySet().stream())));
+        
+        Bytes out = new Bytes();
+        JsonObject.encode(out, JsonObject.lazyObject(entries(100000)));
+        assertTrue(out.flushes > 100);
+        Map<?, ?> decoded = (Map<?, ?>)JsonObject.decode(out.toString("UTF-8"));
+        assertEquals(100000, decoded.size());
+        assertEquals(99998L, decoded.get("k99998"));
+    }
+    
+    @Test
+    public void encodeCborAsIndefiniteMap() throws Exception {
+        byte[] cbor = JsonObject.encodeCbor(JsonObject.lazyObject(entries(3)));
+        assertEquals(0xBF, cbor[0] & 0xFF);
+        assertEquals(JsonObject.decode("{\"k0\":0,\"k1\":{\"k0\":0},\"k2\":2}"), JsonObject.decodeCbor(cbor, 0, cbor.length));
+    }
+    
+    @Test
+    public void encodeOnce() throws Exception {
+        JsonSerializable object = JsonObject.lazyObject(entries(1));
+        JsonObject.encode(object);
+        try {
+            JsonObject.encode(object);
+            fail();
+        } catch(IllegalStateException expected) {
+        }
+    }
+}
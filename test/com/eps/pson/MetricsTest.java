@@ -0,0 +1,104 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+// Runs with -Dcom.eps.pson.metrics=true, in a JVM of its own.
+public class MetricsTest {
+    // An object and an array at each of two depths, five strings (keys
+    // included), two numbers and two literals.
+    private static final String JSON = "{\"a\":[1,2.5,\"é\",{\"b\":[true,null]}],\"c\":\"d\"}";
+    private static final String COUNTS = " 13 4 5 2";
+    
+    // Records each report as its kind, size and counts.
+    private static final class Recorder implements JsonMetrics.Listener {
+        final List<String> reports = new ArrayList<String>();
+        
+        public void decoded(long input, long tokens, int depth, long strings, long numbers, long nanos) {
+            assertTrue(nanos >= 0);
+            reports.add("decoded " + input + " " + tokens + " " + depth + " " + strings + " " + numbers);
+        }
+        
+        public void encoded(long output, long tokens, int depth, long strings, long numbers, long nanos) {
+            assertTrue(nanos >= 0);
+            reports.add("encoded " + output + " " + tokens + " " + depth + " " + strings + " " + numbers);
+        }
+    }
+    
+    @After
+    public void removeListener() {
+        JsonMetrics.setListener(null);
+    }
+    
+    @Test
+    public void enabledByProperty() {
+        assertTrue(JsonMetrics.isEnabled());
+    }
+    
+    @Test
+    public void countDecoded() throws Exception {
+        Recorder recorder = new Recorder();
+        JsonMetrics.setListener(recorder);
+        assertTrue(JsonMetrics.getListener() == recorder);
+        byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+        JsonObject.decode(JSON);
+        JsonObject.decode(bytes, 0, bytes.length);
+        JsonObject.decode(ByteBuffer.wrap(bytes));
+        // Characters for strings, bytes for UTF-8.
+        assertEquals(JSON.length() + 1, bytes.length);
+        String chars = "decoded " + JSON.length() + COUNTS;
+        String utf8 = "decoded " + bytes.length + COUNTS;
+        List<String> expected = new ArrayList<String>();
+        expected.add(chars);
+        expected.add(utf8);
+        expected.add(utf8);
+        assertEquals(expected, recorder.reports);
+    }
+    
+    @Test
+    public void countEncoded() throws Exception {
+        Recorder recorder = new Recorder();
+        Object value = JsonObject.decode(JSON);
+        JsonMetrics.setListener(recorder);
+        String text = JsonObject.encode(value);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonObject.encode(out, value);
+        String pretty = JsonObject.encodePretty(value);
+        List<String> expected = new ArrayList<String>();
+        expected.add("encoded " + text.length() + COUNTS);
+        expected.add("encoded " + out.size() + COUNTS);
+        expected.add("encoded " + pretty.length() + COUNTS);
+        assertEquals(expected, recorder.reports);
+    }
+    
+    @Test
+    public void countEachDocument() throws Exception {
+        Recorder recorder = new Recorder();
+        JsonMetrics.setListener(recorder);
+        JsonObject.decode("[[[1]]]");
+        JsonObject.decode("\"x\"");
+        JsonObject.decode("{}");
+        try {
+            JsonObject.decode("[1,");
+            fail();
+        } catch(IOException expected) {
+        }
+        List<String> expected = new ArrayList<String>();
+        expected.add("decoded 7 4 3 0 1");
+        expected.add("decoded 3 1 0 1 0");
+        expected.add("decoded 2 1 1 0 0");
+        // Documents which fail are not reported.
+        assertEquals(expected, recorder.reports);
+    }
+}
@@ -0,0 +1,49 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+public class NumberTest {
+    public static class Bounds {
+        public long min;
+        public long max;
+    }
+    
+    @Test
+    public void longBounds() throws Exception {
+        assertEquals(Long.valueOf(Long.MIN_VALUE), JsonObject.decode("-9223372036854775808"));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), JsonObject.decode("9223372036854775807"));
+        assertEquals(new BigInteger("-9223372036854775809"), JsonObject.decode("-9223372036854775809"));
+        assertEquals(new BigInteger("9223372036854775808"), JsonObject.decode("9223372036854775808"));
+        assertEquals(new BigInteger("-92233720368547758080"), JsonObject.decode("-92233720368547758080"));
+        assertEquals(Double.valueOf(-9223372036854775808.0), JsonObject.decode("-9223372036854775808.0"));
+    }
+    
+    @Test
+    public void minValueInLongArray() throws Exception {
+        Object array = JsonObject.decode("[-9223372036854775808,1]");
+        assertTrue(array instanceof JsonLongArray);
+        assertEquals(Long.MIN_VALUE, ((JsonLongArray)array).getLong(0));
+    }
+    
+    @Test
+    public void minValueThroughReader() throws Exception {
+        JsonReader reader = new JsonReader(new StringReader("-9223372036854775808"));
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+    }
+    
+    @Test
+    public void minValueBound() throws Exception {
+        Bounds bounds = new Bounds();
+        bounds.min = Long.MIN_VALUE;
+        bounds.max = Long.MAX_VALUE;
+        Bounds copy = JsonObject.decode(JsonObject.encode(bounds, Bounds.class), Bounds.class);
+        assertEquals(Long.MIN_VALUE, copy.min);
+        assertEquals(Long.MAX_VALUE, copy.max);
+    }
+}
@@ -0,0 +1,133 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class ParallelDecodeTest {
+    // A pool of its own, so that the input is split whatever the number of
+    // processors the tests run on.
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+    
+    private static <T> T inPool(Callable<T> task) throws Exception {
+        try {
+            return POOL.submit(task).get();
+        } catch(ExecutionException e) {
+            // The pool wraps checked exceptions thrown by callables.
+            Throwable cause = e.getCause();
+            while(cause instanceof RuntimeException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            throw (Exception)cause;
+        }
+    }
+    
+    // An array of records over the splitting threshold, whose strings hold
+    // commas, brackets, escaped quotes and backslashes to mislead the cuts.
+    private static String records(int count) {
+        StringBuilder json = new StringBuilder(" [\n");
+        for(int i = 0; i < count; i++) {
+            if(i > 0) {
+                json.append(",\n");
+            }
+            json.append("{\"id\":").append(i)
+                    .append(",\"name\":\"a, [b] {c} \\\"d,\\\" e\\\\\",\"tags\":[")
+                    .append(i % 7).append(",\"]\",{\"x\":[[],{}]}],\"score\":").append(i * 0.5).append('}');
+        }
+        return json.append("\n] ").toString();
+    }
+    
+    @Test
+    public void decodeAsSequentially() throws Exception {
+        final String json = records(20000);
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        assertTrue(bytes.length > ParallelParser.THRESHOLD);
+        Object expected = JsonObject.decode(json);
+        assertEquals(expected, inPool(new Callable<Object>() {
+            public Object call() throws Exception {
+                return JsonObject.decodeParallel(json);
+            }
+        }));
+        assertEquals(expected, inPool(new Callable<Object>() {
+            public Object call() throws Exception {
+                return JsonObject.decodeParallel(bytes, 0, bytes.length);
+            }
+        }));
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 3);
+        direct.put(new byte[] {'x', 'y', 'z'}).put(bytes).flip().position(3);
+        assertEquals(expected, inPool(new Callable<Object>() {
+            public Object call() throws Exception {
+                return JsonObject.decodeParallel(direct);
+            }
+        }));
+        assertEquals(3, direct.position());
+        // Also on the common pool, whatever its size.
+        assertEquals(expected, JsonObject.decodeParallel(json));
+    }
+    
+    @Test
+    public void decodeOtherDocumentsInPlace() throws Exception {
+        StringBuilder object = new StringBuilder("{\"records\":").append(records(20000)).append('}');
+        final String json = object.toString();
+        assertEquals(JsonObject.decode(json), inPool(new Callable<Object>() {
+            public Object call() throws Exception {
+                return JsonObject.decodeParallel(json);
+            }
+        }));
+        assertEquals(JsonObject.decode("[1,2]"), JsonObject.decodeParallel("[1,2]"));
+    }
+    
+    @Test
+    public void reportFirstError() throws Exception {
+        String valid = records(20000);
+        int at = valid.length() * 3 / 4;
+        at = valid.indexOf("\"score\":", at) + 8;
+        final String json = valid.substring(0, at) + "@" + valid.substring(at + 1);
+        String message = null;
+        try {
+            JsonObject.decode(json);
+            fail();
+        } catch(IOException e) {
+            message = e.getMessage();
+        }
+        assertTrue(message, message.endsWith(" at " + at));
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 3);
+        direct.put(new byte[] {'x', 'y', 'z'}).put(bytes).flip().position(3);
+        for(Callable<Object> task : new Callable[] {new Callable<Object>() {
+            public Object call() throws Exception {
+                return JsonObject.decodeParallel(json);
+            }
+        }, new Callable<Object>() {
+            public Object call() throws Exception {
+                return JsonObject.decodeParallel(bytes, 0, bytes.length);
+            }
+        }, new Callable<Object>() {
+            public Object call() throws Exception {
+                return JsonObject.decodeParallel(direct);
+            }
+        }}) {
+            try {
+                inPool(task);
+                fail();
+            } catch(IOException e) {
+                assertEquals(message, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class ParallelEncodeTest {
+    // A pool of its own, so that values are sliced whatever the number of
+    // processors the tests run on.
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+    
+    private static <T> T inPool(Callable<T> task) throws Exception {
+        try {
+            return POOL.submit(task).get();
+        } catch(ExecutionException e) {
+            // The pool wraps checked exceptions thrown by callables.
+            Throwable cause = e.getCause();
+            while(cause instanceof RuntimeException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            throw (Exception)cause;
+        }
+    }
+    
+    // A tree with arrays and objects of more than one slice, nested in one
+    // another, along with small and empty ones.
+    private static Object tree() {
+        List<Object> records = new ArrayList<Object>();
+        for(int i = 0; i < 3 * ParallelEncoder.SLICE + 17; i++) {
+            Map<String, Object> record = new LinkedHashMap<String, Object>();
+            record.put("id", i);
+            record.put("name", "récord \"" + i + "\"\n");
+            record.put("score", new BigDecimal(i).movePointLeft(2));
+            record.put("tags", i % 5 == 0 ? Collections.emptyList() : Collections.singletonList(i % 5));
+            record.put("extra", i % 7 == 0 ? Collections.emptyMap() : null);
+            records.add(record);
+        }
+        Map<String, Object> index = new LinkedHashMap<String, Object>();
+        for(int i = 0; i < 2 * ParallelEncoder.SLICE + 5; i++) {
+            index.put("k" + i, i % 3 == 0 ? records.subList(i, i + 2) : "v" + i);
+        }
+        JsonObject root = new JsonObject();
+        root.put("records", records);
+        root.put("index", index);
+        root.put("empty", new JsonArray());
+        return root;
+    }
+    
+    private static byte[] parallel(final Object value, final boolean pretty) throws Exception {
+        return inPool(new Callable<byte[]>() {
+            public byte[] call() throws Exception {
+                return new Utf8JsonWriter().setPrettyPrinting(pretty).writeValueParallel(value).toByteArray();
+            }
+        });
+    }
+    
+    @Test
+    public void encodeAsSequentially() throws Exception {
+        final Object value = tree();
+        final byte[] expected = JsonObject.encode(value).getBytes(StandardCharsets.UTF_8);
+        byte[] actual = inPool(new Callable<byte[]>() {
+            public byte[] call() throws Exception {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                JsonObject.encodeParallel(out, value);
+                return out.toByteArray();
+            }
+        });
+        assertArrayEquals(expected, actual);
+        assertArrayEquals(expected, parallel(value, false));
+        // Also on the common pool, whatever its size.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonObject.encodeParallel(out, value);
+        assertArrayEquals(expected, out.toByteArray());
+    }
+    
+    @Test
+    public void indentAsSequentially() throws Exception {
+        Object value = tree();
+        byte[] expected = new Utf8JsonWriter().setPrettyPrinting(true).writeValue(value).toByteArray();
+        assertArrayEquals(expected, parallel(value, true));
+    }
+    
+    @Test
+    public void encodeDecoded() throws Exception {
+        Object value = JsonObject.decode(JsonObject.encode(tree()));
+        byte[] expected = JsonObject.encode(value).getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, parallel(value, false));
+        assertEquals(value, JsonObject.decode(new String(parallel(value, true), StandardCharsets.UTF_8)));
+    }
+    
+    @Test
+    public void reportWriteErrors() throws Exception {
+        final Object value = tree();
+        try {
+            inPool(new Callable<Object>() {
+                public Object call() throws Exception {
+                    JsonObject.encodeParallel(new OutputStream() {
+                        private int written;
+                        
+                        public void write(int b) throws IOException {
+                            write(new byte[] {(byte)b}, 0, 1);
+                        }
+                        
+                        public void write(byte[] b, int off, int len) throws IOException {
+                            written += len;
+                            if(written > 100000) {
+                                throw new IOException("Full");
+                            }
+                        }
+                    }, value);
+                    return null;
+                }
+            });
+            fail();
+        } catch(IOException e) {
+            assertEquals("Full", e.getMessage());
+        }
+    }
+}
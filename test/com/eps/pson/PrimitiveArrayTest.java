@@ -0,0 +1,90 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.junit.Test;
+
+public class PrimitiveArrayTest {
+    @Test
+    public void readWithoutBoxingForGood() throws Exception {
+        JsonLongArray longs = (JsonLongArray)JsonObject.decode("[1,2,3,-4]");
+        List<Object> boxed = Arrays.<Object>asList(1L, 2L, 3L, -4L);
+        long sum = 0;
+        for(Object value : longs) {
+            sum += (Long)value;
+        }
+        assertEquals(2, sum);
+        assertEquals(2L, longs.stream().mapToLong(new ToLongFunction<Object>() {
+            public long applyAsLong(Object value) {
+                return (Long)value;
+            }
+        }).sum());
+        assertEquals(boxed, longs);
+        assertEquals(longs, boxed);
+        assertEquals(boxed.hashCode(), longs.hashCode());
+        assertEquals(boxed.toString(), longs.toString());
+        assertTrue(longs.contains(3L));
+        assertFalse(longs.contains(3));
+        assertEquals(3, longs.lastIndexOf(-4L));
+        assertArrayEquals(boxed.toArray(), longs.toArray());
+        assertArrayEquals(boxed.toArray(new Long[0]), longs.toArray(new Long[0]));
+        assertTrue(longs.isDeferred());
+        
+        JsonDoubleArray doubles = (JsonDoubleArray)JsonObject.decode("[1.5,-0.0,2e3]");
+        List<Object> boxedDoubles = Arrays.<Object>asList(1.5, -0.0, 2000.0);
+        assertEquals(boxedDoubles, doubles);
+        assertEquals(boxedDoubles.hashCode(), doubles.hashCode());
+        assertFalse(doubles.contains(0.0));
+        assertEquals(1, doubles.indexOf(-0.0));
+        ListIterator<Object> iter = doubles.listIterator(3);
+        assertEquals(2000.0, iter.previous());
+        assertTrue(doubles.isDeferred());
+    }
+    
+    @Test
+    public void changedWhileIterating() throws Exception {
+        JsonLongArray longs = (JsonLongArray)JsonObject.decode("[1,2,3]");
+        for(ListIterator<Object> iter = longs.listIterator(); iter.hasNext();) {
+            long value = (Long)iter.next();
+            if(value == 2) {
+                iter.remove();
+            } else {
+                iter.set(value * 10);
+            }
+        }
+        assertFalse(longs.isDeferred());
+        assertEquals(Arrays.<Object>asList(10L, 30L), longs);
+        
+        // Boxing the array while iterating carries on over the list.
+        final JsonLongArray values = (JsonLongArray)JsonObject.decode("[1,2,3]");
+        Iterator<Object> iter = values.iterator();
+        assertEquals(1L, iter.next());
+        values.set(2, 7L);
+        assertEquals(2L, iter.next());
+        assertEquals(7L, iter.next());
+        assertFalse(iter.hasNext());
+        
+        final JsonLongArray grown = (JsonLongArray)JsonObject.decode("[1,2,3]");
+        try {
+            grown.forEach(new Consumer<Object>() {
+                public void accept(Object value) {
+                    grown.add(value);
+                }
+            });
+            throw new AssertionError();
+        } catch(ConcurrentModificationException e) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ProjectionTest {
+    // Skipped subtrees hold strings with brackets and escaped quotes, and
+    // keys named as the paths' steps at other depths.
+    private static final String DOCUMENT = "{"
+            + "\"skip\":{\"user\":{\"id\":-1},\"s\":\"}]\\\"{[\",\"items\":[{\"price\":-1}]},"
+            + "\"user\":{\"name\":\"Ann\",\"id\":7,\"tags\":[\"a\",{\"deep\":[1,[2]]},\"c\"],"
+            + "\"n\\u0061me\":\"Escaped\"},"
+            + "\"items\":[{\"price\":1.5,\"qty\":2},{\"qty\":1},{\"price\":3,\"extra\":[\"price\"]}],"
+            + "\"odd key\":{\"x\":null},"
+            + "\"last\":[[1,2],[3,4],[5]]"
+            + "}";
+    
+    private static final String[] PATHS = {
+        "$.user.id",
+        "$['user'].name",
+        "$.user.tags[1].deep[1][0]",
+        "$.items[*].price",
+        "$.items[2]",
+        "$['odd key'].x",
+        "$.last[*][1]",
+        "$.user.*",
+        "$.missing.x",
+        "$.user.id.x",
+    };
+    
+    private static JsonObject expected() throws IOException {
+        JsonObject expected = new JsonObject();
+        expected.put("$.user.id", 7L);
+        // The escaped key comes last, so its value is the one kept.
+        expected.put("$['user'].name", "Escaped");
+        expected.put("$.user.tags[1].deep[1][0]", 2L);
+        expected.put("$.items[*].price", JsonObject.decode("[1.5,3]"));
+        expected.put("$.items[2]", JsonObject.decode("{\"price\":3,\"extra\":[\"price\"]}"));
+        expected.put("$['odd key'].x", null);
+        expected.put("$.last[*][1]", JsonObject.decode("[2,4]"));
+        expected.put("$.user.*",
+                JsonObject.decode("[\"Ann\",7,[\"a\",{\"deep\":[1,[2]]},\"c\"],\"Escaped\"]"));
+        return expected;
+    }
+    
+    @Test
+    public void extractPaths() throws Exception {
+        JsonProjection projection = JsonProjection.compile(PATHS);
+        JsonObject expected = expected();
+        assertEquals(expected, projection.extract(DOCUMENT));
+        byte[] bytes = ("  " + DOCUMENT + " ").getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, projection.extract(bytes, 2, bytes.length - 3));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip().position(1);
+        assertEquals(expected, projection.extract(direct));
+        assertEquals(1, direct.position());
+        assertFalse(projection.extract(DOCUMENT).containsKey("$.missing.x"));
+    }
+    
+    @Test
+    public void matchDecodedValues() throws Exception {
+        // The same values, whether reached by scanning or by walking a
+        // value decoded for another path.
+        JsonProjection projection = JsonProjection.compile("$.user", "$.user.tags[1].deep", "$.*.id");
+        JsonObject values = projection.extract(DOCUMENT);
+        JsonObject document = (JsonObject)JsonObject.decode(DOCUMENT);
+        assertEquals(document.get("user"), values.get("$.user"));
+        assertEquals(JsonObject.decode("[1,[2]]"), values.get("$.user.tags[1].deep"));
+        assertEquals(JsonObject.decode("[7]"), values.get("$.*.id"));
+    }
+    
+    @Test
+    public void handleInDocumentOrder() throws Exception {
+        final List<String> found = new ArrayList<String>();
+        JsonProjection.compile("$.last[*][0]", "$.items[*].qty", "$.user.id").extract(DOCUMENT,
+                new JsonProjection.Handler() {
+                    public void value(String path, Object value) {
+                        found.add(path + "=" + value);
+                    }
+                });
+        assertEquals(Arrays.asList("$.user.id=7", "$.items[*].qty=2", "$.items[*].qty=1", "$.last[*][0]=1",
+                "$.last[*][0]=3", "$.last[*][0]=5"), found);
+    }
+    
+    @Test
+    public void scalarAndEmptyDocuments() throws Exception {
+        JsonProjection projection = JsonProjection.compile("$", "$.a", "$[0]");
+        assertEquals(JsonObject.decode("{\"$\":12}"), projection.extract("12"));
+        assertEquals(JsonObject.decode("{\"$\":[]}"), projection.extract("[]"));
+        assertEquals(JsonObject.decode("{\"$\":{}}"), projection.extract("{}"));
+        assertEquals(new JsonObject(), projection.extract(""));
+        assertEquals(new JsonObject(), JsonProjection.compile("$.a").extract("{}"));
+    }
+    
+    @Test
+    public void malformedPaths() {
+        for(String path : new String[] {"", "user", "$.", "$..a", "$[", "$[a]", "$[-1]", "$['a]", "$x"}) {
+            try {
+                JsonProjection.compile(path);
+                fail(path);
+            } catch(IllegalArgumentException expected) {
+            }
+        }
+        try {
+            JsonProjection.compile("$.a", null);
+            fail();
+        } catch(NullPointerException expected) {
+        }
+    }
+    
+    @Test
+    public void malformedDocuments() throws Exception {
+        JsonProjection projection = JsonProjection.compile("$.b");
+        String[] inputs = {"{\"a\":\"\\u00g0\",\"b\":1}", "{\"a\":[1,2,\"b\":1}", "{\"a\":1 \"b\":1}",
+            "{\"a\":\"x", "{\"b\":tru}", "{\"a\":1,\"b\"}"};
+        for(String json : inputs) {
+            try {
+                projection.extract(json);
+                fail(json);
+            } catch(IOException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PushParserTest {
+    // Values holding every escape, an unknown one included, multi-byte
+    // characters of two to four bytes, numbers of each kind and the three
+    // literals, so that splitting the input anywhere cuts through each of
+    // them.
+    private static final String[] VALUES = {
+        "{\"a\\n\\\"b\\\\\":\"\\u00e9t\\u00C9 \\ud83d\\ude00 \\/\\b\\f\\r\\t\\x\",\"é漢😀\":[\"é漢😀\"]}",
+        "[-12.5e-3,0,-0,1.5E+10,12345678901234567890123,0.1000000000000000055511151231257827]",
+        "[true,false,null,{},[],\"\"]",
+        "\"x\"",
+        "-7",
+        "null",
+    };
+    
+    private static final String INPUT = String.join(" \n", VALUES) + "\t42";
+    
+    private static List<Object> expected() throws IOException {
+        List<Object> expected = new ArrayList<Object>();
+        for(String value : VALUES) {
+            expected.add(JsonObject.decode(value));
+        }
+        expected.add(42L);
+        return expected;
+    }
+    
+    private static List<Object> drain(JsonPushParser parser, List<Object> values) {
+        while(parser.hasNext()) {
+            values.add(parser.next());
+        }
+        return values;
+    }
+    
+    @Test
+    public void splitAnywhere() throws Exception {
+        List<Object> expected = expected();
+        byte[] input = INPUT.getBytes(StandardCharsets.UTF_8);
+        for(int cut = 0; cut <= input.length; cut++) {
+            JsonPushParser parser = new JsonPushParser();
+            List<Object> values = new ArrayList<Object>();
+            parser.feed(input, 0, cut);
+            drain(parser, values);
+            parser.feed(input, cut, input.length - cut);
+            drain(parser, values);
+            // The last number could go on until the input is finished.
+            assertEquals(expected.size() - 1, values.size());
+            parser.finish();
+            assertEquals("Cut at " + cut, expected, drain(parser, values));
+            assertEquals(input.length, parser.getPosition());
+        }
+    }
+    
+    @Test
+    public void feedByteByByte() throws Exception {
+        byte[] input = INPUT.getBytes(StandardCharsets.UTF_8);
+        JsonPushParser parser = new JsonPushParser();
+        List<Object> values = new ArrayList<Object>();
+        // One buffer, reused for every chunk.
+        ByteBuffer chunk = ByteBuffer.allocate(1);
+        for(byte b : input) {
+            chunk.clear();
+            chunk.put(b).flip();
+            parser.feed(chunk);
+            assertFalse(chunk.hasRemaining());
+            drain(parser, values);
+        }
+        parser.finish();
+        assertEquals(expected(), drain(parser, values));
+    }
+    
+    @Test
+    public void valuesAsSoonAsComplete() throws Exception {
+        JsonPushParser parser = new JsonPushParser();
+        byte[] input = "{\"a\":[1]}true 12".getBytes(StandardCharsets.UTF_8);
+        parser.feed(input, 0, 8);
+        assertFalse(parser.hasNext());
+        parser.feed(input, 8, 1);
+        assertEquals(JsonObject.decode("{\"a\":[1]}"), parser.next());
+        parser.feed(input, 9, 4);
+        assertEquals(true, parser.next());
+        parser.feed(input, 13, 3);
+        assertFalse(parser.hasNext());
+        parser.finish();
+        assertEquals(12L, parser.next());
+    }
+    
+    // The error the parser gives for the input, split at the given index.
+    private static IOException failure(String json, int cut) {
+        byte[] input = json.getBytes(StandardCharsets.UTF_8);
+        JsonPushParser parser = new JsonPushParser();
+        try {
+            parser.feed(input, 0, cut);
+            parser.feed(input, cut, input.length - cut);
+            parser.finish();
+        } catch(IOException e) {
+            try {
+                parser.feed(input, 0, 0);
+                fail();
+            } catch(IOException again) {
+                assertTrue(e == again);
+            }
+            return e;
+        }
+        throw new AssertionError("No error in " + json);
+    }
+    
+    @Test
+    public void malformedAnywhere() throws Exception {
+        String[] inputs = {"[1,2,@]", "{\"a\":tru}", "[1.e5]", "\"\\u00g0\"", "[1,]", "{\"a\" 1}"};
+        for(String json : inputs) {
+            String message = null;
+            try {
+                JsonObject.decode(json);
+                fail(json);
+            } catch(IOException e) {
+                message = e.getMessage();
+            }
+            for(int cut = 0; cut <= json.length(); cut++) {
+                assertEquals(json + " cut at " + cut, message, failure(json, cut).getMessage());
+            }
+        }
+    }
+    
+    @Test
+    public void incompleteInput() throws Exception {
+        for(String json : new String[] {"\"abc", "[1,", "{\"a\":", "fals", "\"\\u00"}) {
+            for(int cut = 0; cut <= json.length(); cut++) {
+                failure(json, cut);
+            }
+        }
+    }
+}
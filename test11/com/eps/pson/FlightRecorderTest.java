@@ -0,0 +1,67 @@
+package com.eps.pson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.After;
+import org.junit.Test;
+
+// Runs with -Dcom.eps.pson.metrics=true, in a JVM of its own.
+public class FlightRecorderTest {
+    private static final String JSON = "{\"a\":[1,2.5,\"é\",{\"b\":[true,null]}],\"c\":\"d\"}";
+    
+    @After
+    public void removeListener() {
+        JsonMetrics.setListener(null);
+    }
+    
+    @Test
+    public void commitEvents() throws Exception {
+        JsonMetrics.setListener(JsonMetrics.flightRecorder());
+        Path file = Files.createTempFile("pson", ".jfr");
+        try {
+            try(Recording recording = new Recording()) {
+                recording.enable("com.eps.pson.Decode");
+                recording.enable("com.eps.pson.Encode");
+                recording.start();
+                JsonObject.encode(JsonObject.decode(JSON));
+                recording.stop();
+                recording.dump(file);
+            }
+            // Not recorded once the recording has stopped.
+            JsonObject.decode(JSON);
+            List<RecordedEvent> events = new ArrayList<>();
+            try(RecordingFile recording = new RecordingFile(file)) {
+                while(recording.hasMoreEvents()) {
+                    events.add(recording.readEvent());
+                }
+            }
+            assertEquals(2, events.size());
+            RecordedEvent decode = events.get(0);
+            assertEquals("com.eps.pson.Decode", decode.getEventType().getName());
+            assertEquals("JSON", decode.getEventType().getCategoryNames().get(0));
+            assertEquals(JSON.length(), decode.getLong("input"));
+            assertEquals(13, decode.getLong("tokens"));
+            assertEquals(4, decode.getInt("depth"));
+            assertEquals(5, decode.getLong("strings"));
+            assertEquals(2, decode.getLong("numbers"));
+            assertTrue(decode.getLong("nanos") >= 0);
+            RecordedEvent encode = events.get(1);
+            assertEquals("com.eps.pson.Encode", encode.getEventType().getName());
+            assertEquals(JSON.length(), encode.getLong("output"));
+            assertEquals(13, encode.getLong("tokens"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}